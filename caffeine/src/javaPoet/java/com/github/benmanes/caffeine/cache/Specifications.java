@@ -98,7 +98,7 @@ public final class Specifications {
   public static final ClassName WRITE_QUEUE_TYPE =
       ClassName.get(PACKAGE_NAME, "MpscGrowableArrayQueue");
   public static final TypeName WRITE_QUEUE =
-      ParameterizedTypeName.get(WRITE_QUEUE_TYPE, ClassName.get(Runnable.class));
+      ParameterizedTypeName.get(WRITE_QUEUE_TYPE, ClassName.get(Object.class));
 
   public static final TypeName EXPIRY = ParameterizedTypeName.get(
       ClassName.get(PACKAGE_NAME, "Expiry"), kTypeVar, vTypeVar);
@@ -24,6 +24,7 @@ import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.SynchronousQueue;
 import java.util.function.Supplier;
 
+import org.jctools.queues.MpscGrowableArrayQueue;
 import org.jctools.queues.MpscLinkedQueue;
 
 import com.google.common.collect.Queues;
@@ -34,6 +35,7 @@ import com.google.common.collect.Queues;
 @SuppressWarnings("ImmutableEnumChecker")
 public enum QueueType {
   MpscLinkedQueue(MpscLinkedQueue::new),
+  MpscGrowableArrayQueue(() -> new MpscGrowableArrayQueue<>(16, 1 << 14)),
   SingleConsumerQueue_optimistic(SingleConsumerQueue::optimistic),
   SingleConsumerQueue_linearizable(SingleConsumerQueue::linearizable),
   ConcurrentLinkedQueue(ConcurrentLinkedQueue<Object>::new),
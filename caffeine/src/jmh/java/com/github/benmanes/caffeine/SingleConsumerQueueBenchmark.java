@@ -37,6 +37,7 @@ public class SingleConsumerQueueBenchmark {
   @Param({
     "SingleConsumerQueue_optimistic",
     "SingleConsumerQueue_linearizable",
+    "MpscGrowableArrayQueue",
     "ConcurrentLinkedQueue"})
   QueueType queueType;
 
@@ -18,10 +18,13 @@ package com.github.benmanes.caffeine;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Threads;
 
+import com.github.benmanes.caffeine.cache.Ticker;
+
 /**
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public class TimeBenchmark {
+  static final Ticker coarseTicker = Ticker.coarseTicker();
 
   @Benchmark @Threads(1)
   public long nanos_noContention() {
@@ -42,4 +45,14 @@ public class TimeBenchmark {
   public long millis_contention() {
     return System.currentTimeMillis();
   }
+
+  @Benchmark @Threads(1)
+  public long coarseTicker_noContention() {
+    return coarseTicker.read();
+  }
+
+  @Benchmark @Threads(8)
+  public long coarseTicker_contention() {
+    return coarseTicker.read();
+  }
 }
@@ -76,6 +76,26 @@ public enum CacheType {
       return new CaffeineCache<>(maximumSize);
     }
   },
+  Caffeine_Stats {
+    @Override public <K, V> BasicCache<K, V> create(int maximumSize) {
+      return new CaffeineCache<>(maximumSize, /* recordStats */ true);
+    }
+  },
+  Caffeine_SampledReads {
+    @Override public <K, V> BasicCache<K, V> create(int maximumSize) {
+      return CaffeineCache.sampledReads(maximumSize);
+    }
+  },
+  Caffeine_Expiring {
+    @Override public <K, V> BasicCache<K, V> create(int maximumSize) {
+      return new CaffeineCache<>(maximumSize, Ticker.systemTicker());
+    }
+  },
+  Caffeine_Expiring_CoarseTicker {
+    @Override public <K, V> BasicCache<K, V> create(int maximumSize) {
+      return new CaffeineCache<>(maximumSize, Ticker.coarseTicker());
+    }
+  },
   Collision {
     @Override public <K, V> BasicCache<K, V> create(int maximumSize) {
       return new Collision<>(maximumSize);
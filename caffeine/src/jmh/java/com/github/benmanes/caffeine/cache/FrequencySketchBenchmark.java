@@ -16,6 +16,7 @@
 package com.github.benmanes.caffeine.cache;
 
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -34,7 +35,10 @@ import site.ycsb.generator.ScrambledZipfianGenerator;
 public class FrequencySketchBenchmark {
   private static final int SIZE = (2 << 14);
   private static final int MASK = SIZE - 1;
-  private static final int ITEMS = SIZE / 3;
+
+  // A table that fits in the CPU caches and one that exceeds them
+  @Param({"10923", "16777216"})
+  int items;
 
   int index = 0;
   Integer[] ints;
@@ -44,9 +48,9 @@ public class FrequencySketchBenchmark {
   public void setup() {
     ints = new Integer[SIZE];
     sketch = new FrequencySketch<>();
-    sketch.ensureCapacity(ITEMS);
+    sketch.ensureCapacity(items);
 
-    NumberGenerator generator = new ScrambledZipfianGenerator(ITEMS);
+    NumberGenerator generator = new ScrambledZipfianGenerator(items);
     for (int i = 0; i < SIZE; i++) {
       ints[i] = generator.nextValue().intValue();
       sketch.increment(i);
@@ -62,4 +66,17 @@ public class FrequencySketchBenchmark {
   public int frequency() {
     return sketch.frequency(ints[index++ & MASK]);
   }
+
+  @Benchmark
+  public void reset() {
+    sketch.reset();
+  }
+
+  @Benchmark
+  public void reset_incremental() {
+    if (sketch.resetIndex == sketch.table.length) {
+      sketch.resetIndex = 0;
+    }
+    sketch.age();
+  }
 }
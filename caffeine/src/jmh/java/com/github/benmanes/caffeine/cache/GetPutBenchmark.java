@@ -49,6 +49,10 @@ public class GetPutBenchmark {
   @Param({
     "LinkedHashMap_Lru",
     "Caffeine",
+    "Caffeine_Stats",
+    "Caffeine_SampledReads",
+    "Caffeine_Expiring",
+    "Caffeine_Expiring_CoarseTicker",
     "ConcurrentLinkedHashMap",
     "Guava",
     "ElasticSearch",
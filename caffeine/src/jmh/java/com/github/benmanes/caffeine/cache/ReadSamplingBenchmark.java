@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import site.ycsb.generator.NumberGenerator;
+import site.ycsb.generator.ScrambledZipfianGenerator;
+
+/**
+ * A benchmark that compares the read path with and without {@link Caffeine#sampleReads()}. The
+ * cache is pre-populated for a 100% hit rate and the keys follow a Zipf distribution, so that the
+ * most popular entries have a saturated frequency. The single threaded group measures the cost that
+ * sampling adds to an uncontended read, and the multi-threaded group measures the benefit of less
+ * contention on the read buffer.
+ * <p>
+ * <pre>{@code
+ *   ./gradlew jmh -PincludePattern=ReadSamplingBenchmark
+ * }</pre>
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@State(Scope.Group)
+public class ReadSamplingBenchmark {
+  private static final int SIZE = (2 << 14);
+  private static final int MASK = SIZE - 1;
+  private static final int ITEMS = SIZE / 3;
+
+  @Param({"false", "true"})
+  boolean sampleReads;
+
+  Cache<Integer, Boolean> cache;
+  Integer[] ints;
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    static final Random random = new Random();
+    int index = random.nextInt();
+  }
+
+  @Setup
+  public void setup() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(2 * SIZE);
+    if (sampleReads) {
+      builder.sampleReads();
+    }
+    cache = builder.build();
+
+    // Populate with a realistic access distribution and saturate the popular entries
+    ints = new Integer[SIZE];
+    NumberGenerator generator = new ScrambledZipfianGenerator(ITEMS);
+    for (int i = 0; i < SIZE; i++) {
+      ints[i] = generator.nextValue().intValue();
+      cache.put(ints[i], Boolean.TRUE);
+    }
+    for (int i = 0; i < 16 * SIZE; i++) {
+      cache.getIfPresent(ints[i & MASK]);
+    }
+    cache.cleanUp();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    cache.cleanUp();
+  }
+
+  @Benchmark @Group("uncontended") @GroupThreads(1)
+  public Boolean read_uncontended(ThreadState threadState) {
+    return cache.getIfPresent(ints[threadState.index++ & MASK]);
+  }
+
+  @Benchmark @Group("contended") @GroupThreads(8)
+  public Boolean read_contended(ThreadState threadState) {
+    return cache.getIfPresent(ints[threadState.index++ & MASK]);
+  }
+}
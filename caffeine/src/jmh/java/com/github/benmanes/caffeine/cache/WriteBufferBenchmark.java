@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.cache.BoundedLocalCache.WRITE_BUFFER_MAX;
+import static com.github.benmanes.caffeine.cache.BoundedLocalCache.WRITE_BUFFER_MIN;
+
+import java.util.Queue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.github.benmanes.caffeine.SingleConsumerQueue;
+
+/**
+ * A concurrent benchmark for write buffer implementation options. A write buffer is a bounded,
+ * multiple-producer / single-consumer ordered queue. These buffers are used to record the write
+ * operations that occurred on the cache, which are later replayed by a single thread on the
+ * eviction policy.
+ * <p>
+ * Unlike a generic queue benchmark, the producers follow the cache's write pattern. After adding
+ * its task a writer tries to acquire the eviction lock and, if successful, drains up to a batch of
+ * pending tasks, as when the cache is configured with a same-thread executor. If the buffer is full
+ * then the writer blocks on the lock to drain the buffer and run its task directly, which provides
+ * back pressure. An unbounded buffer, such as {@link SingleConsumerQueue}, never applies back
+ * pressure and may instead grow while the consumer is descheduled.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@State(Scope.Benchmark)
+public class WriteBufferBenchmark {
+  static final Runnable TASK = () -> {};
+
+  @Param WriteBufferType bufferType;
+
+  Queue<Runnable> buffer;
+  Lock evictionLock;
+
+  @AuxCounters
+  @State(Scope.Thread)
+  public static class WriteCounters {
+    public int offersFull;
+    public int offersMade;
+    public int drains;
+  }
+
+  @Setup
+  public void setup() {
+    evictionLock = new ReentrantLock();
+    buffer = bufferType.create();
+  }
+
+  @Benchmark @Threads(8)
+  public void write_8(WriteCounters counters) {
+    write(counters);
+  }
+
+  @Benchmark @Threads(32)
+  public void write_32(WriteCounters counters) {
+    write(counters);
+  }
+
+  @Benchmark @Threads(128)
+  public void write_128(WriteCounters counters) {
+    write(counters);
+  }
+
+  void write(WriteCounters counters) {
+    if (buffer.offer(TASK)) {
+      counters.offersMade++;
+      if (evictionLock.tryLock()) {
+        try {
+          drain();
+          counters.drains++;
+        } finally {
+          evictionLock.unlock();
+        }
+      }
+    } else {
+      counters.offersFull++;
+      evictionLock.lock();
+      try {
+        drain();
+        TASK.run();
+        counters.drains++;
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  void drain() {
+    for (int i = 0; i < WRITE_BUFFER_MAX; i++) {
+      Runnable task = buffer.poll();
+      if (task == null) {
+        return;
+      }
+      task.run();
+    }
+  }
+
+  /** The write buffer implementations. */
+  @SuppressWarnings("ImmutableEnumChecker")
+  public enum WriteBufferType {
+    MpscGrowableArrayQueue(() -> new MpscGrowableArrayQueue<>(WRITE_BUFFER_MIN, WRITE_BUFFER_MAX)),
+    SingleConsumerQueue_optimistic(SingleConsumerQueue::optimistic),
+    SingleConsumerQueue_linearizable(SingleConsumerQueue::linearizable);
+
+    private final Supplier<Queue<Runnable>> factory;
+
+    WriteBufferType(Supplier<Queue<Runnable>> factory) {
+      this.factory = factory;
+    }
+
+    public Queue<Runnable> create() {
+      return factory.get();
+    }
+  }
+}
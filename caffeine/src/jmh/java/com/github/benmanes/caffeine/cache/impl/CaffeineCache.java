@@ -15,11 +15,13 @@
  */
 package com.github.benmanes.caffeine.cache.impl;
 
+import java.time.Duration;
 import java.util.Map;
 
 import com.github.benmanes.caffeine.cache.BasicCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 
 /**
  * @author ben.manes@gmail.com (Ben Manes)
@@ -36,6 +38,40 @@ public final class CaffeineCache<K, V> implements BasicCache<K, V> {
     map = cache.asMap();
   }
 
+  public CaffeineCache(int maximumSize, boolean recordStats) {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+        .initialCapacity(maximumSize)
+        .maximumSize(maximumSize);
+    if (recordStats) {
+      builder.recordStats();
+    }
+    cache = builder.build();
+    map = cache.asMap();
+  }
+
+  private CaffeineCache(Caffeine<Object, Object> builder) {
+    cache = builder.build();
+    map = cache.asMap();
+  }
+
+  /** Returns a cache that samples the reads of its popular entries. */
+  public static <K, V> CaffeineCache<K, V> sampledReads(int maximumSize) {
+    return new CaffeineCache<>(Caffeine.newBuilder()
+        .initialCapacity(maximumSize)
+        .maximumSize(maximumSize)
+        .sampleReads());
+  }
+
+  public CaffeineCache(int maximumSize, Ticker ticker) {
+    cache = Caffeine.newBuilder()
+        .expireAfterAccess(Duration.ofDays(1))
+        .initialCapacity(maximumSize)
+        .maximumSize(maximumSize)
+        .ticker(ticker)
+        .build();
+    map = cache.asMap();
+  }
+
   @Override
   public V get(K key) {
     return map.get(key);
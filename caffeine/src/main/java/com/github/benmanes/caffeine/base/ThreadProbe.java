@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.base;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Static access to the current thread's hash code that is used by striped structures to select a
+ * slot, as maintained by {@link ThreadLocalRandom}. Duplicated from {@link ThreadLocalRandom}
+ * because of packaging restrictions.
+ * <p>
+ * <b>Warning:</b> This class is not part of the public API and is scheduled for removal in version
+ * 3.0.0.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class ThreadProbe {
+  static final long PROBE = UnsafeAccess.objectFieldOffset(Thread.class, "threadLocalRandomProbe");
+
+  private ThreadProbe() {}
+
+  /** Returns the probe value for the current thread, which is zero if not yet initialized. */
+  public static int get() {
+    return UnsafeAccess.UNSAFE.getInt(Thread.currentThread(), PROBE);
+  }
+
+  /** Returns the probe value for the current thread, initializing it if necessary. */
+  public static int current() {
+    int probe = get();
+    if (probe == 0) {
+      ThreadLocalRandom.current(); // force initialization
+      probe = get();
+    }
+    return probe;
+  }
+
+  /** Pseudo-randomly advances and records the given probe value for the current thread. */
+  public static int advance(int probe) {
+    probe ^= probe << 13; // xorshift
+    probe ^= probe >>> 17;
+    probe ^= probe << 5;
+    UnsafeAccess.UNSAFE.putInt(Thread.currentThread(), PROBE, probe);
+    return probe;
+  }
+}
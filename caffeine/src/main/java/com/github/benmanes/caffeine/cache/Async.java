@@ -21,6 +21,7 @@ import static java.util.Objects.requireNonNull;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 
@@ -61,6 +62,17 @@ final class Async {
     }
   }
 
+  /** Returns a future that was completed exceptionally by the loader's failure. */
+  static <V> CompletableFuture<V> failedFuture(Throwable t) {
+    if (t instanceof InterruptedException) {
+      Thread.currentThread().interrupt();
+    }
+    CompletableFuture<V> future = new CompletableFuture<>();
+    future.completeExceptionally(((t instanceof RuntimeException) || (t instanceof Error))
+        ? t : new CompletionException(t));
+    return future;
+  }
+
   /**
    * A removal listener that asynchronously forwards the value stored in a {@link CompletableFuture}
    * if successful to the user-supplied removal listener.
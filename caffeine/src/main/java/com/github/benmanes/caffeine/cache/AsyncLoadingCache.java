@@ -15,9 +15,13 @@
  */
 package com.github.benmanes.caffeine.cache;
 
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
@@ -82,6 +86,107 @@ public interface AsyncLoadingCache<K, V> extends AsyncCache<K, V> {
   @NonNull
   CompletableFuture<Map<K, V>> getAll(@NonNull Iterable<? extends @NonNull K> keys);
 
+  /**
+   * Returns the future of the value associated with each of the {@code keys}, creating or
+   * retrieving those values if necessary, without waiting for all of the values to be loaded. The
+   * returned map contains an entry for every distinct key, in iteration order. The futures of the
+   * present entries are returned as is, so a caller may use the values that are already available
+   * while the absent entries are loaded. A future completes with a {@code null} value if the
+   * {@link AsyncCacheLoader#asyncLoadAll} did not return a mapping for its key, or completes
+   * exceptionally if its load failed, and such entries will be automatically removed from this
+   * cache.
+   * <p>
+   * This method loads the absent entries in the same way as {@link #getAll(Iterable)}, so the
+   * futures of the keys that are loaded by the same call to {@link AsyncCacheLoader#asyncLoadAll}
+   * complete together. The results are therefore only available incrementally if the loader does
+   * not implement a bulk load, in which case each key is loaded individually, or if
+   * {@link Caffeine#bulkLoadPartitioning} is specified, in which case the futures complete per
+   * batch. A caller that is only willing to wait for a limited time should use
+   * {@link #getAllFutures(Iterable, Duration)}.
+   * <p>
+   * Note that duplicate elements in {@code keys}, as determined by {@link Object#equals}, will be
+   * ignored.
+   *
+   * @param keys the keys whose associated values are to be returned
+   * @return an unmodifiable mapping of the specified keys to the futures of their values
+   * @throws NullPointerException if the specified collection is null or contains a null element, or
+   *         if the future returned by the {@link AsyncCacheLoader} is null
+   * @throws RuntimeException or Error if the {@link AsyncCacheLoader} does so, if
+   *         {@link AsyncCacheLoader#asyncLoadAll} returns {@code null}, or fails when constructing
+   *         the future, in which case the mapping is left unestablished
+   */
+  @NonNull
+  default Map<@NonNull K, @NonNull CompletableFuture<V>> getAllFutures(
+      @NonNull Iterable<? extends @NonNull K> keys) {
+    // This method was added & implemented in version 2.9.0
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns the future of the value associated with each of the {@code keys}, as described by
+   * {@link #getAllFutures(Iterable)}, except that a future which has not completed within the
+   * {@code timeout} is failed with a {@link TimeoutException}. This allows a caller to use the
+   * values that are available by its deadline and to report the remaining keys as missing, rather
+   * than waiting on the slowest load.
+   * <p>
+   * The returned futures are views, so the timeout and any cancellation by the caller do not affect
+   * the loads. They continue and their results will be stored in the cache when they complete. The
+   * timer is submitted to the {@link Caffeine#scheduler(Scheduler)}, which must be specified, and
+   * expires on the {@link Caffeine#executor(Executor)}.
+   *
+   * @param keys the keys whose associated values are to be returned
+   * @param timeout the length of time to wait for the absent entries to be loaded
+   * @return an unmodifiable mapping of the specified keys to the futures of their values
+   * @throws NullPointerException if the specified collection is null or contains a null element, or
+   *         if the future returned by the {@link AsyncCacheLoader} is null
+   * @throws IllegalArgumentException if {@code timeout} is negative
+   * @throws IllegalStateException if the cache was not built with a scheduler
+   * @throws RuntimeException or Error if the {@link AsyncCacheLoader} does so, if
+   *         {@link AsyncCacheLoader#asyncLoadAll} returns {@code null}, or fails when constructing
+   *         the future, in which case the mapping is left unestablished
+   */
+  @NonNull
+  default Map<@NonNull K, @NonNull CompletableFuture<V>> getAllFutures(
+      @NonNull Iterable<? extends @NonNull K> keys, @NonNull Duration timeout) {
+    // This method was added & implemented in version 2.9.0
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Delivers the values associated with {@code keys} to the {@code action} as they become
+   * available, creating or retrieving those values if necessary. The keys are iterated lazily,
+   * and the absent entries are loaded in batches of at most {@code batchSize} keys, in the same way
+   * as {@link #getAll(Iterable)}. The next batch is not requested until the entries of the prior
+   * batch have been delivered, so the rate at which the action accepts the entries limits the
+   * number of loads in flight. This allows a large or unbounded sequence of keys to be looked up
+   * without materializing all of their futures at once.
+   * <p>
+   * An entry that is already loaded is delivered immediately on the calling thread, whereas the
+   * entries of a batch that must wait for its load are delivered on the thread that completes it.
+   * The entries are delivered in the order that they become available, which may differ from the
+   * iteration order of the keys, and a key that does not have a value is not delivered. The action
+   * is never invoked concurrently by a single lookup.
+   * <p>
+   * If a batch fails to load or the action throws an exception, then no further keys are consumed
+   * and the returned future completes exceptionally.
+   * <p>
+   * Note that duplicate elements in {@code keys}, as determined by {@link Object#equals}, will be
+   * ignored within a batch but may be delivered more than once across batches.
+   *
+   * @param keys the keys whose associated values are to be delivered
+   * @param batchSize the maximum number of absent keys to load together
+   * @param action the action to be performed for each entry
+   * @return the future that completes when all of the entries have been delivered
+   * @throws NullPointerException if the specified collection or action is null
+   * @throws IllegalArgumentException if {@code batchSize} is not positive
+   */
+  @NonNull
+  default CompletableFuture<Void> getAllInBatches(@NonNull Iterable<? extends @NonNull K> keys,
+      int batchSize, @NonNull BiConsumer<? super K, ? super V> action) {
+    // This method was added & implemented in version 2.9.0
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Returns a view of the entries stored in this cache as a thread-safe map. Modifications made to
    * the map directly affect the cache.
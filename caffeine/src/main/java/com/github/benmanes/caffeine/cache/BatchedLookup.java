@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * A lookup that delivers the entries for a sequence of keys as they become available, with the
+ * absent entries loaded in batches. The keys are consumed lazily so that at most one batch is
+ * outstanding at a time, which bounds the work in flight to the rate at which the action accepts
+ * the entries. Entries that are already loaded are delivered on the calling thread without an
+ * intermediate future, while a batch that must wait for its load is delivered by the thread that
+ * completes it.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class BatchedLookup<K, V> {
+  final BiConsumer<? super K, ? super V> action;
+  final LocalAsyncLoadingCache<K, V> cache;
+  final CompletableFuture<Void> result;
+  final Iterator<? extends K> keys;
+  final int batchSize;
+
+  BatchedLookup(LocalAsyncLoadingCache<K, V> cache, Iterator<? extends K> keys,
+      int batchSize, BiConsumer<? super K, ? super V> action) {
+    this.result = new CompletableFuture<>();
+    this.cache = requireNonNull(cache);
+    this.action = requireNonNull(action);
+    this.keys = requireNonNull(keys);
+    this.batchSize = batchSize;
+  }
+
+  /** Returns a future that completes when every entry has been delivered to the action. */
+  CompletableFuture<Void> start() {
+    drain();
+    return result;
+  }
+
+  /** Delivers the entries until either a batch is waiting on its load or the keys are exhausted. */
+  void drain() {
+    try {
+      for (;;) {
+        List<K> batch = nextBatch();
+        if (batch.isEmpty()) {
+          result.complete(null);
+          return;
+        }
+
+        CompletableFuture<Map<K, V>> future = cache.getAll(batch);
+        if (!future.isDone()) {
+          future.whenComplete((entries, error) -> {
+            if (error == null) {
+              deliver(entries);
+            } else {
+              result.completeExceptionally(error);
+            }
+          });
+          return;
+        }
+
+        Map<K, V> entries;
+        try {
+          entries = future.join();
+        } catch (CompletionException | CancellationException e) {
+          result.completeExceptionally((e.getCause() == null) ? e : e.getCause());
+          return;
+        }
+        entries.forEach(action);
+      }
+    } catch (Throwable t) {
+      result.completeExceptionally(t);
+    }
+  }
+
+  /** Delivers the loaded entries and resumes consuming the keys. */
+  void deliver(Map<K, V> entries) {
+    try {
+      entries.forEach(action);
+    } catch (Throwable t) {
+      result.completeExceptionally(t);
+      return;
+    }
+    drain();
+  }
+
+  /**
+   * Returns up to the batch size of keys whose values are not yet available, after delivering the
+   * values of the keys that are present and loaded.
+   */
+  List<K> nextBatch() {
+    List<K> batch = new ArrayList<>(Math.min(batchSize, 16));
+    while (keys.hasNext() && (batch.size() < batchSize)) {
+      K key = requireNonNull(keys.next());
+      CompletableFuture<V> future = cache.cache().getIfPresent(key, /* recordStats */ false);
+      V value = Async.getIfReady(future);
+      if (value == null) {
+        batch.add(key);
+      } else {
+        cache.cache().statsCounter().recordHits(1);
+        action.accept(key, value);
+      }
+    }
+    return batch;
+  }
+}
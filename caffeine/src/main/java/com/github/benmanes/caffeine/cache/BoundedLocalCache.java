@@ -47,6 +47,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.Set;
@@ -107,11 +108,13 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
    *
    * A memento of the reads and writes that were performed on the map are recorded in buffers. These
    * buffers are drained at the first opportunity after a write or when a read buffer is full. The
-   * reads are offered to a buffer that will reject additions if contended on or if it is full. Due
-   * to the concurrent nature of the read and write operations a strict policy ordering is not
-   * possible, but may be observably strict when single threaded. The buffers are drained
-   * asynchronously to minimize the request latency and uses a state machine to determine when to
-   * schedule this work on an executor.
+   * reads are offered to a buffer that will reject additions if contended on or if it is full. If
+   * enabled, the reads of an entry whose frequency is saturated are sampled, as recording them
+   * would not change its popularity, so that the hottest entries do not crowd the colder ones out
+   * of the buffer. Due to the concurrent nature of the read and write operations a strict policy
+   * ordering is not possible, but may be observably strict when single threaded. The buffers are
+   * drained asynchronously to minimize the request latency and uses a state machine to determine
+   * when to schedule this work on an executor.
    *
    * Due to a lack of a strict ordering guarantee, a task can be executed out-of-order, such as a
    * removal followed by its addition. The state of the entry is encoded using the key field to
@@ -143,6 +146,8 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
    * (making positive or negative steps). At each interval the step size is decreased until the
    * climber converges at the optimal setting. The process is restarted when the hit rate changes
    * over a threshold, indicating that the workload altered and a new setting may be required.
+   * Alternatively, the window may be configured to be sized by a gradient-based optimizer that
+   * samples over shorter periods and adapts using momentum (see WindowSizing).
    *
    * The historic usage is retained in a compact popularity sketch, which uses hashing to
    * probabilistically estimate an item's frequency. This exposes a flaw where an adversary could
@@ -150,9 +155,10 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
    * all candidates to be rejected. In the worst case, by exploiting hash collisions an attacker
    * could cause the cache to never hit and hold only worthless items, resulting in a
    * denial-of-service attack against the underlying resource. This is protected against by
-   * introducing jitter so that candidates which are at least moderately popular have a small,
-   * random chance of being admitted. This causes the victim to be evicted, but in a way that
-   * marginally impacts the hit rate.
+   * keying the sketch's hash function with a random seed per cache, so that the collisions cannot
+   * be predicted, and by introducing jitter so that candidates which are at least moderately
+   * popular have a small, random chance of being admitted. This causes the victim to be evicted,
+   * but in a way that marginally impacts the hit rate.
    *
    * Expiration:
    * -----------
@@ -209,6 +215,8 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
   static final long EXPIRE_WRITE_TOLERANCE = TimeUnit.SECONDS.toNanos(1);
   /** The maximum duration before an entry expires. */
   static final long MAXIMUM_EXPIRY = (Long.MAX_VALUE >> 1); // 150 years
+  /** The inverse probability that a read of a saturated entry is recorded when sampling. */
+  static final int READ_SAMPLE_RATE = 8;
 
   final ConcurrentHashMap<Object, Node<K, V>> data;
   @Nullable final CacheLoader<K, V> cacheLoader;
@@ -219,9 +227,24 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
   final ReentrantLock evictionLock;
   final CacheWriter<K, V> writer;
   final Weigher<K, V> weigher;
+  final @Nullable HitRateCurve hitRateCurve;
+  final @Nullable GradientClimber climber;
+  final @Nullable BulkLoadPartitioner bulkLoadPartitioner;
+  final @Nullable NegativeCache<K> negativeCache;
+  final @Nullable PendingLoads<K, V> pendingLoads;
+  final @Nullable ConcurrentMap<Object, Long> revalidations;
+  final @Nullable StatsWindow statsWindow;
   final Executor executor;
+  final long staleWhileRevalidateNanos;
+  final boolean servesStale;
+  final boolean sampleReads;
   final boolean isAsync;
 
+  @GuardedBy("evictionLock")
+  long admittedCount;
+  @GuardedBy("evictionLock")
+  long rejectedCount;
+
   // The collection views
   @Nullable transient Set<K> keySet;
   @Nullable transient Collection<V> values;
@@ -233,6 +256,10 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     this.isAsync = isAsync;
     this.cacheLoader = cacheLoader;
     executor = builder.getExecutor();
+    bulkLoadPartitioner = builder.getBulkLoadPartitioner();
+    negativeCache = builder.newNegativeCache();
+    pendingLoads = builder.newPendingLoads();
+    statsWindow = builder.isRecordingStats() ? new StatsWindow(this) : null;
     writer = builder.getCacheWriter();
     evictionLock = new ReentrantLock();
     weigher = builder.getWeigher(isAsync);
@@ -242,7 +269,21 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     readBuffer = evicts() || collectKeys() || collectValues() || expiresAfterAccess()
         ? new BoundedBuffer<>()
         : Buffer.disabled();
-    accessPolicy = (evicts() || expiresAfterAccess()) ? this::onAccess : e -> {};
+    servesStale = builder.servesStale();
+    staleWhileRevalidateNanos = builder.getStaleWhileRevalidateNanos();
+    revalidations = servesStale ? new ConcurrentHashMap<>() : null;
+    sampleReads = evicts() && builder.isSamplingReads();
+    if (sampleReads) {
+      accessPolicy = this::onSampledAccess;
+    } else {
+      accessPolicy = (evicts() || expiresAfterAccess()) ? this::onAccess : e -> {};
+    }
+    hitRateCurve = (evicts() && !isWeighted() && builder.isRecordingHitRateCurve())
+        ? new HitRateCurve(builder.getMaximum())
+        : null;
+    climber = (evicts() && (builder.getWindowSizing() != WindowSizing.HILL_CLIMBING))
+        ? new GradientClimber(builder.getWindowSizing())
+        : null;
 
     if (evicts()) {
       setMaximumSize(builder.getMaximum());
@@ -281,7 +322,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     return false;
   }
 
-  protected MpscGrowableArrayQueue<Runnable> writeBuffer() {
+  protected MpscGrowableArrayQueue<Object> writeBuffer() {
     throw new UnsupportedOperationException();
   }
 
@@ -290,6 +331,21 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     return executor;
   }
 
+  @Override
+  public final @Nullable BulkLoadPartitioner bulkLoadPartitioner() {
+    return bulkLoadPartitioner;
+  }
+
+  @Override
+  public final @Nullable NegativeCache<K> negativeCache() {
+    return negativeCache;
+  }
+
+  @Override
+  public final @Nullable PendingLoads<K, V> pendingLoads() {
+    return pendingLoads;
+  }
+
   /** Returns whether this cache notifies a writer when an entry is modified. */
   protected boolean hasWriter() {
     return (writer != CacheWriter.disabledWriter());
@@ -405,6 +461,18 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * Returns how long after the last write to an entry the map will retain that entry, which
+   * includes the grace period in which a stale entry may be served while it is reloaded.
+   */
+  long writeLifetimeNanos() {
+    if (!servesStale) {
+      return expiresAfterWriteNanos();
+    }
+    long lifetime = expiresAfterWriteNanos() + staleWhileRevalidateNanos;
+    return (lifetime < 0) ? Long.MAX_VALUE : lifetime;
+  }
+
   /** Returns if the cache refreshes entries after an write time threshold. */
   protected boolean refreshAfterWrite() {
     return false;
@@ -600,6 +668,9 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       // Lazily initialize when close to the maximum size
       frequencySketch().ensureCapacity(max);
     }
+    if (hitRateCurve != null) {
+      hitRateCurve.resize(max);
+    }
   }
 
   /** Evicts entries if the cache exceeds the maximum. */
@@ -737,11 +808,13 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       // Evict the entry with the lowest frequency
       candidates--;
       if (admit(candidateKey, victimKey)) {
+        admittedCount++;
         Node<K, V> evict = victim;
         victim = victim.getNextInAccessOrder();
         evictEntry(evict, RemovalCause.SIZE, 0L);
         candidate = candidate.getPreviousInAccessOrder();
       } else {
+        rejectedCount++;
         Node<K, V> evict = candidate;
         candidate = candidate.getPreviousInAccessOrder();
         evictEntry(evict, RemovalCause.SIZE, 0L);
@@ -825,7 +898,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     if (!expiresAfterWrite()) {
       return;
     }
-    long duration = expiresAfterWriteNanos();
+    long duration = writeLifetimeNanos();
     for (;;) {
       final Node<K, V> node = writeOrderDeque().peekFirst();
       if ((node == null) || ((now - node.getWriteTime()) < duration)) {
@@ -866,7 +939,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     if (expiresAfterWrite()) {
       Node<K, V> node = writeOrderDeque().peekFirst();
       if (node != null) {
-        delay = Math.min(delay, now - node.getWriteTime() + expiresAfterWriteNanos());
+        delay = Math.min(delay, now - node.getWriteTime() + writeLifetimeNanos());
       }
     }
     if (expiresVariable()) {
@@ -879,7 +952,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
   @SuppressWarnings("ShortCircuitBoolean")
   boolean hasExpired(Node<K, V> node, long now) {
     return (expiresAfterAccess() && (now - node.getAccessTime() >= expiresAfterAccessNanos()))
-        | (expiresAfterWrite() && (now - node.getWriteTime() >= expiresAfterWriteNanos()))
+        | (expiresAfterWrite() && (now - node.getWriteTime() >= writeLifetimeNanos()))
         | (expiresVariable() && (now - node.getVariableTime() >= 0));
   }
 
@@ -916,7 +989,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
             expired |= ((now - n.getAccessTime()) >= expiresAfterAccessNanos());
           }
           if (expiresAfterWrite()) {
-            expired |= ((now - n.getWriteTime()) >= expiresAfterWriteNanos());
+            expired |= ((now - n.getWriteTime()) >= writeLifetimeNanos());
           }
           if (expiresVariable()) {
             expired |= (n.getVariableTime() <= now);
@@ -1011,7 +1084,10 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
 
     int requestCount = hitsInSample() + missesInSample();
-    if (requestCount < frequencySketch().sampleSize) {
+    if (climber != null) {
+      determineGradientAdjustment(requestCount);
+      return;
+    } else if (requestCount < frequencySketch().sampleSize) {
       return;
     }
 
@@ -1028,6 +1104,23 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     setHitsInSample(0);
   }
 
+  /** Calculates the amount to adapt the window by using the configured gradient optimizer. */
+  @GuardedBy("evictionLock")
+  void determineGradientAdjustment(int requestCount) {
+    @SuppressWarnings("NullAway")
+    GradientClimber gradientClimber = climber;
+    if (requestCount < GradientClimber.sampleSize(frequencySketch().sampleSize)) {
+      return;
+    }
+
+    double hitRate = (double) hitsInSample() / requestCount;
+    double amount = gradientClimber.adjust(hitRate, previousSampleHitRate(), maximum());
+    setPreviousSampleHitRate(hitRate);
+    setAdjustment((long) amount);
+    setMissesInSample(0);
+    setHitsInSample(0);
+  }
+
   /**
    * Increases the size of the admission window by shrinking the portion allocated to the main
    * space. As the main space is partitioned into probation and protected regions (80% / 20%), for
@@ -1149,9 +1242,13 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
   void afterRead(Node<K, V> node, long now, boolean recordHit) {
     if (recordHit) {
       statsCounter().recordHits(1);
+      if (servesStale && isStale(node, now)) {
+        statsCounter().recordStaleHits(1);
+      }
     }
 
-    boolean delayable = skipReadBuffer() || (readBuffer.offer(node) != Buffer.FULL);
+    boolean delayable = skipReadBuffer() || skipSampledRead(node)
+        || (readBuffer.offer(node) != Buffer.FULL);
     if (shouldDrainBuffers(delayable)) {
       scheduleDrainBuffers();
     }
@@ -1163,6 +1260,64 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     return fastpath() && frequencySketch().isNotInitialized();
   }
 
+  /**
+   * Returns if the read should not be recorded because the entry's frequency is saturated and the
+   * read was not chosen by the sampling. Recording the read would not increase the entry's
+   * popularity, and only the hit rate sample requires compensation (see
+   * {@link #onSampledAccess(Node)}).
+   */
+  boolean skipSampledRead(Node<K, V> node) {
+    if (!sampleReads
+        || ((ThreadLocalRandom.current().nextInt() & (READ_SAMPLE_RATE - 1)) == 0)) {
+      return false;
+    }
+    K key = node.getKey();
+    return (key != null) && frequencySketch().isSaturated(key);
+  }
+
+  /**
+   * Returns if the entry has outlived its freshness lifetime and is being served within its grace
+   * period. A stale entry retains its write time while it is being reloaded, so it expires at the
+   * end of the grace period even if the reload does not complete.
+   */
+  boolean isStale(Node<K, V> node, long now) {
+    return (now - node.getWriteTime()) > expiresAfterWriteNanos();
+  }
+
+  /**
+   * Attempts to claim the refresh of the entry's current value. A refresh is marked by advancing
+   * the write time into the future, whereas a stale entry's reload is recorded separately so that
+   * the entry does not outlive its grace period.
+   *
+   * @param node the entry in the cache to refresh
+   * @param keyReference the key reference of the entry
+   * @param oldWriteTime the write time of the value being refreshed
+   * @param refreshWriteTime the write time while the refresh is in flight
+   * @return if the caller should perform the refresh
+   */
+  boolean tryStartRefresh(Node<K, V> node, Object keyReference,
+      long oldWriteTime, long refreshWriteTime) {
+    if (revalidations == null) {
+      return node.casWriteTime(oldWriteTime, refreshWriteTime);
+    }
+    Long reloading = revalidations.putIfAbsent(keyReference, oldWriteTime);
+    if (reloading == null) {
+      return true;
+    }
+    // a reload of a previous value may not have completed, e.g. if it hangs
+    return (reloading != oldWriteTime)
+        && revalidations.replace(keyReference, reloading, oldWriteTime);
+  }
+
+  /** Releases the claim on the entry's refresh, allowing it to be retried if not replaced. */
+  void endRefresh(Node<K, V> node, Object keyReference, long oldWriteTime, long refreshWriteTime) {
+    if (revalidations == null) {
+      node.casWriteTime(refreshWriteTime, oldWriteTime);
+    } else {
+      revalidations.remove(keyReference, oldWriteTime);
+    }
+  }
+
   /**
    * Asynchronously refreshes the entry if eligible.
    *
@@ -1176,11 +1331,13 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
     K key;
     V oldValue;
+    Object keyReference = node.getKeyReference();
     long oldWriteTime = node.getWriteTime();
-    long refreshWriteTime = (now + ASYNC_EXPIRY);
-    if (((now - oldWriteTime) > refreshAfterWriteNanos())
+    long refreshWriteTime = servesStale ? oldWriteTime : (now + ASYNC_EXPIRY);
+    long freshness = servesStale ? expiresAfterWriteNanos() : refreshAfterWriteNanos();
+    if (((now - oldWriteTime) > freshness)
         && ((key = node.getKey()) != null) && ((oldValue = node.getValue()) != null)
-        && node.casWriteTime(oldWriteTime, refreshWriteTime)) {
+        && tryStartRefresh(node, keyReference, oldWriteTime, refreshWriteTime)) {
       try {
         CompletableFuture<V> refreshFuture;
         long startTime = statsTicker().read();
@@ -1194,7 +1351,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
             refreshFuture = refresh;
           } else {
             // no-op if load is pending
-            node.casWriteTime(refreshWriteTime, oldWriteTime);
+            endRefresh(node, keyReference, oldWriteTime, refreshWriteTime);
             return;
           }
         } else {
@@ -1206,7 +1363,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           long loadTime = statsTicker().read() - startTime;
           if (error != null) {
             logger.log(Level.WARNING, "Exception thrown during refresh", error);
-            node.casWriteTime(refreshWriteTime, oldWriteTime);
+            endRefresh(node, keyReference, oldWriteTime, refreshWriteTime);
             statsCounter().recordLoadFailure(loadTime);
             return;
           }
@@ -1224,6 +1381,9 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
             discard[0] = true;
             return currentValue;
           }, /* recordMiss */ false, /* recordLoad */ false, /* recordLoadFailure */ true);
+          if (revalidations != null) {
+            revalidations.remove(keyReference, oldWriteTime);
+          }
 
           if (discard[0] && hasRemovalListener()) {
             notifyRemoval(key, value, RemovalCause.REPLACED);
@@ -1235,7 +1395,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           }
         });
       } catch (Throwable t) {
-        node.casWriteTime(refreshWriteTime, oldWriteTime);
+        endRefresh(node, keyReference, oldWriteTime, refreshWriteTime);
         logger.log(Level.SEVERE, "Exception thrown when submitting refresh task", t);
       }
     }
@@ -1346,11 +1506,13 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
   }
 
   /**
-   * Performs the post-processing work required after a write.
+   * Performs the post-processing work required after a write. To avoid allocating a task for the
+   * common operations, a removal or an update that does not change the entry's weight is
+   * represented by the node itself (see {@link #onWrite(Object)}).
    *
-   * @param task the pending operation to be applied
+   * @param task the pending operation to be applied, either a {@link Runnable} or the node
    */
-  void afterWrite(Runnable task) {
+  void afterWrite(Object task) {
     if (buffersWrites()) {
       for (int i = 0; i < WRITE_BUFFER_RETRIES; i++) {
         if (writeBuffer().offer(task)) {
@@ -1373,6 +1535,39 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
   }
 
+  /**
+   * Adds the pending write to the bulk operation's batch, if present, so that the writes are
+   * published to the policy together. Otherwise the write is published immediately. A batched add
+   * may be applied after a concurrent update or removal of the same entry, which the policy already
+   * tolerates for writes that race across threads (see {@link #makeDead} and {@link AddTask}).
+   *
+   * @param task the pending operation to be applied to the page replacement policy
+   * @param batch the pending writes of a bulk operation, or null if not batched
+   */
+  void afterWrite(Object task, @Nullable List<Object> batch) {
+    if (batch == null) {
+      afterWrite(task);
+      return;
+    }
+    batch.add(task);
+    if (batch.size() == WRITE_BUFFER_MAX) {
+      afterWrites(batch);
+    }
+  }
+
+  /**
+   * Publishes the bulk operation's pending writes as a single task, so that the write buffer and
+   * the maintenance work are contended on once rather than for every entry.
+   *
+   * @param batch the pending writes of a bulk operation
+   */
+  void afterWrites(List<Object> batch) {
+    if (!batch.isEmpty()) {
+      afterWrite(new BatchedWriteTask(batch.toArray()));
+      batch.clear();
+    }
+  }
+
   /**
    * Conditionally schedules the asynchronous maintenance task after a write operation. If the
    * task status was IDLE or REQUIRED then the maintenance task is scheduled immediately. If it
@@ -1442,7 +1637,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
    *
    * @param task an additional pending task to run, or {@code null} if not present
    */
-  void performCleanUp(@Nullable Runnable task) {
+  void performCleanUp(@Nullable Object task) {
     evictionLock.lock();
     try {
       maintenance(task);
@@ -1462,7 +1657,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
    * @param task an additional pending task to run, or {@code null} if not present
    */
   @GuardedBy("evictionLock")
-  void maintenance(@Nullable Runnable task) {
+  void maintenance(@Nullable Object task) {
     lazySetDrainStatus(PROCESSING_TO_IDLE);
 
     try {
@@ -1470,7 +1665,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
       drainWriteBuffer();
       if (task != null) {
-        task.run();
+        onWrite(task);
       }
 
       drainKeyReferences();
@@ -1480,6 +1675,10 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       evictEntries();
 
       climb();
+
+      if (statsWindow != null) {
+        statsWindow.tick();
+      }
     } finally {
       if ((drainStatus() != PROCESSING_TO_IDLE) || !casDrainStatus(PROCESSING_TO_IDLE, IDLE)) {
         lazySetDrainStatus(REQUIRED);
@@ -1536,6 +1735,9 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
         return;
       }
       frequencySketch().increment(key);
+      if (hitRateCurve != null) {
+        hitRateCurve.record(key);
+      }
       if (node.inWindow()) {
         reorder(accessOrderWindowDeque(), node);
       } else if (node.inMainProbation()) {
@@ -1552,6 +1754,21 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
   }
 
+  /**
+   * Updates the node's location in the page replacement policy for a sampled read. A read of an
+   * entry whose frequency is saturated is weighted by the sampling rate in the hit rate sample, so
+   * that the skipped reads do not bias the adaptive window sizing. This assumes that the entry was
+   * saturated when read, which may not be true if the sketch was aged in the interim.
+   */
+  @GuardedBy("evictionLock")
+  void onSampledAccess(Node<K, V> node) {
+    K key = node.getKey();
+    if ((key != null) && frequencySketch().isSaturated(key)) {
+      setHitsInSample(hitsInSample() + READ_SAMPLE_RATE - 1);
+    }
+    onAccess(node);
+  }
+
   /** Promote the node from probation to protected on an access. */
   @GuardedBy("evictionLock")
   void reorderProbation(Node<K, V> node) {
@@ -1587,14 +1804,10 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       return;
     }
 
-    for (int i = 0; i < WRITE_BUFFER_MAX; i++) {
-      Runnable task = writeBuffer().poll();
-      if (task == null) {
-        return;
-      }
-      task.run();
+    int drained = writeBuffer().drain(this::onWrite, WRITE_BUFFER_MAX);
+    if (drained == WRITE_BUFFER_MAX) {
+      lazySetDrainStatus(PROCESSING_TO_REQUIRED);
     }
-    lazySetDrainStatus(PROCESSING_TO_REQUIRED);
   }
 
   /**
@@ -1620,10 +1833,23 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
         }
         setWeightedSize(weightedSize() - node.getWeight());
       }
+      if (node.isAlive()) {
+        discardRevalidation(node);
+      }
       node.die();
     }
   }
 
+  /**
+   * Discards the claim on the reload of a stale entry that is being removed, as the reload may
+   * never complete and its result would not be inserted.
+   */
+  void discardRevalidation(Node<K, V> node) {
+    if (revalidations != null) {
+      revalidations.remove(node.getKeyReference());
+    }
+  }
+
   /** Adds the node to the page replacement policy. */
   final class AddTask implements Runnable {
     final Node<K, V> node;
@@ -1654,6 +1880,9 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
         K key = node.getKey();
         if (key != null) {
           frequencySketch().increment(key);
+          if (hitRateCurve != null) {
+            hitRateCurve.record(key);
+          }
         }
 
         setMissesInSample(missesInSample() + 1);
@@ -1690,36 +1919,84 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
   }
 
-  /** Removes a node from the page replacement policy. */
-  final class RemovalTask implements Runnable {
-    final Node<K, V> node;
-
-    RemovalTask(Node<K, V> node) {
-      this.node = node;
+  /**
+   * Applies a pending write operation. A node represents an operation that did not require any
+   * additional state: if the entry is still alive then it was updated without changing its weight,
+   * otherwise it was removed. The removal may be applied before its own operation is drained if an
+   * earlier update of the node is pending, in which case the removal's operation has no effect.
+   *
+   * @param task the pending operation, either a {@link Runnable} or a node
+   */
+  @GuardedBy("evictionLock")
+  @SuppressWarnings("unchecked")
+  void onWrite(Object task) {
+    if (task instanceof Node<?, ?>) {
+      Node<K, V> node = (Node<K, V>) task;
+      boolean isAlive;
+      synchronized (node) {
+        isAlive = node.isAlive();
+      }
+      if (isAlive) {
+        onUpdate(node, /* weightDifference */ 0);
+      } else {
+        onRemoval(node);
+      }
+    } else {
+      ((Runnable) task).run();
     }
+  }
 
-    @Override
-    @GuardedBy("evictionLock")
-    public void run() {
-      // add may not have been processed yet
-      if (node.inWindow() && (evicts() || expiresAfterAccess())) {
-        accessOrderWindowDeque().remove(node);
-      } else if (evicts()) {
-        if (node.inMainProbation()) {
-          accessOrderProbationDeque().remove(node);
-        } else {
-          accessOrderProtectedDeque().remove(node);
-        }
+  /** Removes a node from the page replacement policy. */
+  @GuardedBy("evictionLock")
+  void onRemoval(Node<K, V> node) {
+    // add may not have been processed yet
+    if (node.inWindow() && (evicts() || expiresAfterAccess())) {
+      accessOrderWindowDeque().remove(node);
+    } else if (evicts()) {
+      if (node.inMainProbation()) {
+        accessOrderProbationDeque().remove(node);
+      } else {
+        accessOrderProtectedDeque().remove(node);
       }
-      if (expiresAfterWrite()) {
-        writeOrderDeque().remove(node);
-      } else if (expiresVariable()) {
-        timerWheel().deschedule(node);
+    }
+    if (expiresAfterWrite()) {
+      writeOrderDeque().remove(node);
+    } else if (expiresVariable()) {
+      timerWheel().deschedule(node);
+    }
+    makeDead(node);
+  }
+
+  /** Updates the weighted size and reorders the node in the policy. */
+  @GuardedBy("evictionLock")
+  void onUpdate(Node<K, V> node, int weightDifference) {
+    if (evicts()) {
+      if (node.inWindow()) {
+        setWindowWeightedSize(windowWeightedSize() + weightDifference);
+      } else if (node.inMainProtected()) {
+        setMainProtectedWeightedSize(mainProtectedMaximum() + weightDifference);
       }
-      makeDead(node);
+      setWeightedSize(weightedSize() + weightDifference);
+      node.setPolicyWeight(node.getPolicyWeight() + weightDifference);
+    }
+    if (evicts() || expiresAfterAccess()) {
+      onAccess(node);
+    }
+    if (expiresAfterWrite()) {
+      reorder(writeOrderDeque(), node);
+    } else if (expiresVariable()) {
+      timerWheel().reschedule(node);
     }
   }
 
+  /**
+   * Returns the pending operation to update the node's entry, which is only allocated if the
+   * entry's weight changed.
+   */
+  Object newUpdateTask(Node<K, V> node, int weightDifference) {
+    return (weightDifference == 0) ? node : new UpdateTask(node, weightDifference);
+  }
+
   /** Updates the weighted size. */
   final class UpdateTask implements Runnable {
     final int weightDifference;
@@ -1733,22 +2010,23 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     @Override
     @GuardedBy("evictionLock")
     public void run() {
-      if (evicts()) {
-        if (node.inWindow()) {
-          setWindowWeightedSize(windowWeightedSize() + weightDifference);
-        } else if (node.inMainProtected()) {
-          setMainProtectedWeightedSize(mainProtectedMaximum() + weightDifference);
-        }
-        setWeightedSize(weightedSize() + weightDifference);
-        node.setPolicyWeight(node.getPolicyWeight() + weightDifference);
-      }
-      if (evicts() || expiresAfterAccess()) {
-        onAccess(node);
-      }
-      if (expiresAfterWrite()) {
-        reorder(writeOrderDeque(), node);
-      } else if (expiresVariable()) {
-        timerWheel().reschedule(node);
+      onUpdate(node, weightDifference);
+    }
+  }
+
+  /** Applies the pending writes of a bulk operation. */
+  final class BatchedWriteTask implements Runnable {
+    final Object[] tasks;
+
+    BatchedWriteTask(Object[] tasks) {
+      this.tasks = tasks;
+    }
+
+    @Override
+    @GuardedBy("evictionLock")
+    public void run() {
+      for (Object task : tasks) {
+        onWrite(task);
       }
     }
   }
@@ -1773,14 +2051,15 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
   @Override
   @SuppressWarnings("FutureReturnValueIgnored")
   public void clear() {
+    invalidateAllPending();
     evictionLock.lock();
     try {
       long now = expirationTicker().read();
 
       // Apply all pending writes
-      Runnable task;
+      Object task;
       while (buffersWrites() && (task = writeBuffer().poll()) != null) {
-        task.run();
+        onWrite(task);
       }
 
       // Discard all entries
@@ -1921,6 +2200,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
 
     int misses = 0;
+    int staleHits = 0;
     long now = expirationTicker().read();
     Map<Object, Object> result = new LinkedHashMap<>(uniqueKeys.size());
     for (Object key : uniqueKeys) {
@@ -1937,11 +2217,17 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           tryExpireAfterRead(node, castedKey, value, expiry(), now);
           setAccessTime(node, now);
         }
+        if (servesStale && isStale(node, now)) {
+          staleHits++;
+        }
         afterRead(node, now, /* recordHit */ false);
       }
     }
     statsCounter().recordMisses(misses);
     statsCounter().recordHits(result.size());
+    if (staleHits != 0) {
+      statsCounter().recordStaleHits(staleHits);
+    }
 
     @SuppressWarnings("unchecked")
     Map<K, V> castedResult = (Map<K, V>) result;
@@ -1975,8 +2261,21 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
    * @return the prior value in or null if no mapping was found
    */
   @Nullable V put(K key, V value, Expiry<K, V> expiry, boolean notifyWriter, boolean onlyIfAbsent) {
+    return put(key, value, expiry, notifyWriter, onlyIfAbsent, /* batch */ null);
+  }
+
+  /**
+   * Adds a node to the policy and the data store, as described by
+   * {@link #put(Object, Object, Expiry, boolean, boolean)}, and adds the pending write to the
+   * batch if one is provided.
+   */
+  @Nullable V put(K key, V value, Expiry<K, V> expiry, boolean notifyWriter,
+      boolean onlyIfAbsent, @Nullable List<Object> batch) {
     requireNonNull(key);
     requireNonNull(value);
+    if (!onlyIfAbsent) {
+      invalidatePending(key);
+    }
 
     Node<K, V> node = null;
     long now = expirationTicker().read();
@@ -1996,13 +2295,13 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
             return computed;
           });
           if (prior == node) {
-            afterWrite(new AddTask(node, newWeight));
+            afterWrite(new AddTask(node, newWeight), batch);
             return null;
           }
         } else {
           prior = data.putIfAbsent(node.getKeyReference(), node);
           if (prior == null) {
-            afterWrite(new AddTask(node, newWeight));
+            afterWrite(new AddTask(node, newWeight), batch);
             return null;
           }
         }
@@ -2061,9 +2360,9 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
       int weightedDifference = mayUpdate ? (newWeight - oldWeight) : 0;
       if ((oldValue == null) || (weightedDifference != 0) || expired) {
-        afterWrite(new UpdateTask(prior, weightedDifference));
+        afterWrite(newUpdateTask(prior, weightedDifference), batch);
       } else if (!onlyIfAbsent && expiresAfterWrite() && withinTolerance) {
-        afterWrite(new UpdateTask(prior, weightedDifference));
+        afterWrite(newUpdateTask(prior, weightedDifference), batch);
       } else {
         if (mayUpdate) {
           setWriteTime(prior, now);
@@ -2075,20 +2374,58 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
   }
 
+  @Override
+  public void putAll(Map<? extends K, ? extends V> map) {
+    if (!buffersWrites()) {
+      map.forEach(this::put);
+      return;
+    }
+    List<Object> batch = new ArrayList<>(Math.min(map.size(), WRITE_BUFFER_MAX));
+    try {
+      map.forEach((key, value) ->
+          put(key, value, expiry(), /* notifyWriter */ true, /* onlyIfAbsent */ false, batch));
+    } finally {
+      afterWrites(batch);
+    }
+  }
+
   @Override
   public @Nullable V remove(Object key) {
+    invalidatePending(key);
     return hasWriter()
-        ? removeWithWriter(key)
-        : removeNoWriter(key);
+        ? removeWithWriter(key, /* batch */ null)
+        : removeNoWriter(key, /* batch */ null);
+  }
+
+  @Override
+  public void invalidateAll(Iterable<?> keys) {
+    if (!buffersWrites()) {
+      LocalCache.super.invalidateAll(keys);
+      return;
+    }
+    invalidateAllPending(keys);
+    List<Object> batch = new ArrayList<>();
+    try {
+      for (Object key : keys) {
+        if (hasWriter()) {
+          removeWithWriter(key, batch);
+        } else {
+          removeNoWriter(key, batch);
+        }
+      }
+    } finally {
+      afterWrites(batch);
+    }
   }
 
   /**
    * Removes the mapping for a key without notifying the writer.
    *
    * @param key key whose mapping is to be removed
+   * @param batch the pending writes of a bulk operation, or null if not batched
    * @return the removed value or null if no mapping was found
    */
-  @Nullable V removeNoWriter(Object key) {
+  @Nullable V removeNoWriter(Object key, @Nullable List<Object> batch) {
     Node<K, V> node = data.remove(nodeFactory.newLookupKey(key));
     if (node == null) {
       return null;
@@ -2098,6 +2435,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     synchronized (node) {
       oldValue = node.getValue();
       if (node.isAlive()) {
+        discardRevalidation(node);
         node.retire();
       }
     }
@@ -2116,7 +2454,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       K castKey = (K) key;
       notifyRemoval(castKey, oldValue, cause);
     }
-    afterWrite(new RemovalTask(node));
+    afterWrite(node, batch);
     return (cause == RemovalCause.EXPLICIT) ? oldValue : null;
   }
 
@@ -2124,9 +2462,10 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
    * Removes the mapping for a key after notifying the writer.
    *
    * @param key key whose mapping is to be removed
+   * @param batch the pending writes of a bulk operation, or null if not batched
    * @return the removed value or null if no mapping was found
    */
-  @Nullable V removeWithWriter(Object key) {
+  @Nullable V removeWithWriter(Object key, @Nullable List<Object> batch) {
     @SuppressWarnings("unchecked")
     K castKey = (K) key;
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -2146,6 +2485,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           cause[0] = RemovalCause.EXPLICIT;
         }
         writer.delete(castKey, oldValue[0], cause[0]);
+        discardRevalidation(n);
         n.retire();
       }
       node[0] = n;
@@ -2153,7 +2493,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     });
 
     if (cause[0] != null) {
-      afterWrite(new RemovalTask(node[0]));
+      afterWrite(node[0], batch);
       if (hasRemovalListener()) {
         notifyRemoval(castKey, oldValue[0], cause[0]);
       }
@@ -2167,6 +2507,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     if (value == null) {
       return false;
     }
+    invalidatePending(key);
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     Node<K, V>[] removed = new Node[1];
@@ -2191,6 +2532,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
         }
         writer.delete(oldKey[0], oldValue[0], cause[0]);
         removed[0] = node;
+        discardRevalidation(node);
         node.retire();
         return null;
       }
@@ -2201,7 +2543,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     } else if (hasRemovalListener()) {
       notifyRemoval(oldKey[0], oldValue[0], cause[0]);
     }
-    afterWrite(new RemovalTask(removed[0]));
+    afterWrite(removed[0]);
     return (cause[0] == RemovalCause.EXPLICIT);
   }
 
@@ -2248,7 +2590,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
     int weightedDifference = (weight - oldWeight[0]);
     if (expiresAfterWrite() || (weightedDifference != 0)) {
-      afterWrite(new UpdateTask(node, weightedDifference));
+      afterWrite(newUpdateTask(node, weightedDifference));
     } else {
       afterRead(node, now[0], /* recordHit */ false);
     }
@@ -2304,7 +2646,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
     int weightedDifference = (weight - oldWeight[0]);
     if (expiresAfterWrite() || (weightedDifference != 0)) {
-      afterWrite(new UpdateTask(node, weightedDifference));
+      afterWrite(newUpdateTask(node, weightedDifference));
     } else {
       afterRead(node, now[0], /* recordHit */ false);
     }
@@ -2315,6 +2657,59 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     return true;
   }
 
+  /**
+   * Replaces the node's value if it is still associated with the {@code expectedValue} instance.
+   * Unlike {@link #replace(Object, Object, Object)}, the hash table's bin is not locked because the
+   * node was already found and is updated in place, as done by {@link #put} for an existing entry.
+   *
+   * @param key key with which the specified value is associated
+   * @param node the entry that was read
+   * @param expectedValue the value instance that was read from the entry
+   * @param newValue value to be associated with the specified key
+   * @return if the value was replaced
+   */
+  boolean replaceIfVersion(K key, Node<K, V> node, V expectedValue, V newValue) {
+    long now;
+    int oldWeight;
+    boolean withinTolerance;
+    int weight = weigher.weigh(key, newValue);
+    synchronized (node) {
+      if (!node.isAlive()) {
+        return false;
+      }
+      requireArgument(nodeFactory.newLookupKey(key).equals(node.getKeyReference()),
+          "The stamp was read for a different key");
+      if ((node.getValue() != expectedValue) || hasExpired(node, now = expirationTicker().read())) {
+        return false;
+      }
+
+      long varTime = expireAfterUpdate(node, key, newValue, expiry(), now);
+      if (newValue != expectedValue) {
+        writer.write(key, newValue);
+      }
+      withinTolerance = ((now - node.getWriteTime()) > EXPIRE_WRITE_TOLERANCE);
+      oldWeight = node.getWeight();
+      node.setValue(newValue, valueReferenceQueue());
+      node.setWeight(weight);
+
+      setVariableTime(node, varTime);
+      setAccessTime(node, now);
+      setWriteTime(node, now);
+    }
+
+    int weightedDifference = (weight - oldWeight);
+    if ((weightedDifference != 0) || (expiresAfterWrite() && withinTolerance)) {
+      afterWrite(newUpdateTask(node, weightedDifference));
+    } else {
+      afterRead(node, now, /* recordHit */ false);
+    }
+
+    if (hasRemovalListener() && (expectedValue != newValue)) {
+      notifyRemoval(key, expectedValue, RemovalCause.REPLACED);
+    }
+    return true;
+  }
+
   @Override
   public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
     requireNonNull(function);
@@ -2405,6 +2800,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
         newValue[0] = mappingFunction.apply(key);
         if (newValue[0] == null) {
           removed[0] = n;
+          discardRevalidation(n);
           n.retire();
           return null;
         }
@@ -2422,7 +2818,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
     if (node == null) {
       if (removed[0] != null) {
-        afterWrite(new RemovalTask(removed[0]));
+        afterWrite(removed[0]);
       }
       return null;
     }
@@ -2445,7 +2841,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       afterWrite(new AddTask(node, weight[1]));
     } else {
       int weightedDifference = (weight[1] - weight[0]);
-      afterWrite(new UpdateTask(node, weightedDifference));
+      afterWrite(newUpdateTask(node, weightedDifference));
     }
 
     return newValue[0];
@@ -2467,6 +2863,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       scheduleDrainBuffers();
       return null;
     }
+    invalidatePending(key);
 
     BiFunction<? super K, ? super V, ? extends V> statsAwareRemappingFunction =
         statsAware(remappingFunction, /* recordMiss */ false,
@@ -2480,6 +2877,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       boolean recordMiss, boolean recordLoad, boolean recordLoadFailure) {
     requireNonNull(key);
     requireNonNull(remappingFunction);
+    invalidatePending(key);
 
     long[] now = { expirationTicker().read() };
     Object keyRef = nodeFactory.newReferenceKey(key, keyReferenceQueue());
@@ -2494,6 +2892,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     requireNonNull(key);
     requireNonNull(value);
     requireNonNull(remappingFunction);
+    invalidatePending(key);
 
     long[] now = { expirationTicker().read() };
     Object keyRef = nodeFactory.newReferenceKey(key, keyReferenceQueue());
@@ -2562,6 +2961,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           writer.delete(nodeKey[0], oldValue[0], cause[0]);
           if (!computeIfAbsent) {
             removed[0] = n;
+            discardRevalidation(n);
             n.retire();
             return null;
           }
@@ -2574,6 +2974,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
             cause[0] = RemovalCause.EXPLICIT;
           }
           removed[0] = n;
+          discardRevalidation(n);
           n.retire();
           return null;
         }
@@ -2607,7 +3008,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     }
 
     if (removed[0] != null) {
-      afterWrite(new RemovalTask(removed[0]));
+      afterWrite(removed[0]);
     } else if (node == null) {
       // absent and not computable
     } else if ((oldValue[0] == null) && (cause[0] == null)) {
@@ -2615,7 +3016,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     } else {
       int weightedDifference = weight[1] - weight[0];
       if (expiresAfterWrite() || (weightedDifference != 0)) {
-        afterWrite(new UpdateTask(node, weightedDifference));
+        afterWrite(newUpdateTask(node, weightedDifference));
       } else {
         if (cause[0] == null) {
           if (!isComputingAsync(node)) {
@@ -3352,6 +3753,21 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     proxy.weakValues = cache.nodeFactory.weakValues();
     proxy.softValues = cache.nodeFactory.softValues();
     proxy.isRecordingStats = cache.isRecordingStats();
+    proxy.isRecordingHitRateCurve = (cache.hitRateCurve != null);
+    proxy.isSamplingReads = cache.sampleReads;
+    proxy.usesAdmissionDoorkeeper = cache.evicts() && cache.frequencySketch().useDoorkeeper;
+    if (cache.bulkLoadPartitioner != null) {
+      proxy.bulkLoadBatchSize = cache.bulkLoadPartitioner.batchSize;
+      proxy.bulkLoadParallelism = cache.bulkLoadPartitioner.parallelism;
+    }
+    if (cache.negativeCache != null) {
+      proxy.negativeMaximumSize = cache.negativeCache.maximumSize;
+      proxy.negativeExpiresAfterWriteNanos = cache.negativeCache.expiresAfterWriteNanos;
+    }
+    proxy.loadsOutsideOfLock = (cache.pendingLoads != null);
+    if (cache.climber != null) {
+      proxy.windowSizing = cache.climber.type;
+    }
     proxy.removalListener = cache.removalListener();
     proxy.ticker = cache.expirationTicker();
     proxy.writer = cache.writer;
@@ -3361,6 +3777,9 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     if (cache.expiresAfterWrite()) {
       proxy.expiresAfterWriteNanos = cache.expiresAfterWriteNanos();
     }
+    if (cache.servesStale) {
+      proxy.staleWhileRevalidateNanos = cache.staleWhileRevalidateNanos;
+    }
     if (cache.expiresVariable()) {
       proxy.expiry = cache.expiry();
     }
@@ -3426,6 +3845,8 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     @Nullable Optional<Expiration<K, V>> afterWrite;
     @Nullable Optional<Expiration<K, V>> afterAccess;
     @Nullable Optional<VarExpiration<K, V>> variable;
+    @Nullable Optional<Admission> admission;
+    @Nullable Optional<Versioning<K, V>> versioning;
 
     BoundedPolicy(BoundedLocalCache<K, V> cache, Function<V, V> transformer, boolean isWeighted) {
       this.transformer = transformer;
@@ -3466,13 +3887,31 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           : variable;
     }
     @Override public Optional<Expiration<K, V>> refreshAfterWrite() {
-      if (!cache.refreshAfterWrite()) {
+      if (!cache.refreshAfterWrite() || cache.servesStale) {
         return Optional.empty();
       }
       return (refreshes == null)
           ? (refreshes = Optional.of(new BoundedRefreshAfterWrite()))
           : refreshes;
     }
+    @Override public Optional<RecentStats> recentStats() {
+      return (cache.statsWindow == null)
+          ? Optional.empty()
+          : Optional.of(cache.statsWindow.sample());
+    }
+    @Override public Optional<Admission> admission() {
+      return cache.evicts()
+          ? (admission == null) ? (admission = Optional.of(new BoundedAdmission())) : admission
+          : Optional.empty();
+    }
+    @Override public Optional<Versioning<K, V>> versioning() {
+      if (cache.isAsync) {
+        return Optional.empty();
+      }
+      return (versioning == null)
+          ? (versioning = Optional.of(new BoundedVersioning()))
+          : versioning;
+    }
 
     final class BoundedEviction implements Eviction<K, V> {
       @Override public boolean isWeighted() {
@@ -3519,6 +3958,18 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           cache.evictionLock.unlock();
         }
       }
+      @Override public OptionalDouble estimatedHitRate(double factor) {
+        HitRateCurve hitRateCurve = cache.hitRateCurve;
+        if (hitRateCurve == null) {
+          return OptionalDouble.empty();
+        }
+        cache.evictionLock.lock();
+        try {
+          return OptionalDouble.of(hitRateCurve.estimate(factor));
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
       @Override public Map<K, V> coldest(int limit) {
         return cache.evictionOrder(limit, transformer, /* hottest */ false);
       }
@@ -3527,6 +3978,112 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
       }
     }
 
+    final class BoundedAdmission implements Admission {
+      @Override public long windowMaximum() {
+        cache.evictionLock.lock();
+        try {
+          return cache.windowMaximum();
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+      @Override public long mainProtectedMaximum() {
+        cache.evictionLock.lock();
+        try {
+          return cache.mainProtectedMaximum();
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+      @Override public long adjustment() {
+        cache.evictionLock.lock();
+        try {
+          return cache.adjustment();
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+      @Override public double stepSize() {
+        cache.evictionLock.lock();
+        try {
+          return cache.stepSize();
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+      @Override public double sketchSaturation() {
+        cache.evictionLock.lock();
+        try {
+          return cache.frequencySketch().saturation();
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+      @Override public long sketchResetCount() {
+        cache.evictionLock.lock();
+        try {
+          return cache.frequencySketch().resetCount();
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+      @Override public long admittedCount() {
+        cache.evictionLock.lock();
+        try {
+          return cache.admittedCount;
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+      @Override public long rejectedCount() {
+        cache.evictionLock.lock();
+        try {
+          return cache.rejectedCount;
+        } finally {
+          cache.evictionLock.unlock();
+        }
+      }
+    }
+
+    final class BoundedVersioning implements Versioning<K, V> {
+      @Override public Optional<Versioned<V>> getVersioned(K key) {
+        requireNonNull(key);
+        V value;
+        Node<K, V> node = cache.data.get(cache.nodeFactory.newLookupKey(key));
+        if ((node == null) || ((value = node.getValue()) == null)
+            || cache.hasExpired(node, cache.expirationTicker().read())) {
+          return Optional.empty();
+        }
+        return Optional.of(new BoundedVersioned<>(cache, node, value));
+      }
+      @Override public boolean replaceIfVersion(K key, Versioned<V> versioned, V value) {
+        requireNonNull(key);
+        requireNonNull(value);
+        requireNonNull(versioned);
+        requireArgument((versioned instanceof BoundedVersioned<?, ?>)
+            && (((BoundedVersioned<?, ?>) versioned).cache == cache),
+            "The stamp was not read from this cache");
+        @SuppressWarnings("unchecked")
+        BoundedVersioned<K, V> stamp = (BoundedVersioned<K, V>) versioned;
+        return cache.replaceIfVersion(key, stamp.node, stamp.value, value);
+      }
+    }
+
+    static final class BoundedVersioned<K, V> implements Versioned<V> {
+      final BoundedLocalCache<K, V> cache;
+      final Node<K, V> node;
+      final V value;
+
+      BoundedVersioned(BoundedLocalCache<K, V> cache, Node<K, V> node, V value) {
+        this.cache = cache;
+        this.node = node;
+        this.value = value;
+      }
+      @Override public V value() {
+        return value;
+      }
+    }
+
     @SuppressWarnings("PreferJavaTimeOverload")
     final class BoundedExpireAfterAccess implements Expiration<K, V> {
       @Override public OptionalLong ageOf(K key, TimeUnit unit) {
@@ -3569,7 +4126,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
           return OptionalLong.empty();
         }
         long age = cache.expirationTicker().read() - node.getWriteTime();
-        return (age > cache.expiresAfterWriteNanos())
+        return (age > cache.writeLifetimeNanos())
             ? OptionalLong.empty()
             : OptionalLong.of(unit.convert(age, TimeUnit.NANOSECONDS));
       }
@@ -3749,7 +4306,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
     Object writeReplace() {
       @SuppressWarnings("unchecked")
       SerializationProxy<K, V> proxy = (SerializationProxy<K, V>) super.writeReplace();
-      if (cache.refreshAfterWrite()) {
+      if (cache.refreshAfterWrite() && !cache.servesStale) {
         proxy.refreshAfterWriteNanos = cache.refreshAfterWriteNanos();
       }
       proxy.loader = cache.cacheLoader;
@@ -3811,7 +4368,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
     Object writeReplace() {
       SerializationProxy<K, V> proxy = makeSerializationProxy(cache, isWeighted);
-      if (cache.refreshAfterWrite()) {
+      if (cache.refreshAfterWrite() && !cache.servesStale) {
         proxy.refreshAfterWriteNanos = cache.refreshAfterWriteNanos();
       }
       proxy.async = true;
@@ -3833,10 +4390,10 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
     @SuppressWarnings("unchecked")
     BoundedLocalAsyncLoadingCache(Caffeine<K, V> builder, AsyncCacheLoader<? super K, V> loader) {
-      super(loader);
+      super(builder, loader);
       isWeighted = builder.isWeighted();
       cache = (BoundedLocalCache<K, CompletableFuture<V>>) LocalCacheFactory
-          .newBoundedLocalCache(builder, new AsyncLoader<>(loader, builder), /* async */ true);
+          .newBoundedLocalCache(builder, new AsyncLoader<>(timedLoader, builder), /* async */ true);
     }
 
     @Override
@@ -3869,7 +4426,7 @@ abstract class BoundedLocalCache<K, V> extends BLCHeader.DrainStatusRef<K, V>
 
     Object writeReplace() {
       SerializationProxy<K, V> proxy = makeSerializationProxy(cache, isWeighted);
-      if (cache.refreshAfterWrite()) {
+      if (cache.refreshAfterWrite() && !cache.servesStale) {
         proxy.refreshAfterWriteNanos = cache.refreshAfterWriteNanos();
       }
       proxy.loader = loader;
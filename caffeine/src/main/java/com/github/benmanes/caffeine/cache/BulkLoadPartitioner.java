@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.cache.Caffeine.requireArgument;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A strategy that splits the keys of a bulk load into bounded batches and loads them with a limited
+ * concurrency. The batches are assigned round-robin to lanes, up to the parallelism, and each lane
+ * starts its next batch after its previous one completes. This allows the loaded entries to be
+ * inserted as each batch completes while bounding the load on the backing resource.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class BulkLoadPartitioner {
+  final int batchSize;
+  final int parallelism;
+
+  BulkLoadPartitioner(int batchSize, int parallelism) {
+    requireArgument(batchSize > 0, "batch size must be positive: %s", batchSize);
+    requireArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+    this.parallelism = parallelism;
+    this.batchSize = batchSize;
+  }
+
+  /** Returns if the number of keys requires more than one batch. */
+  boolean shouldPartition(int size) {
+    return (size > batchSize);
+  }
+
+  /** Returns the elements split into consecutive batches of at most the batch size. */
+  <E> List<List<E>> partition(Collection<E> elements) {
+    if (elements.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<E> list = new ArrayList<>(elements);
+    List<List<E>> batches = new ArrayList<>(1 + (list.size() - 1) / batchSize);
+    for (int i = 0; i < list.size(); i += batchSize) {
+      batches.add(Collections.unmodifiableList(
+          list.subList(i, Math.min(list.size(), i + batchSize))));
+    }
+    return batches;
+  }
+
+  /**
+   * Performs the action for every batch, where at most the parallelism are in progress at a time.
+   * The first batch of each lane is started by the calling thread and the subsequent batches by the
+   * thread that completes the lane's previous batch. A batch that fails does not prevent the others
+   * from being performed.
+   *
+   * @param batches the batches to perform the action on
+   * @param action the asynchronous operation to perform on a batch
+   * @return a future that completes when all of the batches have completed, and which fails with
+   *         the first error if any of the batches failed
+   */
+  <E> CompletableFuture<Void> forEach(List<List<E>> batches,
+      Function<List<E>, CompletableFuture<?>> action) {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    int lanes = Math.min(parallelism, batches.size());
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[lanes];
+    for (int lane = 0; lane < lanes; lane++) {
+      CompletableFuture<?> future = CompletableFuture.completedFuture(null);
+      for (int i = lane; i < batches.size(); i += lanes) {
+        List<E> batch = batches.get(i);
+        future = future.thenCompose(ignored -> {
+          CompletableFuture<?> result;
+          try {
+            result = action.apply(batch);
+          } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+            return CompletableFuture.completedFuture(null);
+          }
+          return result.handle((r, error) -> {
+            if (error != null) {
+              failure.compareAndSet(null, error);
+            }
+            return null;
+          });
+        });
+      }
+      futures[lane] = future;
+    }
+    return CompletableFuture.allOf(futures).thenCompose(ignored -> {
+      Throwable error = failure.get();
+      if (error == null) {
+        return CompletableFuture.completedFuture(null);
+      }
+      CompletableFuture<Void> failed = new CompletableFuture<>();
+      failed.completeExceptionally(error);
+      return failed;
+    });
+  }
+
+  /**
+   * Performs the action for every batch and waits for them to complete, where at most the
+   * parallelism are in progress at a time. The calling thread and up to the parallelism less one
+   * tasks on the executor claim the batches in order, so the calling thread does not wait while a
+   * batch remains unclaimed. A task that is queued behind the calling thread, such as when it runs
+   * on a saturated bounded executor, finds no remaining work when it runs rather than deadlocking.
+   * A batch that fails does not prevent the others from being performed, and the first failure is
+   * rethrown after all of them have completed.
+   *
+   * @param batches the batches to perform the action on
+   * @param action the operation to perform on a batch
+   * @param executor the executor to fan out the additional tasks to
+   */
+  <E> void forEachBlocking(List<List<E>> batches, Consumer<List<E>> action, Executor executor) {
+    if (batches.isEmpty()) {
+      return;
+    }
+    AtomicInteger next = new AtomicInteger();
+    AtomicInteger remaining = new AtomicInteger(batches.size());
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    Runnable worker = () -> {
+      int index;
+      while ((index = next.getAndIncrement()) < batches.size()) {
+        try {
+          action.accept(batches.get(index));
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+        if (remaining.decrementAndGet() == 0) {
+          done.complete(null);
+        }
+      }
+    };
+
+    int helpers = Math.min(parallelism, batches.size()) - 1;
+    for (int i = 0; i < helpers; i++) {
+      try {
+        executor.execute(worker);
+      } catch (RejectedExecutionException e) {
+        break;
+      }
+    }
+    worker.run();
+    done.join();
+
+    Throwable error = failure.get();
+    if (error instanceof RuntimeException) {
+      throw (RuntimeException) error;
+    } else if (error instanceof Error) {
+      throw (Error) error;
+    } else if (error != null) {
+      throw new CompletionException(error);
+    }
+  }
+}
@@ -31,6 +31,7 @@ import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -148,14 +149,25 @@ public final class Caffeine<K, V> {
   static final int DEFAULT_REFRESH_NANOS = 0;
 
   boolean strictParsing = true;
+  boolean recordHitRateCurve;
+  boolean sampleReads;
+  boolean admissionDoorkeeper;
+  boolean loadsOutsideOfLock;
 
   long maximumSize = UNSET_INT;
   long maximumWeight = UNSET_INT;
   int initialCapacity = UNSET_INT;
+  int bulkLoadBatchSize = UNSET_INT;
+  int bulkLoadParallelism = UNSET_INT;
+  long negativeMaximumSize = UNSET_INT;
+  long negativeExpireAfterWriteNanos = UNSET_INT;
 
   long refreshNanos = UNSET_INT;
+  long staleWhileRevalidateNanos = UNSET_INT;
   long expireAfterWriteNanos = UNSET_INT;
   long expireAfterAccessNanos = UNSET_INT;
+  long asyncLoadTimeoutNanos = UNSET_INT;
+  long hedgeAsyncLoadNanos = UNSET_INT;
 
   @Nullable RemovalListener<? super K, ? super V> removalListener;
   @Nullable Supplier<StatsCounter> statsCounterSupplier;
@@ -165,6 +177,7 @@ public final class Caffeine<K, V> {
   @Nullable Scheduler scheduler;
   @Nullable Executor executor;
   @Nullable Ticker ticker;
+  @Nullable WindowSizing windowSizing;
 
   @Nullable Strength keyStrength;
   @Nullable Strength valueStrength;
@@ -307,6 +320,117 @@ public final class Caffeine<K, V> {
     return (executor == null) ? ForkJoinPool.commonPool() : executor;
   }
 
+  /**
+   * Specifies that the absent entries of a bulk load are loaded in batches of at most
+   * {@code batchSize} keys, of which at most {@code parallelism} are loaded concurrently. This
+   * applies to {@link LoadingCache#getAll}, {@link AsyncLoadingCache#getAll}, and the
+   * {@code getAll} methods that accept a mapping function. By default, all of the absent keys are
+   * passed to a single call of the bulk mapping function.
+   * <p>
+   * For a synchronous cache the calling thread loads batches alongside up to
+   * {@code parallelism - 1} tasks on the {@link #executor(Executor)}, so a direct executor loads
+   * the batches sequentially and a call from a saturated executor's thread does not deadlock. For
+   * an asynchronous cache each batch is requested when a previous one completes. The loaded entries
+   * are inserted into the cache as each batch completes, so that a concurrent lookup will observe
+   * them before the remaining batches have been loaded. If a batch fails then the others are still
+   * loaded, and the failure is reported to the caller after all of them complete or, for an
+   * asynchronous cache, by the futures of that batch's keys.
+   * <p>
+   * Each batch is recorded in the {@link Cache#stats() statistics} as a separate load, so a
+   * partitioned {@code getAll} counts one load per batch rather than one per call.
+   *
+   * @param batchSize the maximum number of keys to load in a single call
+   * @param parallelism the maximum number of batches to load concurrently
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code batchSize} or {@code parallelism} is not positive
+   * @throws IllegalStateException if the bulk load partitioning was already set
+   */
+  @NonNull
+  public Caffeine<K, V> bulkLoadPartitioning(
+      @NonNegative int batchSize, @NonNegative int parallelism) {
+    requireState(this.bulkLoadBatchSize == UNSET_INT,
+        "bulk load batch size was already set to %s", this.bulkLoadBatchSize);
+    requireArgument(batchSize > 0, "batch size must be positive: %s", batchSize);
+    requireArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+    this.bulkLoadParallelism = parallelism;
+    this.bulkLoadBatchSize = batchSize;
+    return this;
+  }
+
+  @Nullable BulkLoadPartitioner getBulkLoadPartitioner() {
+    return (bulkLoadBatchSize == UNSET_INT)
+        ? null
+        : new BulkLoadPartitioner(bulkLoadBatchSize, bulkLoadParallelism);
+  }
+
+  /**
+   * Specifies that a key whose load did not produce a value is remembered for a fixed duration,
+   * during which lookups of the key return {@code null} without calling the loader again. This
+   * protects the data source from repeated requests for keys that do not exist. A load does not
+   * produce a value when {@link CacheLoader#load} returns {@code null}, the future returned by
+   * {@link AsyncCacheLoader#asyncLoad} completes with {@code null} or exceptionally, or a bulk load
+   * does not return a mapping for the key.
+   * <p>
+   * The absent keys are held separately from the cache's entries. They are not visible through the
+   * {@link Cache#asMap()} view, do not count towards the {@link #maximumSize} or
+   * {@link #maximumWeight}, and are instead evicted when {@code maximumSize} absent keys are
+   * retained. A key is forgotten when the {@code duration} elapses or when it is explicitly written
+   * or invalidated through the {@link Cache} interface, such as by {@link Cache#put} and
+   * {@link LoadingCache#refresh}.
+   * <p>
+   * A lookup of a remembered key is recorded as a miss, as the cache has no value, and as a
+   * {@linkplain CacheStats#negativeHitCount() negative hit} in place of a load.
+   *
+   * @param maximumSize the maximum number of absent keys to remember
+   * @param duration the length of time after a load that the key's absence is remembered
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code maximumSize} or {@code duration} is not positive
+   * @throws IllegalStateException if negative caching was already set
+   * @throws ArithmeticException for durations greater than +/- approximately 292 years
+   */
+  @NonNull
+  public Caffeine<K, V> negativeCaching(
+      @NonNegative long maximumSize, @NonNull Duration duration) {
+    return negativeCaching(maximumSize, saturatedToNanos(duration), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Specifies that a key whose load did not produce a value is remembered for a fixed duration,
+   * during which lookups of the key return {@code null} without calling the loader again. The
+   * semantics are described by {@link #negativeCaching(long, Duration)}.
+   * <p>
+   * If you can represent the duration as a {@link java.time.Duration} (which should be preferred
+   * when feasible), use {@link #negativeCaching(long, Duration)} instead.
+   *
+   * @param maximumSize the maximum number of absent keys to remember
+   * @param duration the length of time after a load that the key's absence is remembered
+   * @param unit the unit that {@code duration} is expressed in
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code maximumSize} or {@code duration} is not positive
+   * @throws IllegalStateException if negative caching was already set
+   */
+  @NonNull
+  public Caffeine<K, V> negativeCaching(@NonNegative long maximumSize,
+      @NonNegative long duration, @NonNull TimeUnit unit) {
+    requireNonNull(unit);
+    requireState(negativeMaximumSize == UNSET_INT,
+        "negative caching was already set to %s", negativeMaximumSize);
+    requireArgument(maximumSize > 0, "maximum size must be positive: %s", maximumSize);
+    requireArgument(duration > 0, "duration must be positive: %s %s", duration, unit);
+    this.negativeExpireAfterWriteNanos = unit.toNanos(duration);
+    this.negativeMaximumSize = maximumSize;
+    return this;
+  }
+
+  @Nullable <K1 extends K> NegativeCache<K1> newNegativeCache() {
+    if (negativeMaximumSize == UNSET_INT) {
+      return null;
+    }
+    Ticker negativeTicker = (ticker == null) ? Ticker.systemTicker() : ticker;
+    return new NegativeCache<>(negativeMaximumSize,
+        negativeExpireAfterWriteNanos, negativeTicker, getExecutor());
+  }
+
   /**
    * Specifies the scheduler to use when scheduling routine maintenance based on an expiration
    * event. This augments the periodic maintenance that occurs during normal cache operations to
@@ -345,6 +469,113 @@ public final class Caffeine<K, V> {
     return Scheduler.guardedScheduler(scheduler);
   }
 
+  /**
+   * Specifies that each asynchronous load should fail with a {@link TimeoutException} if it has not
+   * completed within the given duration. The failed future is then removed from the cache, as with
+   * any other failed load, so that waiters for the key are released and the next lookup issues a
+   * new load. A load that never completes would otherwise be retained indefinitely and block every
+   * caller for that key.
+   * <p>
+   * The timeout is applied to the future returned by the {@link AsyncCacheLoader}, including for a
+   * reload and a bulk load, and is recorded as a {@linkplain CacheStats#loadFailureCount() load
+   * failure}. The loader is not interrupted and the underlying future is not cancelled, so any work
+   * already in progress may continue and its eventual result is discarded.
+   * <p>
+   * The timer is submitted to the {@link #scheduler(Scheduler)}, which must be specified, and
+   * expires on the {@link #executor(Executor)}. This feature may only be used by a cache built with
+   * {@link #buildAsync(AsyncCacheLoader)} or {@link #buildAsync(CacheLoader)}.
+   *
+   * @param duration the length of time after a load is started that it should be failed
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code duration} is zero or negative
+   * @throws IllegalStateException if the load timeout was already set
+   * @throws ArithmeticException for durations greater than +/- approximately 292 years
+   */
+  @NonNull
+  public Caffeine<K, V> asyncLoadTimeout(@NonNull Duration duration) {
+    return asyncLoadTimeout(saturatedToNanos(duration), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Specifies that each asynchronous load should fail with a {@link TimeoutException} if it has not
+   * completed within the given duration. The semantics are described by
+   * {@link #asyncLoadTimeout(Duration)}.
+   * <p>
+   * If you can represent the duration as a {@link java.time.Duration} (which should be preferred
+   * when feasible), use {@link #asyncLoadTimeout(Duration)} instead.
+   *
+   * @param duration the length of time after a load is started that it should be failed
+   * @param unit the unit that {@code duration} is expressed in
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code duration} is zero or negative
+   * @throws IllegalStateException if the load timeout was already set
+   */
+  @NonNull
+  public Caffeine<K, V> asyncLoadTimeout(@NonNegative long duration, @NonNull TimeUnit unit) {
+    requireNonNull(unit);
+    requireState(asyncLoadTimeoutNanos == UNSET_INT,
+        "asyncLoadTimeout was already set to %s ns", asyncLoadTimeoutNanos);
+    requireArgument(duration > 0, "duration must be positive: %s %s", duration, unit);
+    this.asyncLoadTimeoutNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  /**
+   * Specifies that if an asynchronous load of a single key has not completed within the given
+   * duration, then a second load of that key should be issued and whichever successfully completes
+   * first is used. This trims the tail latency caused by an occasional slow response, at the cost
+   * of additional requests to the backing resource. The delay is typically set to a high percentile
+   * of the observed load time, such as the 95th, so that only the slowest loads are duplicated.
+   * <p>
+   * The failure of one attempt does not fail the load while the other is still in progress. The
+   * load is recorded once in the statistics and the additional attempt is recorded by
+   * {@link CacheStats#hedgedLoadCount()}. Bulk loads and reloads are not hedged.
+   * <p>
+   * The delay is submitted to the {@link #scheduler(Scheduler)}, which must be specified, and the
+   * second load is issued on the {@link #executor(Executor)}. This feature may only be used by a
+   * cache built with {@link #buildAsync(AsyncCacheLoader)} or {@link #buildAsync(CacheLoader)}, and
+   * if combined with {@link #asyncLoadTimeout(Duration)} then the delay must be shorter than the
+   * timeout.
+   *
+   * @param duration the length of time after a load is started that a second attempt is issued
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code duration} is zero or negative
+   * @throws IllegalStateException if the hedging delay was already set
+   * @throws ArithmeticException for durations greater than +/- approximately 292 years
+   */
+  @NonNull
+  public Caffeine<K, V> hedgeAsyncLoadAfter(@NonNull Duration duration) {
+    return hedgeAsyncLoadAfter(saturatedToNanos(duration), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Specifies that if an asynchronous load of a single key has not completed within the given
+   * duration, then a second load of that key should be issued. The semantics are described by
+   * {@link #hedgeAsyncLoadAfter(Duration)}.
+   * <p>
+   * If you can represent the duration as a {@link java.time.Duration} (which should be preferred
+   * when feasible), use {@link #hedgeAsyncLoadAfter(Duration)} instead.
+   *
+   * @param duration the length of time after a load is started that a second attempt is issued
+   * @param unit the unit that {@code duration} is expressed in
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code duration} is zero or negative
+   * @throws IllegalStateException if the hedging delay was already set
+   */
+  @NonNull
+  public Caffeine<K, V> hedgeAsyncLoadAfter(@NonNegative long duration, @NonNull TimeUnit unit) {
+    requireNonNull(unit);
+    requireState(hedgeAsyncLoadNanos == UNSET_INT,
+        "hedgeAsyncLoadAfter was already set to %s ns", hedgeAsyncLoadNanos);
+    requireArgument(duration > 0, "duration must be positive: %s %s", duration, unit);
+    this.hedgeAsyncLoadNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  boolean boundsAsyncLoads() {
+    return (asyncLoadTimeoutNanos != UNSET_INT) || (hedgeAsyncLoadNanos != UNSET_INT);
+  }
+
   /**
    * Specifies the maximum number of entries the cache may contain. Note that the cache <b>may evict
    * an entry before this limit is exceeded or temporarily exceed the threshold while evicting</b>.
@@ -788,11 +1019,73 @@ public final class Caffeine<K, V> {
   }
 
   long getRefreshAfterWriteNanos() {
-    return refreshes() ? refreshNanos : DEFAULT_REFRESH_NANOS;
+    return (refreshNanos == UNSET_INT) ? DEFAULT_REFRESH_NANOS : refreshNanos;
   }
 
   boolean refreshes() {
-    return refreshNanos != UNSET_INT;
+    return (refreshNanos != UNSET_INT) || servesStale();
+  }
+
+  /**
+   * Specifies that an entry which has outlived its {@link #expireAfterWrite} duration may continue
+   * to be served for a grace period while it is reloaded in the background. The first request for
+   * a stale entry will make an asynchronous call to {@link CacheLoader#reload} and immediately
+   * return the old value, as will subsequent requests while the reload is in flight. If the reload
+   * fails then the stale value continues to be served and the next request will retry, until the
+   * grace period has elapsed and the entry is removed, regardless of whether a reload is still in
+   * flight. This allows a slow or unavailable backend to be hidden from callers at the cost of
+   * serving data older than the expiration duration.
+   * <p>
+   * A read of a stale entry is recorded as both a hit and a
+   * {@linkplain CacheStats#staleHitCount() stale hit}. The durations reported by
+   * {@link Policy#expireAfterWrite()} are those of the freshness lifetime, so an entry may outlive
+   * it by the grace period, and changing that lifetime does not change the grace period.
+   * <p>
+   * <b>Note:</b> <i>all exceptions thrown during the reload will be logged and then swallowed</i>.
+   *
+   * @param duration the length of time after an entry has expired that it may be served while
+   *        being reloaded
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code duration} is zero or negative
+   * @throws IllegalStateException if the grace period was already set
+   * @throws ArithmeticException for durations greater than +/- approximately 292 years
+   */
+  @NonNull
+  public Caffeine<K, V> staleWhileRevalidate(@NonNull Duration duration) {
+    return staleWhileRevalidate(saturatedToNanos(duration), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Specifies that an entry which has outlived its {@link #expireAfterWrite} duration may continue
+   * to be served for a grace period while it is reloaded in the background. The semantics are
+   * described by {@link #staleWhileRevalidate(Duration)}.
+   * <p>
+   * If you can represent the duration as a {@link java.time.Duration} (which should be preferred
+   * when feasible), use {@link #staleWhileRevalidate(Duration)} instead.
+   *
+   * @param duration the length of time after an entry has expired that it may be served while
+   *        being reloaded
+   * @param unit the unit that {@code duration} is expressed in
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalArgumentException if {@code duration} is zero or negative
+   * @throws IllegalStateException if the grace period was already set
+   */
+  @NonNull
+  public Caffeine<K, V> staleWhileRevalidate(@NonNegative long duration, @NonNull TimeUnit unit) {
+    requireNonNull(unit);
+    requireState(staleWhileRevalidateNanos == UNSET_INT,
+        "staleWhileRevalidate was already set to %s ns", staleWhileRevalidateNanos);
+    requireArgument(duration > 0, "duration must be positive: %s %s", duration, unit);
+    this.staleWhileRevalidateNanos = unit.toNanos(duration);
+    return this;
+  }
+
+  boolean servesStale() {
+    return (staleWhileRevalidateNanos != UNSET_INT);
+  }
+
+  long getStaleWhileRevalidateNanos() {
+    return servesStale() ? staleWhileRevalidateNanos : 0L;
   }
 
   /**
@@ -800,7 +1093,12 @@ public final class Caffeine<K, V> {
    * expired or refreshed. By default, {@link System#nanoTime} is used.
    * <p>
    * The primary intent of this method is to facilitate testing of caches which have been configured
-   * with {@link #expireAfterWrite}, {@link #expireAfterAccess}, or {@link #refreshAfterWrite}.
+   * with {@link #expireAfterWrite}, {@link #expireAfterAccess}, or {@link #refreshAfterWrite}. A
+   * cache whose operations are dominated by reading the time may instead prefer
+   * {@link Ticker#coarseTicker()} to trade precision for a cheaper read. That ticker advances at a
+   * resolution of approximately one millisecond, so a load that completes faster is recorded by
+   * {@link StatsCounter#recordLoadSuccess} as taking {@code 0} nanoseconds and the load time
+   * statistics should be read as coarse estimates.
    *
    * @param ticker a nanosecond-precision time source
    * @return this {@code Caffeine} instance (for chaining)
@@ -952,6 +1250,143 @@ public final class Caffeine<K, V> {
     return (statsCounterSupplier != null);
   }
 
+  /**
+   * Enables estimating the hit rate that the cache would achieve if its maximum size was changed,
+   * which is reported by {@link Policy.Eviction#estimatedHitRate(double)}. The estimate is derived
+   * by replaying a small, fixed-size sample of the accesses against a simulated cache, which
+   * imposes a slight penalty on the cache's maintenance and retains up to a few thousand additional
+   * objects.
+   * <p>
+   * This feature requires that the cache is bounded by {@link #maximumSize(long)}.
+   *
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalStateException if the hit rate curve was already set
+   */
+  @NonNull
+  public Caffeine<K, V> recordHitRateCurve() {
+    requireState(!recordHitRateCurve, "Hit rate curve recording was already set");
+    recordHitRateCurve = true;
+    return this;
+  }
+
+  boolean isRecordingHitRateCurve() {
+    return recordHitRateCurve;
+  }
+
+  /**
+   * Enables sampling the reads of the entries that the eviction policy considers to be the most
+   * popular, rather than recording every read. A read of an entry whose estimated frequency is at
+   * the maximum is recorded with a probability of one in eight, as recording it would not increase
+   * the entry's popularity. This reduces contention on the read buffer when a few entries receive a
+   * very large share of the reads, so that the reads of the other entries are less likely to be
+   * dropped, at the cost of a less precise recency order among the popular entries.
+   * <p>
+   * This feature requires that the cache is bounded by {@link #maximumSize(long)} or
+   * {@link #maximumWeight(long)}. It may not be combined with {@link #expireAfterAccess}, as a read
+   * that is not recorded does not reorder the entry in the access order used for expiration.
+   *
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalStateException if read sampling was already set
+   */
+  @NonNull
+  public Caffeine<K, V> sampleReads() {
+    requireState(!sampleReads, "Read sampling was already set");
+    sampleReads = true;
+    return this;
+  }
+
+  boolean isSamplingReads() {
+    return sampleReads;
+  }
+
+  /**
+   * Specifies that the eviction policy's frequency sketch is fronted by a doorkeeper, a Bloom
+   * filter that records the first occurrence of a key so that only its later occurrences consume
+   * the sketch's counters. This reduces the sketch's memory footprint by a quarter and keeps the
+   * one-hit wonders of a scan from polluting the popularity of the other entries, at the cost of a
+   * slightly less precise estimate for the keys that are seen only a few times.
+   * <p>
+   * This feature requires that the cache is bounded by {@link #maximumSize(long)} or
+   * {@link #maximumWeight(long)}.
+   *
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalStateException if the admission doorkeeper was already set
+   */
+  @NonNull
+  public Caffeine<K, V> admissionDoorkeeper() {
+    requireState(!admissionDoorkeeper, "Admission doorkeeper was already set");
+    admissionDoorkeeper = true;
+    return this;
+  }
+
+  boolean usesAdmissionDoorkeeper() {
+    return admissionDoorkeeper;
+  }
+
+  /**
+   * Specifies that a value computed by {@link LoadingCache#get} or {@link Cache#get} should be
+   * loaded outside of the hash table's locks. By default the loader runs within the atomic
+   * {@link java.util.Map#computeIfAbsent computeIfAbsent} of the underlying hash table, which holds
+   * a lock for the duration of the load that also blocks writes to any other keys that share its
+   * hash bin. That lock is a monitor, so a virtual thread that blocks while loading will pin its
+   * carrier thread.
+   * <p>
+   * In this mode the lock is only held briefly to register a pending load of the key and then again
+   * to insert the loaded value. The loader is invoked without holding any locks, and other threads
+   * that request the key while it is loading wait for the pending load to complete rather than
+   * starting their own. If that load fails or computes a {@code null} value, then each waiting
+   * thread retries by loading the value itself, as it would when loading within the lock. If the
+   * entry is written to or invalidated through the {@link Cache} interface or its map view while
+   * the load is in progress, then the write takes precedence and the loaded value is returned to
+   * the calling thread without being inserted into the cache. A recursive load of the same key by
+   * the loading thread fails with an {@link IllegalStateException}.
+   * <p>
+   * This feature applies to a cache built with {@link #build()} or {@link #build(CacheLoader)}, as
+   * an asynchronous cache already computes its future values outside of the hash table's locks. It
+   * may not be combined with {@link #weakKeys()}, as the pending loads are matched by equality
+   * whereas weak keys are compared by identity.
+   *
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalStateException if loading outside of the lock was already set
+   */
+  @NonNull
+  public Caffeine<K, V> loadOutsideOfLock() {
+    requireState(!loadsOutsideOfLock, "Loading outside of the lock was already set");
+    loadsOutsideOfLock = true;
+    return this;
+  }
+
+  @Nullable <K1 extends K, V1 extends V> PendingLoads<K1, V1> newPendingLoads() {
+    return loadsOutsideOfLock ? new PendingLoads<>() : null;
+  }
+
+  /**
+   * Specifies the strategy used to adapt the size of the admission window, which balances the
+   * recency and frequency of the cache's entries. By default the cache uses
+   * {@link WindowSizing#HILL_CLIMBING}, while the gradient-based strategies sample over shorter
+   * periods and may converge faster after the workload changes.
+   * <p>
+   * This feature requires that the cache is bounded by {@link #maximumSize(long)} or
+   * {@link #maximumWeight(long)}.
+   *
+   * @param windowSizing the strategy to adapt the admission window with
+   * @return this {@code Caffeine} instance (for chaining)
+   * @throws IllegalStateException if the window sizing strategy was already set
+   * @throws NullPointerException if the specified strategy is null
+   */
+  @NonNull
+  public Caffeine<K, V> windowSizing(@NonNull WindowSizing windowSizing) {
+    requireState(this.windowSizing == null,
+        "window sizing was already set to %s", this.windowSizing);
+    this.windowSizing = requireNonNull(windowSizing);
+    return this;
+  }
+
+  @NonNull
+  WindowSizing getWindowSizing() {
+    return (windowSizing == null) ? WindowSizing.HILL_CLIMBING : windowSizing;
+  }
+
   @NonNull
   Supplier<StatsCounter> getStatsCounterSupplier() {
     return (statsCounterSupplier == null)
@@ -987,7 +1422,14 @@ public final class Caffeine<K, V> {
   @NonNull
   public <K1 extends K, V1 extends V> Cache<K1, V1> build() {
     requireWeightWithWeigher();
+    requireMaximumSizeWithHitRateCurve();
+    requireEvictionWithWindowSizing();
+    requireEvictionWithSampledReads();
+    requireEvictionWithDoorkeeper();
+    requireExpirationWithStaleWhileRevalidate();
     requireNonLoadingCache();
+    requireAsyncLoadingCache();
+    requireStrongKeysWithPendingLoads();
 
     @SuppressWarnings("unchecked")
     Caffeine<K1, V1> self = (Caffeine<K1, V1>) this;
@@ -1014,6 +1456,13 @@ public final class Caffeine<K, V> {
   public <K1 extends K, V1 extends V> LoadingCache<K1, V1> build(
       @NonNull CacheLoader<? super K1, V1> loader) {
     requireWeightWithWeigher();
+    requireMaximumSizeWithHitRateCurve();
+    requireEvictionWithWindowSizing();
+    requireEvictionWithSampledReads();
+    requireEvictionWithDoorkeeper();
+    requireExpirationWithStaleWhileRevalidate();
+    requireAsyncLoadingCache();
+    requireStrongKeysWithPendingLoads();
 
     @SuppressWarnings("unchecked")
     Caffeine<K1, V1> self = (Caffeine<K1, V1>) this;
@@ -1047,7 +1496,14 @@ public final class Caffeine<K, V> {
     requireState(valueStrength == null, "Weak or soft values can not be combined with AsyncCache");
     requireState(writer == null, "CacheWriter can not be combined with AsyncCache");
     requireWeightWithWeigher();
+    requireMaximumSizeWithHitRateCurve();
+    requireEvictionWithWindowSizing();
+    requireEvictionWithSampledReads();
+    requireEvictionWithDoorkeeper();
+    requireExpirationWithStaleWhileRevalidate();
     requireNonLoadingCache();
+    requireAsyncLoadingCache();
+    requireSynchronousCache();
 
     @SuppressWarnings("unchecked")
     Caffeine<K1, V1> self = (Caffeine<K1, V1>) this;
@@ -1105,6 +1561,13 @@ public final class Caffeine<K, V> {
         "Weak or soft values can not be combined with AsyncLoadingCache");
     requireState(writer == null, "CacheWriter can not be combined with AsyncLoadingCache");
     requireWeightWithWeigher();
+    requireMaximumSizeWithHitRateCurve();
+    requireEvictionWithWindowSizing();
+    requireEvictionWithSampledReads();
+    requireEvictionWithDoorkeeper();
+    requireExpirationWithStaleWhileRevalidate();
+    requireSchedulerWithAsyncLoadBounds();
+    requireSynchronousCache();
     requireNonNull(loader);
 
     @SuppressWarnings("unchecked")
@@ -1114,8 +1577,72 @@ public final class Caffeine<K, V> {
         : new UnboundedLocalCache.UnboundedLocalAsyncLoadingCache<>(self, loader);
   }
 
+  void requireMaximumSizeWithHitRateCurve() {
+    if (recordHitRateCurve) {
+      requireState(maximumSize != UNSET_INT, "recordHitRateCurve requires maximumSize");
+    }
+  }
+
+  void requireEvictionWithWindowSizing() {
+    if (windowSizing != null) {
+      requireState(evicts(), "windowSizing requires maximumSize or maximumWeight");
+    }
+  }
+
+  void requireEvictionWithSampledReads() {
+    if (sampleReads) {
+      requireState(evicts(), "sampleReads requires maximumSize or maximumWeight");
+      requireState(!expiresAfterAccess(), "sampleReads may not be used with expireAfterAccess");
+    }
+  }
+
+  void requireEvictionWithDoorkeeper() {
+    if (admissionDoorkeeper) {
+      requireState(evicts(), "admissionDoorkeeper requires maximumSize or maximumWeight");
+    }
+  }
+
   void requireNonLoadingCache() {
     requireState(refreshNanos == UNSET_INT, "refreshAfterWrite requires a LoadingCache");
+    requireState(!servesStale(), "staleWhileRevalidate requires a LoadingCache");
+    requireState(negativeMaximumSize == UNSET_INT, "negativeCaching requires a LoadingCache");
+  }
+
+  void requireExpirationWithStaleWhileRevalidate() {
+    if (servesStale()) {
+      requireState(expiresAfterWrite(), "staleWhileRevalidate requires expireAfterWrite");
+      requireState(refreshNanos == UNSET_INT,
+          "staleWhileRevalidate may not be used with refreshAfterWrite");
+    }
+  }
+
+  void requireAsyncLoadingCache() {
+    requireState(asyncLoadTimeoutNanos == UNSET_INT,
+        "asyncLoadTimeout requires an AsyncLoadingCache");
+    requireState(hedgeAsyncLoadNanos == UNSET_INT,
+        "hedgeAsyncLoadAfter requires an AsyncLoadingCache");
+  }
+
+  void requireSynchronousCache() {
+    requireState(!loadsOutsideOfLock, "loadOutsideOfLock requires a synchronous cache");
+  }
+
+  void requireStrongKeysWithPendingLoads() {
+    if (loadsOutsideOfLock) {
+      requireState(keyStrength == null, "loadOutsideOfLock may not be used with weakKeys");
+    }
+  }
+
+  void requireSchedulerWithAsyncLoadBounds() {
+    if (boundsAsyncLoads()) {
+      requireState(getScheduler() != Scheduler.disabledScheduler(),
+          "asyncLoadTimeout and hedgeAsyncLoadAfter require a scheduler");
+    }
+    if ((asyncLoadTimeoutNanos != UNSET_INT) && (hedgeAsyncLoadNanos != UNSET_INT)) {
+      requireState(hedgeAsyncLoadNanos < asyncLoadTimeoutNanos,
+          "hedgeAsyncLoadAfter (%s ns) must be less than asyncLoadTimeout (%s ns)",
+          hedgeAsyncLoadNanos, asyncLoadTimeoutNanos);
+    }
   }
 
   void requireWeightWithWeigher() {
@@ -1135,7 +1662,7 @@ public final class Caffeine<K, V> {
    * {@link Long#MAX_VALUE} or {@link Long#MIN_VALUE}. This behavior can be useful when decomposing
    * a duration in order to call a legacy API which requires a {@code long, TimeUnit} pair.
    */
-  private static long saturatedToNanos(Duration duration) {
+  static long saturatedToNanos(Duration duration) {
     // Using a try/catch seems lazy, but the catch block will rarely get invoked (except for
     // durations longer than approximately +/- 292 years).
     try {
@@ -1175,6 +1702,15 @@ public final class Caffeine<K, V> {
     if (refreshNanos != UNSET_INT) {
       s.append("refreshNanos=").append(refreshNanos).append("ns, ");
     }
+    if (staleWhileRevalidateNanos != UNSET_INT) {
+      s.append("staleWhileRevalidate=").append(staleWhileRevalidateNanos).append("ns, ");
+    }
+    if (asyncLoadTimeoutNanos != UNSET_INT) {
+      s.append("asyncLoadTimeout=").append(asyncLoadTimeoutNanos).append("ns, ");
+    }
+    if (hedgeAsyncLoadNanos != UNSET_INT) {
+      s.append("hedgeAsyncLoadAfter=").append(hedgeAsyncLoadNanos).append("ns, ");
+    }
     if (keyStrength != null) {
       s.append("keyStrength=").append(keyStrength.toString().toLowerCase(US)).append(", ");
     }
@@ -1187,6 +1723,26 @@ public final class Caffeine<K, V> {
     if (writer != null) {
       s.append("writer, ");
     }
+    if (windowSizing != null) {
+      s.append("windowSizing=").append(windowSizing.toString().toLowerCase(US)).append(", ");
+    }
+    if (sampleReads) {
+      s.append("sampleReads, ");
+    }
+    if (admissionDoorkeeper) {
+      s.append("admissionDoorkeeper, ");
+    }
+    if (loadsOutsideOfLock) {
+      s.append("loadOutsideOfLock, ");
+    }
+    if (bulkLoadBatchSize != UNSET_INT) {
+      s.append("bulkLoadBatchSize=").append(bulkLoadBatchSize).append(", ");
+      s.append("bulkLoadParallelism=").append(bulkLoadParallelism).append(", ");
+    }
+    if (negativeMaximumSize != UNSET_INT) {
+      s.append("negativeMaximumSize=").append(negativeMaximumSize).append(", ");
+      s.append("negativeExpireAfterWrite=").append(negativeExpireAfterWriteNanos).append("ns, ");
+    }
     if (s.length() > baseLength) {
       s.deleteCharAt(s.length() - 2);
     }
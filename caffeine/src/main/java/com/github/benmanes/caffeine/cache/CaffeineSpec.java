@@ -43,10 +43,12 @@ import com.github.benmanes.caffeine.cache.Caffeine.Strength;
  *   <li>{@code expireAfterAccess=[duration]}: sets {@link Caffeine#expireAfterAccess}.
  *   <li>{@code expireAfterWrite=[duration]}: sets {@link Caffeine#expireAfterWrite}.
  *   <li>{@code refreshAfterWrite=[duration]}: sets {@link Caffeine#refreshAfterWrite}.
+ *   <li>{@code staleWhileRevalidate=[duration]}: sets {@link Caffeine#staleWhileRevalidate}.
  *   <li>{@code weakKeys}: sets {@link Caffeine#weakKeys}.
  *   <li>{@code weakValues}: sets {@link Caffeine#weakValues}.
  *   <li>{@code softValues}: sets {@link Caffeine#softValues}.
  *   <li>{@code recordStats}: sets {@link Caffeine#recordStats}.
+ *   <li>{@code admissionDoorkeeper}: sets {@link Caffeine#admissionDoorkeeper}.
  * </ul>
  * <p>
  * Durations are represented by an integer, followed by one of "d", "h", "m", or "s", representing
@@ -78,6 +80,7 @@ public final class CaffeineSpec {
   long maximumWeight = UNSET_INT;
   long maximumSize = UNSET_INT;
   boolean recordStats;
+  boolean admissionDoorkeeper;
 
   @Nullable Strength keyStrength;
   @Nullable Strength valueStrength;
@@ -91,6 +94,9 @@ public final class CaffeineSpec {
   long refreshAfterWriteDuration = UNSET_INT;
   @Nullable TimeUnit refreshAfterWriteTimeUnit;
 
+  long staleWhileRevalidateDuration = UNSET_INT;
+  @Nullable TimeUnit staleWhileRevalidateTimeUnit;
+
   private CaffeineSpec(String specification) {
     this.specification = requireNonNull(specification);
   }
@@ -133,9 +139,15 @@ public final class CaffeineSpec {
     if (refreshAfterWriteTimeUnit != null) {
       builder.refreshAfterWrite(refreshAfterWriteDuration, refreshAfterWriteTimeUnit);
     }
+    if (staleWhileRevalidateTimeUnit != null) {
+      builder.staleWhileRevalidate(staleWhileRevalidateDuration, staleWhileRevalidateTimeUnit);
+    }
     if (recordStats) {
       builder.recordStats();
     }
+    if (admissionDoorkeeper) {
+      builder.admissionDoorkeeper();
+    }
     return builder;
   }
 
@@ -201,9 +213,15 @@ public final class CaffeineSpec {
       case "refreshAfterWrite":
         refreshAfterWrite(key, value);
         return;
+      case "staleWhileRevalidate":
+        staleWhileRevalidate(key, value);
+        return;
       case "recordStats":
         recordStats(value);
         return;
+      case "admissionDoorkeeper":
+        admissionDoorkeeper(value);
+        return;
       default:
         throw new IllegalArgumentException("Unknown key " + key);
     }
@@ -269,6 +287,14 @@ public final class CaffeineSpec {
     refreshAfterWriteTimeUnit = parseTimeUnit(key, value);
   }
 
+  /** Configures the grace period to serve stale entries while reloading. */
+  void staleWhileRevalidate(String key, @Nullable String value) {
+    requireArgument(staleWhileRevalidateDuration == UNSET_INT,
+        "staleWhileRevalidate was already set");
+    staleWhileRevalidateDuration = parseDuration(key, value);
+    staleWhileRevalidateTimeUnit = parseTimeUnit(key, value);
+  }
+
   /** Configures the value as weak or soft references. */
   void recordStats(@Nullable String value) {
     requireArgument(value == null, "record stats does not take a value");
@@ -276,6 +302,13 @@ public final class CaffeineSpec {
     recordStats = true;
   }
 
+  /** Configures the frequency sketch to be fronted by a doorkeeper. */
+  void admissionDoorkeeper(@Nullable String value) {
+    requireArgument(value == null, "admission doorkeeper does not take a value");
+    requireArgument(!admissionDoorkeeper, "admission doorkeeper was already set");
+    admissionDoorkeeper = true;
+  }
+
   /** Returns a parsed int value. */
   static int parseInt(String key, @Nullable String value) {
     requireArgument((value != null) && !value.isEmpty(), "value of key %s was omitted", key);
@@ -340,21 +373,26 @@ public final class CaffeineSpec {
         && Objects.equals(keyStrength, spec.keyStrength)
         && Objects.equals(valueStrength, spec.valueStrength)
         && Objects.equals(recordStats, spec.recordStats)
+        && Objects.equals(admissionDoorkeeper, spec.admissionDoorkeeper)
         && (durationInNanos(expireAfterAccessDuration, expireAfterAccessTimeUnit) ==
             durationInNanos(spec.expireAfterAccessDuration, spec.expireAfterAccessTimeUnit))
         && (durationInNanos(expireAfterWriteDuration, expireAfterWriteTimeUnit) ==
             durationInNanos(spec.expireAfterWriteDuration, spec.expireAfterWriteTimeUnit))
         && (durationInNanos(refreshAfterWriteDuration, refreshAfterWriteTimeUnit) ==
-            durationInNanos(spec.refreshAfterWriteDuration, spec.refreshAfterWriteTimeUnit));
+            durationInNanos(spec.refreshAfterWriteDuration, spec.refreshAfterWriteTimeUnit))
+        && (durationInNanos(staleWhileRevalidateDuration, staleWhileRevalidateTimeUnit) ==
+            durationInNanos(spec.staleWhileRevalidateDuration, spec.staleWhileRevalidateTimeUnit));
   }
 
   @Override
   public int hashCode() {
     return Objects.hash(
         initialCapacity, maximumSize, maximumWeight, keyStrength, valueStrength, recordStats,
+        admissionDoorkeeper,
         durationInNanos(expireAfterAccessDuration, expireAfterAccessTimeUnit),
         durationInNanos(expireAfterWriteDuration, expireAfterWriteTimeUnit),
-        durationInNanos(refreshAfterWriteDuration, refreshAfterWriteTimeUnit));
+        durationInNanos(refreshAfterWriteDuration, refreshAfterWriteTimeUnit),
+        durationInNanos(staleWhileRevalidateDuration, staleWhileRevalidateTimeUnit));
   }
 
   /** Converts an expiration duration/unit pair into a single long for hashing and equality. */
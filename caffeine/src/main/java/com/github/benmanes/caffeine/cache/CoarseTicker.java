@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.cache.Caffeine.ceilingPowerOfTwo;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A ticker that returns a cached reading of {@link System#nanoTime}, which is periodically
+ * refreshed by a daemon thread. This trades precision for a cheaper read, as on some platforms the
+ * system clock is expensive to query relative to the cost of a cache hit.
+ * <p>
+ * The time observed is monotonic and trails the system clock by approximately the resolution. The
+ * staleness is best-effort, as the refresh thread may be delayed by the operating system's
+ * scheduler under heavy load.
+ * <p>
+ * The refresh thread is started when the ticker is created, so that a read is only a volatile load.
+ * The thread holds the ticker weakly and exits once it has been garbage collected, which happens
+ * after the caches that use it are discarded, e.g. when a web application is undeployed. The thread
+ * does not retain the context class loader of the thread that created it.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class CoarseTicker implements Ticker {
+  static final long RESOLUTION = ceilingPowerOfTwo(TimeUnit.MILLISECONDS.toNanos(1)); // 1.05ms
+  static final ThreadFactory THREAD_FACTORY = task -> {
+    Thread thread = new Thread(task, "Caffeine-CoarseTicker");
+    thread.setContextClassLoader(null);
+    thread.setDaemon(true);
+    return thread;
+  };
+
+  static WeakReference<CoarseTicker> shared = new WeakReference<>(null);
+
+  volatile long nanos;
+
+  CoarseTicker() {
+    nanos = System.nanoTime();
+  }
+
+  @Override
+  public long read() {
+    return nanos;
+  }
+
+  /** Updates the cached time to the current reading of the system clock. */
+  void advance() {
+    long now = System.nanoTime();
+    if ((now - nanos) > 0) {
+      nanos = now;
+    }
+  }
+
+  /** Returns the shared ticker, creating and starting a new one if it was garbage collected. */
+  static synchronized CoarseTicker shared() {
+    CoarseTicker ticker = shared.get();
+    if (ticker == null) {
+      ticker = new CoarseTicker();
+      start(ticker, RESOLUTION);
+      shared = new WeakReference<>(ticker);
+    }
+    return ticker;
+  }
+
+  /** Starts the thread that refreshes the ticker's cached time until it is garbage collected. */
+  static Thread start(CoarseTicker ticker, long resolution) {
+    Thread thread = THREAD_FACTORY.newThread(new Refresher(ticker, resolution));
+    thread.start();
+    return thread;
+  }
+
+  /** A task that advances a ticker at every resolution interval while the ticker is reachable. */
+  static final class Refresher implements Runnable {
+    final WeakReference<CoarseTicker> tickerRef;
+    final long resolution;
+
+    Refresher(CoarseTicker ticker, long resolution) {
+      this.tickerRef = new WeakReference<>(ticker);
+      this.resolution = resolution;
+    }
+
+    @Override
+    public void run() {
+      while (advance()) {
+        LockSupport.parkNanos(this, resolution);
+      }
+    }
+
+    /** Advances the ticker, returning if it has not yet been garbage collected. */
+    boolean advance() {
+      CoarseTicker ticker = tickerRef.get();
+      if (ticker == null) {
+        return false;
+      }
+      ticker.advance();
+      return true;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A gradient-based optimizer that determines the amount to adapt the admission window by. The
+ * gradient is estimated as the change in the miss rate between sample periods relative to the
+ * direction that the window was last moved in. The window descends along this gradient, which is
+ * smoothed by momentum and scaled by an adaptive step size.
+ * <p>
+ * This class is <b>not</b> thread-safe and must be guarded by the eviction lock.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class GradientClimber {
+  /** The percent of the total size to adapt the window by. */
+  static final double PERCENT_PIVOT = 0.02d;
+  /** The size of the sample period relative to the frequency sketch's aging period. */
+  static final int SAMPLE_DIVISOR = 50;
+  /** The decay rate of the momentum. */
+  static final double BETA_1 = 0.9d;
+  /** The decay rate of the velocity. */
+  static final double BETA_2 = 0.999d;
+  /** The fuzz factor for numerical stability. */
+  static final double EPSILON = 1e-8d;
+
+  final WindowSizing type;
+
+  /** The sign of the last adjustment, where a negative value shrank the window. */
+  double direction;
+  double maxVelocity;
+  double velocity;
+  double moment;
+  int t;
+
+  GradientClimber(WindowSizing type) {
+    this.type = requireNonNull(type);
+    direction = -1;
+    t = 1;
+  }
+
+  /**
+   * Returns the number of requests to sample before adapting.
+   *
+   * @param sketchSampleSize the number of requests between the frequency sketch's aging
+   * @return the size of the sample period
+   */
+  static int sampleSize(int sketchSampleSize) {
+    return Math.max(1, sketchSampleSize / SAMPLE_DIVISOR);
+  }
+
+  /**
+   * Returns the amount to adapt the window by, where a positive value increases the window.
+   *
+   * @param hitRate the hit rate of the current sample period
+   * @param previousHitRate the hit rate of the previous sample period
+   * @param maximum the maximum weighted size of the cache
+   * @return the amount to adapt the window by
+   */
+  double adjust(double hitRate, double previousHitRate, long maximum) {
+    double stepSize = PERCENT_PIVOT * maximum;
+    double gradient = direction * ((1 - hitRate) - (1 - previousHitRate));
+    moment = (BETA_1 * moment) + ((1 - BETA_1) * gradient);
+    velocity = (BETA_2 * velocity) + ((1 - BETA_2) * (gradient * gradient));
+
+    double descent;
+    if (type == WindowSizing.AMSGRAD) {
+      maxVelocity = Math.max(velocity, maxVelocity);
+      descent = (stepSize * moment) / (Math.sqrt(maxVelocity) + EPSILON);
+    } else {
+      double momentBias = moment / (1 - Math.pow(BETA_1, t));
+      double velocityBias = velocity / (1 - Math.pow(BETA_2, t));
+      if (type == WindowSizing.NADAM) {
+        double nesterov = ((1 - BETA_1) / (1 - Math.pow(BETA_1, t))) * gradient;
+        descent = (stepSize / (Math.sqrt(velocityBias) + EPSILON))
+            * ((BETA_1 * momentBias) + nesterov);
+      } else {
+        descent = (stepSize * momentBias) / (Math.sqrt(velocityBias) + EPSILON);
+      }
+    }
+    if (descent != 0) {
+      direction = -Math.signum(descent);
+    }
+    t++;
+    return -descent;
+  }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.cache.Caffeine.ceilingPowerOfTwo;
+import static com.github.benmanes.caffeine.cache.Caffeine.requireArgument;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+
+/**
+ * An online estimator of the hit rate that the cache would achieve if its maximum size was scaled
+ * by a factor, from one quarter to four times its current size. The estimate is derived from a
+ * spatially hashed sample of the access stream replayed against a simulated LRU policy.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class HitRateCurve {
+
+  /*
+   * This class uses SHARDS [1] to approximate the miss ratio curve of the workload. A key is
+   * sampled if its hash falls below a threshold, so that every access to a sampled key is observed
+   * and the sample represents a fixed fraction of the key space. The sampled keys are tracked by a
+   * ghost LRU stack, holding only the hashes, that is sized to four times the scaled maximum.
+   *
+   * The stack is divided into equally sized segments, each one quarter of the scaled maximum. The
+   * reuse distance of a sampled access is the segment that its key was found in, so a hit in
+   * segment i would be a hit for any cache at least (i + 1) / 4 times the maximum. This avoids
+   * computing the exact stack distance, as a move-to-front only requires shifting the boundary of
+   * each segment by one entry. The counts are halved periodically so that the curve follows
+   * changes in the workload.
+   *
+   * The ghosts are stored in parallel primitive arrays that are indexed by a slot, where the first
+   * slot is the sentinel of the circular linked list and a link to it denotes the absence of a
+   * ghost. The slots are found by their hash using an open-addressed table with linear probing,
+   * which uses backward shift deletion so that no tombstones are left behind. The arrays are sized
+   * to the stack's capacity when the maximum is set, so recording an access does not allocate.
+   *
+   * The curve describes an LRU cache, which is a lower bound on the hit rate of the cache's
+   * adaptive policy. It is most useful for comparing the relative benefit of a larger or smaller
+   * maximum size, rather than as an exact prediction.
+   *
+   * [1] Efficient MRC Construction with SHARDS
+   * https://www.usenix.org/conference/fast15/technical-sessions/presentation/waldspurger
+   */
+
+  /** The number of segments per multiple of the maximum size. */
+  static final int SEGMENTS_PER_MAXIMUM = 4;
+  /** The largest multiple of the maximum size that is estimated. */
+  static final int MAXIMUM_FACTOR = 4;
+  /** The number of segments that the ghost stack is divided into. */
+  static final int SEGMENTS = SEGMENTS_PER_MAXIMUM * MAXIMUM_FACTOR;
+  /** The maximum number of sampled keys retained by the ghost stack. */
+  static final int MAXIMUM_SAMPLES = 8192;
+  /** The modulus of the hash used to select whether a key is sampled. */
+  static final int SAMPLING_MODULUS = 1 << 24;
+  /** The multiple of the ghost stack's capacity between periodic halving of the counts. */
+  static final int RESET_MULTIPLIER = 10;
+  /** The slot of the ghost stack's sentinel, which also denotes the absence of a ghost. */
+  static final int HEAD = 0;
+
+  final long[] hits;
+  final int[] tails;
+  final int[] sizes;
+  final int[] widths;
+
+  int[] table;
+  int[] hashes;
+  int[] segments;
+  int[] prev;
+  int[] next;
+  int tableShift;
+  int free;
+  int size;
+
+  int threshold;
+  int sampleSize;
+  int accesses;
+
+  /**
+   * Creates an estimator for a cache of the given maximum size.
+   *
+   * @param maximumSize the maximum size of the cache
+   */
+  HitRateCurve(@NonNegative long maximumSize) {
+    tails = new int[SEGMENTS];
+    hits = new long[SEGMENTS];
+    sizes = new int[SEGMENTS];
+    widths = new int[SEGMENTS];
+    resize(maximumSize);
+  }
+
+  /**
+   * Forgets the recorded accesses and adjusts the sampling rate for the new maximum size.
+   *
+   * @param maximumSize the maximum size of the cache
+   */
+  void resize(@NonNegative long maximumSize) {
+    requireArgument(maximumSize >= 0);
+    double rate = Math.min(1.0, (double) MAXIMUM_SAMPLES / (MAXIMUM_FACTOR * maximumSize));
+    threshold = (int) Math.ceil(rate * SAMPLING_MODULUS);
+
+    int capacity = 0;
+    double scaledMaximum = rate * maximumSize;
+    for (int i = 0; i < SEGMENTS; i++) {
+      long lower = Math.round((i * scaledMaximum) / SEGMENTS_PER_MAXIMUM);
+      long upper = Math.round(((i + 1) * scaledMaximum) / SEGMENTS_PER_MAXIMUM);
+      widths[i] = (int) (upper - lower);
+      capacity += widths[i];
+    }
+    sampleSize = (int) Math.max(RESET_MULTIPLIER * MAXIMUM_FACTOR * scaledMaximum, SEGMENTS);
+
+    // A new ghost is added before the stack is rebalanced, so it may briefly exceed its capacity
+    int slots = capacity + 2;
+    table = new int[ceilingPowerOfTwo(2 * slots)];
+    tableShift = Integer.numberOfLeadingZeros(table.length - 1);
+    hashes = new int[slots];
+    segments = new int[slots];
+    prev = new int[slots];
+    next = new int[slots];
+    for (int i = 1; i < (slots - 1); i++) {
+      next[i] = i + 1;
+    }
+    free = 1;
+    size = 0;
+
+    accesses = 0;
+    for (int i = 0; i < SEGMENTS; i++) {
+      tails[i] = HEAD;
+      sizes[i] = 0;
+      hits[i] = 0;
+    }
+  }
+
+  /**
+   * Records an access of the key, if it is sampled.
+   *
+   * @param key the key that was read or written
+   */
+  void record(Object key) {
+    int hash = spread(key.hashCode());
+    if ((hash & (SAMPLING_MODULUS - 1)) >= threshold) {
+      return;
+    }
+
+    int index = indexOf(hash);
+    int slot = table[index];
+    if (slot == HEAD) {
+      slot = free;
+      free = next[slot];
+      hashes[slot] = hash;
+      table[index] = slot;
+      size++;
+    } else {
+      hits[segments[slot]]++;
+      unlink(slot);
+    }
+    linkFirst(slot);
+    rebalance();
+
+    if (++accesses >= sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Returns the estimated hit rate if the maximum size was scaled by the factor.
+   *
+   * @param factor the multiple of the maximum size, in the range of {@code (0.0, 4.0]}
+   * @return the estimated hit rate
+   */
+  double estimate(double factor) {
+    requireArgument((factor > 0.0) && (factor <= MAXIMUM_FACTOR));
+    if (accesses == 0) {
+      return 0.0;
+    }
+
+    double segments = factor * SEGMENTS_PER_MAXIMUM;
+    int whole = (int) segments;
+    double sum = 0.0;
+    for (int i = 0; i < whole; i++) {
+      sum += hits[i];
+    }
+    if (whole < SEGMENTS) {
+      sum += (segments - whole) * hits[whole];
+    }
+    return Math.min(1.0, sum / accesses);
+  }
+
+  /** Returns the table index of the ghost with the hash, or the empty index that it would use. */
+  int indexOf(int hash) {
+    int mask = table.length - 1;
+    for (int i = home(hash); ; i = (i + 1) & mask) {
+      int slot = table[i];
+      if ((slot == HEAD) || (hashes[slot] == hash)) {
+        return i;
+      }
+    }
+  }
+
+  /** Returns the preferred table index of the hash. */
+  int home(int hash) {
+    // The low bits were constrained by the sampling, so the high bits of a product are used
+    return (int) (((hash * 0x9E3779B9L) & 0xFFFFFFFFL) >>> tableShift);
+  }
+
+  /** Removes the ghost's slot from the table and releases it for reuse. */
+  void remove(int slot) {
+    int mask = table.length - 1;
+    int i = indexOf(hashes[slot]);
+    for (int j = (i + 1) & mask; table[j] != HEAD; j = (j + 1) & mask) {
+      // Shift an entry back into the hole unless its home lies cyclically within (i, j]
+      int distance = (j - home(hashes[table[j]])) & mask;
+      if (distance >= ((j - i) & mask)) {
+        table[i] = table[j];
+        i = j;
+      }
+    }
+    table[i] = HEAD;
+
+    next[slot] = free;
+    free = slot;
+    size--;
+  }
+
+  /** Adds the ghost to the head of the first segment. */
+  void linkFirst(int slot) {
+    segments[slot] = 0;
+    prev[slot] = HEAD;
+    next[slot] = next[HEAD];
+    prev[next[HEAD]] = slot;
+    next[HEAD] = slot;
+    if (tails[0] == HEAD) {
+      tails[0] = slot;
+    }
+    sizes[0]++;
+  }
+
+  /** Removes the ghost from its segment. */
+  void unlink(int slot) {
+    int segment = segments[slot];
+    if (tails[segment] == slot) {
+      int previous = prev[slot];
+      tails[segment] = ((previous != HEAD) && (segments[previous] == segment)) ? previous : HEAD;
+    }
+    next[prev[slot]] = next[slot];
+    prev[next[slot]] = prev[slot];
+    sizes[segment]--;
+  }
+
+  /** Demotes the tail of each overflowing segment into the next, evicting from the last. */
+  void rebalance() {
+    for (int i = 0; i < (SEGMENTS - 1); i++) {
+      while (sizes[i] > widths[i]) {
+        // The tail is adjacent to the next segment's head, so only its boundary is shifted
+        int tail = tails[i];
+        int previous = prev[tail];
+        tails[i] = ((previous != HEAD) && (segments[previous] == i)) ? previous : HEAD;
+        sizes[i]--;
+
+        segments[tail] = i + 1;
+        if (tails[i + 1] == HEAD) {
+          tails[i + 1] = tail;
+        }
+        sizes[i + 1]++;
+      }
+    }
+    while (sizes[SEGMENTS - 1] > widths[SEGMENTS - 1]) {
+      int tail = tails[SEGMENTS - 1];
+      unlink(tail);
+      remove(tail);
+    }
+  }
+
+  /** Halves the counts so that older accesses have a diminishing influence on the estimate. */
+  void reset() {
+    accesses >>>= 1;
+    for (int i = 0; i < SEGMENTS; i++) {
+      hits[i] >>>= 1;
+    }
+  }
+
+  /** Applies a supplemental hash function to defend against a poor quality hash. */
+  static int spread(int x) {
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x31848bab;
+    return (x >>> 16) ^ x;
+  }
+}
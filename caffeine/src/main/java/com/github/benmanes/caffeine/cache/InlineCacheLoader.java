@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+/**
+ * A {@link CacheLoader} whose values are cheap to compute, such as when they are derived from data
+ * that is already in memory, so that an {@link AsyncLoadingCache} loads them on the calling thread
+ * instead of on its executor. The cache first inserts an in-flight future for the entry and then
+ * loads the value once the hash table's lock was released, so that a slow load does not block the
+ * writers to other keys in the same bin and the loader may read from or write to the cache.
+ * <p>
+ * A refresh continues to be performed on the executor, as it is triggered by a read that should
+ * not be blocked by the reload.
+ * <p>
+ * Usage example:
+ * <pre>{@code
+ *   InlineCacheLoader<Key, Graph> loader = key -> graphs.lookup(key);
+ *   AsyncLoadingCache<Key, Graph> cache = Caffeine.newBuilder().buildAsync(loader);
+ * }</pre>
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@FunctionalInterface
+@SuppressWarnings("PMD.AvoidCatchingThrowable")
+public interface InlineCacheLoader<K, V> extends CacheLoader<K, V> {
+
+  /**
+   * Computes or retrieves the value corresponding to {@code key} on the calling thread.
+   *
+   * @param key the non-null key whose value should be loaded
+   * @param executor the executor that is not used by this loader
+   * @return the completed future value associated with {@code key}
+   */
+  @Override @NonNull
+  default CompletableFuture<V> asyncLoad(@NonNull K key, @NonNull Executor executor) {
+    requireNonNull(key);
+    requireNonNull(executor);
+    try {
+      return CompletableFuture.completedFuture(load(key));
+    } catch (Throwable t) {
+      return Async.failedFuture(t);
+    }
+  }
+
+  /**
+   * Computes or retrieves the values corresponding to {@code keys} on the calling thread. This
+   * method is called by {@link AsyncLoadingCache#getAll}.
+   *
+   * @param keys the unique, non-null keys whose values should be loaded
+   * @param executor the executor that is not used by this loader
+   * @return a completed future containing the map from each key in {@code keys} to the value
+   *         associated with that key; <b>may not contain null values</b>
+   */
+  @Override @NonNull
+  default CompletableFuture<Map<@NonNull K, @NonNull V>> asyncLoadAll(
+      @NonNull Iterable<? extends K> keys, @NonNull Executor executor) {
+    requireNonNull(keys);
+    requireNonNull(executor);
+    try {
+      return CompletableFuture.completedFuture(loadAll(keys));
+    } catch (Throwable t) {
+      return Async.failedFuture(t);
+    }
+  }
+}
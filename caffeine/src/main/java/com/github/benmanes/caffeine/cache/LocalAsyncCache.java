@@ -89,11 +89,16 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
     long startTime = cache().statsTicker().read();
     @SuppressWarnings({"unchecked", "rawtypes"})
     CompletableFuture<V>[] result = new CompletableFuture[1];
+    boolean[] readyOnInsert = new boolean[1];
     CompletableFuture<V> future = cache().computeIfAbsent(key, k -> {
-      result[0] = mappingFunction.apply(key, cache().executor());
-      return requireNonNull(result[0]);
+      result[0] = requireNonNull(mappingFunction.apply(key, cache().executor()));
+      readyOnInsert[0] = Async.isReady(result[0]);
+      return result[0];
     }, recordStats, /* recordLoad */ false);
-    if (result[0] != null) {
+    if (readyOnInsert[0]) {
+      // the weight and expiration timestamps were calculated when the value was inserted
+      cache().statsCounter().recordLoadSuccess(cache().statsTicker().read() - startTime);
+    } else if (result[0] != null) {
       handleCompletion(key, result[0], startTime, /* recordMiss */ false);
     }
     return future;
@@ -108,12 +113,23 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
   }
 
   @Override
-  @SuppressWarnings("FutureReturnValueIgnored")
   default CompletableFuture<Map<K, V>> getAll(Iterable<? extends @NonNull K> keys,
       BiFunction<Iterable<? extends K>, Executor, CompletableFuture<Map<K, V>>> mappingFunction) {
+    return composeResult(getAllFutures(keys, mappingFunction));
+  }
+
+  /**
+   * Returns the future of the value for each of the keys, in iteration order, where the absent
+   * entries are loaded together by a single call to the mapping function. A future completes with
+   * a {@code null} value if the mapping function did not return an entry for its key.
+   */
+  @SuppressWarnings("FutureReturnValueIgnored")
+  default Map<K, CompletableFuture<V>> getAllFutures(Iterable<? extends @NonNull K> keys,
+      BiFunction<Iterable<? extends K>, Executor, CompletableFuture<Map<K, V>>> mappingFunction) {
     requireNonNull(mappingFunction);
     requireNonNull(keys);
 
+    int negativeHits = 0;
     Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
     Map<K, CompletableFuture<V>> proxies = new HashMap<>();
     for (K key : keys) {
@@ -121,7 +137,10 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
         continue;
       }
       CompletableFuture<V> future = cache().getIfPresent(key, /* recordStats */ false);
-      if (future == null) {
+      if ((future == null) && cache().isNegativelyCached(key)) {
+        future = CompletableFuture.completedFuture(null);
+        negativeHits++;
+      } else if (future == null) {
         CompletableFuture<V> proxy = new CompletableFuture<>();
         future = cache().putIfAbsent(key, proxy);
         if (future == null) {
@@ -131,22 +150,55 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
       }
       futures.put(key, future);
     }
-    cache().statsCounter().recordMisses(proxies.size());
-    cache().statsCounter().recordHits(futures.size() - proxies.size());
+    cache().statsCounter().recordMisses(proxies.size() + negativeHits);
+    cache().statsCounter().recordHits(futures.size() - proxies.size() - negativeHits);
+    if (negativeHits > 0) {
+      cache().statsCounter().recordNegativeHits(negativeHits);
+    }
     if (proxies.isEmpty()) {
-      return composeResult(futures);
+      return Collections.unmodifiableMap(futures);
+    }
+
+    BulkLoadPartitioner partitioner = cache().bulkLoadPartitioner();
+    if ((partitioner != null) && partitioner.shouldPartition(proxies.size())) {
+      loadPartitioned(partitioner, proxies, mappingFunction);
+      return Collections.unmodifiableMap(futures);
     }
 
     AsyncBulkCompleter<K, V> completer = new AsyncBulkCompleter<>(cache(), proxies);
     try {
       mappingFunction.apply(proxies.keySet(), cache().executor()).whenComplete(completer);
-      return composeResult(futures);
+      return Collections.unmodifiableMap(futures);
     } catch (Throwable t) {
       completer.accept(/* result */ null, t);
       throw t;
     }
   }
 
+  /**
+   * Loads the proxied entries in batches, where each batch is requested after a previous one
+   * completes. The proxies of a batch are completed, and the entries inserted, when its load
+   * completes or fails.
+   */
+  @SuppressWarnings("FutureReturnValueIgnored")
+  default void loadPartitioned(BulkLoadPartitioner partitioner,
+      Map<K, CompletableFuture<V>> proxies,
+      BiFunction<Iterable<? extends K>, Executor, CompletableFuture<Map<K, V>>> mappingFunction) {
+    partitioner.forEach(partitioner.partition(proxies.keySet()), batch -> {
+      Map<K, CompletableFuture<V>> batchProxies = new HashMap<>(batch.size());
+      for (K key : batch) {
+        batchProxies.put(key, proxies.get(key));
+      }
+      AsyncBulkCompleter<K, V> completer = new AsyncBulkCompleter<>(cache(), batchProxies);
+      try {
+        return mappingFunction.apply(batch, cache().executor()).whenComplete(completer);
+      } catch (Throwable t) {
+        completer.accept(/* result */ null, t);
+        throw t;
+      }
+    });
+  }
+
   /**
    * Returns a future that waits for all of the dependent futures to complete and returns the
    * combined mapping if successful. If any future fails then it is automatically removed from
@@ -180,8 +232,15 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
       return;
     }
     long startTime = cache().statsTicker().read();
+    boolean readyOnInsert = Async.isReady(valueFuture);
     cache().put(key, valueFuture);
-    handleCompletion(key, valueFuture, startTime, /* recordMiss */ false);
+    cache().invalidateNegative(key);
+    if (readyOnInsert) {
+      // the weight and expiration timestamps were calculated when the value was inserted
+      cache().statsCounter().recordLoadSuccess(cache().statsTicker().read() - startTime);
+    } else {
+      handleCompletion(key, valueFuture, startTime, /* recordMiss */ false);
+    }
   }
 
   @SuppressWarnings("FutureReturnValueIgnored")
@@ -235,9 +294,13 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
         if (error == null) {
           error = new NullMapCompletionException();
         }
+        NegativeCache<K> negativeCache = cache.negativeCache();
         for (Entry<K, CompletableFuture<V>> entry : proxies.entrySet()) {
           cache.remove(entry.getKey(), entry.getValue());
           entry.getValue().obtrudeException(error);
+          if (negativeCache != null) {
+            negativeCache.addIfAbsent(entry.getKey(), cache, entry.getValue());
+          }
         }
         cache.statsCounter().recordLoadFailure(loadTime);
         logger.log(Level.WARNING, "Exception thrown during asynchronous load", error);
@@ -250,11 +313,15 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
 
     /** Populates the proxies with the computed result. */
     private void fillProxies(Map<K, V> result) {
+      NegativeCache<K> negativeCache = cache.negativeCache();
       proxies.forEach((key, future) -> {
         V value = result.get(key);
         future.obtrudeValue(value);
         if (value == null) {
           cache.remove(key, future);
+          if (negativeCache != null) {
+            negativeCache.addIfAbsent(key, cache, future);
+          }
         } else {
           // update the weight and expiration timestamps
           cache.replace(key, future, future);
@@ -532,6 +599,7 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
     public void put(K key, V value) {
       requireNonNull(value);
       asyncCache().cache().put(key, CompletableFuture.completedFuture(value));
+      asyncCache().cache().invalidateNegative(key);
     }
 
     @Override
@@ -542,16 +610,19 @@ interface LocalAsyncCache<K, V> extends AsyncCache<K, V> {
     @Override
     public void invalidate(Object key) {
       asyncCache().cache().remove(key);
+      asyncCache().cache().invalidateNegative(key);
     }
 
     @Override
     public void invalidateAll(Iterable<?> keys) {
       asyncCache().cache().invalidateAll(keys);
+      asyncCache().cache().invalidateAllNegative(keys);
     }
 
     @Override
     public void invalidateAll() {
       asyncCache().cache().clear();
+      asyncCache().cache().invalidateAllNegative();
     }
 
     @Override
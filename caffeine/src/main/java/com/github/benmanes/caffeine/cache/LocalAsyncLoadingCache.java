@@ -15,13 +15,24 @@
  */
 package com.github.benmanes.caffeine.cache;
 
+import static com.github.benmanes.caffeine.cache.Caffeine.requireArgument;
+import static com.github.benmanes.caffeine.cache.Caffeine.requireState;
+import static com.github.benmanes.caffeine.cache.Caffeine.saturatedToNanos;
 import static java.util.Objects.requireNonNull;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -39,14 +50,22 @@ abstract class LocalAsyncLoadingCache<K, V>
   static final Logger logger = Logger.getLogger(LocalAsyncLoadingCache.class.getName());
 
   final boolean canBulkLoad;
+  final boolean loadsInline;
   final AsyncCacheLoader<K, V> loader;
+  final AsyncCacheLoader<K, V> timedLoader;
+  final Scheduler scheduler;
 
   @Nullable LoadingCacheView<K, V> cacheView;
 
   @SuppressWarnings("unchecked")
-  LocalAsyncLoadingCache(AsyncCacheLoader<? super K, V> loader) {
+  LocalAsyncLoadingCache(Caffeine<K, V> builder, AsyncCacheLoader<? super K, V> loader) {
     this.loader = (AsyncCacheLoader<K, V>) loader;
     this.canBulkLoad = canBulkLoad(loader);
+    this.loadsInline = (loader instanceof InlineCacheLoader<?, ?>);
+    this.timedLoader = builder.boundsAsyncLoads()
+        ? new TimedAsyncLoader<>(this.loader, builder, () -> cache().statsCounter())
+        : this.loader;
+    this.scheduler = builder.getScheduler();
   }
 
   /** Returns whether the supplied cache loader has bulk load functionality. */
@@ -54,7 +73,9 @@ abstract class LocalAsyncLoadingCache<K, V>
     try {
       Class<?> defaultLoaderClass = AsyncCacheLoader.class;
       if (loader instanceof CacheLoader<?, ?>) {
-        defaultLoaderClass = CacheLoader.class;
+        defaultLoaderClass = (loader instanceof InlineCacheLoader<?, ?>)
+            ? InlineCacheLoader.class
+            : CacheLoader.class;
 
         Method classLoadAll = loader.getClass().getMethod("loadAll", Iterable.class);
         Method defaultLoadAll = CacheLoader.class.getMethod("loadAll", Iterable.class);
@@ -75,14 +96,63 @@ abstract class LocalAsyncLoadingCache<K, V>
   }
 
   @Override
+  @SuppressWarnings("FutureReturnValueIgnored")
   public CompletableFuture<V> get(K key) {
-    return get(key, loader::asyncLoad);
+    NegativeCache<K> negativeCache = cache().negativeCache();
+    if (negativeCache == null) {
+      return loadIfAbsent(key);
+    } else if (cache().isNegativelyCached(key)) {
+      cache().statsCounter().recordMisses(1);
+      cache().statsCounter().recordNegativeHits(1);
+      return CompletableFuture.completedFuture(null);
+    }
+    CompletableFuture<V> future = loadIfAbsent(key);
+    future.whenComplete((value, error) -> {
+      if (value == null) {
+        negativeCache.addIfAbsent(key, cache(), future);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Returns the future associated with the key, loading it if absent. An inline loader is invoked
+   * on the calling thread only after its in-flight future was installed, rather than from within
+   * the mapping function, so that the hash table's lock is not held while the value is computed.
+   */
+  @SuppressWarnings("FutureReturnValueIgnored")
+  CompletableFuture<V> loadIfAbsent(K key) {
+    if (!loadsInline) {
+      return get(key, timedLoader::asyncLoad);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    CompletableFuture<V>[] pending = new CompletableFuture[1];
+    CompletableFuture<V> future = get(key, (k, executor) -> {
+      pending[0] = new CompletableFuture<>();
+      return pending[0];
+    });
+    if (pending[0] != null) {
+      loader.asyncLoad(key, cache().executor()).whenComplete((value, error) -> {
+        if (error == null) {
+          pending[0].complete(value);
+        } else {
+          pending[0].completeExceptionally(error);
+        }
+      });
+    }
+    return future;
   }
 
   @Override
   public CompletableFuture<Map<K, V>> getAll(Iterable<? extends K> keys) {
+    return composeResult(getAllFutures(keys));
+  }
+
+  @Override
+  public Map<K, CompletableFuture<V>> getAllFutures(Iterable<? extends K> keys) {
     if (canBulkLoad) {
-      return getAll(keys, loader::asyncLoadAll);
+      return getAllFutures(keys, timedLoader::asyncLoadAll);
     }
 
     Map<K, CompletableFuture<V>> result = new LinkedHashMap<>();
@@ -91,7 +161,56 @@ abstract class LocalAsyncLoadingCache<K, V>
       CompletableFuture<V> future = result.computeIfAbsent(key, mappingFunction);
       requireNonNull(future);
     }
-    return composeResult(result);
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  @SuppressWarnings("FutureReturnValueIgnored")
+  public Map<K, CompletableFuture<V>> getAllFutures(Iterable<? extends K> keys, Duration timeout) {
+    long timeoutNanos = saturatedToNanos(timeout);
+    requireArgument(timeoutNanos >= 0, "timeout must not be negative: %s", timeout);
+    requireState(scheduler != Scheduler.disabledScheduler(),
+        "getAllFutures with a timeout requires a scheduler");
+
+    Map<K, CompletableFuture<V>> futures = getAllFutures(keys);
+    Map<K, CompletableFuture<V>> result = new LinkedHashMap<>(futures.size());
+    List<CompletableFuture<V>> pending = new ArrayList<>();
+    futures.forEach((key, future) -> {
+      if (future.isDone()) {
+        result.put(key, future);
+        return;
+      }
+      CompletableFuture<V> view = new CompletableFuture<>();
+      future.whenComplete((value, error) -> {
+        if (error == null) {
+          view.complete(value);
+        } else {
+          view.completeExceptionally(error);
+        }
+      });
+      result.put(key, view);
+      pending.add(view);
+    });
+    if (pending.isEmpty()) {
+      return Collections.unmodifiableMap(result);
+    }
+
+    Future<?> timer = scheduler.schedule(cache().executor(), () -> {
+      for (CompletableFuture<V> view : pending) {
+        view.completeExceptionally(new TimeoutException(
+            "Load did not complete within " + timeoutNanos + " ns"));
+      }
+    }, timeoutNanos, TimeUnit.NANOSECONDS);
+    CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).whenComplete(
+        (ignored, error) -> timer.cancel(/* mayInterruptIfRunning */ false));
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  public CompletableFuture<Void> getAllInBatches(Iterable<? extends K> keys,
+      int batchSize, BiConsumer<? super K, ? super V> action) {
+    requireArgument(batchSize > 0, "batch size must be positive: %s", batchSize);
+    return new BatchedLookup<>(this, keys.iterator(), batchSize, action).start();
   }
 
   @Override
@@ -132,12 +251,13 @@ abstract class LocalAsyncLoadingCache<K, V>
     @SuppressWarnings("FutureReturnValueIgnored")
     public void refresh(K key) {
       requireNonNull(key);
+      asyncCache.cache().invalidateNegative(key);
 
       long[] writeTime = new long[1];
       CompletableFuture<V> oldValueFuture = asyncCache.cache().getIfPresentQuietly(key, writeTime);
       if ((oldValueFuture == null)
           || (oldValueFuture.isDone() && oldValueFuture.isCompletedExceptionally())) {
-        asyncCache.get(key, asyncCache.loader::asyncLoad, /* recordStats */ false);
+        asyncCache.get(key, asyncCache.timedLoader::asyncLoad, /* recordStats */ false);
         return;
       } else if (!oldValueFuture.isDone()) {
         // no-op if load is pending
@@ -147,8 +267,8 @@ abstract class LocalAsyncLoadingCache<K, V>
       oldValueFuture.thenAccept(oldValue -> {
         long now = asyncCache.cache().statsTicker().read();
         CompletableFuture<V> refreshFuture = (oldValue == null)
-            ? asyncCache.loader.asyncLoad(key, asyncCache.cache().executor())
-            : asyncCache.loader.asyncReload(key, oldValue, asyncCache.cache().executor());
+            ? asyncCache.timedLoader.asyncLoad(key, asyncCache.cache().executor())
+            : asyncCache.timedLoader.asyncReload(key, oldValue, asyncCache.cache().executor());
         refreshFuture.whenComplete((newValue, error) -> {
           long loadTime = asyncCache.cache().statsTicker().read() - now;
           if (error != null) {
@@ -52,6 +52,70 @@ interface LocalCache<K, V> extends ConcurrentMap<K, V> {
   /** Returns the {@link Executor} used by this cache. */
   @NonNull Executor executor();
 
+  /** Returns the strategy to partition bulk loads with, or null if loaded in a single batch. */
+  @Nullable BulkLoadPartitioner bulkLoadPartitioner();
+
+  /** Returns the keys recently loaded as absent, or null if absent loads are not remembered. */
+  @Nullable NegativeCache<K> negativeCache();
+
+  /** Returns if the key has no entry in the cache and was recently loaded as absent. */
+  default boolean isNegativelyCached(Object key) {
+    NegativeCache<K> negativeCache = negativeCache();
+    return (negativeCache != null) && negativeCache.contains(key)
+        && (getIfPresentQuietly(key, new long[1]) == null);
+  }
+
+  /** Discards the record of the key having been loaded as absent, if present. */
+  default void invalidateNegative(Object key) {
+    NegativeCache<K> negativeCache = negativeCache();
+    if (negativeCache != null) {
+      negativeCache.invalidate(key);
+    }
+  }
+
+  /** Discards the records of the keys having been loaded as absent, if present. */
+  default void invalidateAllNegative(Iterable<?> keys) {
+    NegativeCache<K> negativeCache = negativeCache();
+    if (negativeCache != null) {
+      negativeCache.invalidateAll(keys);
+    }
+  }
+
+  /** Discards all of the records of keys having been loaded as absent. */
+  default void invalidateAllNegative() {
+    NegativeCache<K> negativeCache = negativeCache();
+    if (negativeCache != null) {
+      negativeCache.invalidateAll();
+    }
+  }
+
+  /** Returns the loads in progress outside of the hash table's locks, or null if loaded within. */
+  @Nullable PendingLoads<K, V> pendingLoads();
+
+  /** Discards the pending load of the key, if present, so that its value is not inserted. */
+  default void invalidatePending(Object key) {
+    PendingLoads<K, V> pendingLoads = pendingLoads();
+    if (pendingLoads != null) {
+      pendingLoads.invalidate(key);
+    }
+  }
+
+  /** Discards the pending loads of the keys, if present, so that their values are not inserted. */
+  default void invalidateAllPending(Iterable<?> keys) {
+    PendingLoads<K, V> pendingLoads = pendingLoads();
+    if (pendingLoads != null) {
+      pendingLoads.invalidateAll(keys);
+    }
+  }
+
+  /** Discards all of the pending loads so that their values are not inserted. */
+  default void invalidateAllPending() {
+    PendingLoads<K, V> pendingLoads = pendingLoads();
+    if (pendingLoads != null) {
+      pendingLoads.invalidateAll();
+    }
+  }
+
   /** Returns whether the cache captures the write time of the entry. */
   boolean hasWriteTime();
 
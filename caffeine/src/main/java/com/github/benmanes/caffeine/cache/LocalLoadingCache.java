@@ -51,7 +51,19 @@ interface LocalLoadingCache<K, V> extends LocalManualCache<K, V>, LoadingCache<K
 
   @Override
   default @Nullable V get(K key) {
-    return cache().computeIfAbsent(key, mappingFunction());
+    NegativeCache<K> negativeCache = cache().negativeCache();
+    if (negativeCache == null) {
+      return get(key, mappingFunction());
+    } else if (cache().isNegativelyCached(key)) {
+      cache().statsCounter().recordMisses(1);
+      cache().statsCounter().recordNegativeHits(1);
+      return null;
+    }
+    V value = get(key, mappingFunction());
+    if (value == null) {
+      negativeCache.addIfAbsent(key, cache(), /* loading */ null);
+    }
+    return value;
   }
 
   @Override
@@ -91,6 +103,7 @@ interface LocalLoadingCache<K, V> extends LocalManualCache<K, V>, LoadingCache<K
   @SuppressWarnings("FutureReturnValueIgnored")
   default void refresh(K key) {
     requireNonNull(key);
+    cache().invalidateNegative(key);
 
     long[] writeTime = new long[1];
     long startTime = cache().statsTicker().read();
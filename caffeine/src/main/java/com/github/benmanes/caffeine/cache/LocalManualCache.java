@@ -17,12 +17,15 @@ package com.github.benmanes.caffeine.cache;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
@@ -59,7 +62,10 @@ interface LocalManualCache<K, V> extends Cache<K, V> {
 
   @Override
   default @Nullable V get(K key, Function<? super K, ? extends V> mappingFunction) {
-    return cache().computeIfAbsent(key, mappingFunction);
+    PendingLoads<K, V> pendingLoads = cache().pendingLoads();
+    return (pendingLoads == null)
+        ? cache().computeIfAbsent(key, mappingFunction)
+        : pendingLoads.computeIfAbsent(cache(), key, mappingFunction);
   }
 
   @Override
@@ -82,6 +88,9 @@ interface LocalManualCache<K, V> extends Cache<K, V> {
       }
       result.put(key, value);
     }
+    if (cache().negativeCache() != null) {
+      skipNegativelyCached(keysToLoad, result);
+    }
     if (keysToLoad.isEmpty()) {
       return found;
     }
@@ -90,27 +99,69 @@ interface LocalManualCache<K, V> extends Cache<K, V> {
     return Collections.unmodifiableMap(result);
   }
 
+  /** Removes the keys that were recently loaded as absent from being loaded or returned. */
+  default void skipNegativelyCached(Set<K> keysToLoad, Map<K, V> result) {
+    int negativeHits = 0;
+    for (Iterator<K> iterator = keysToLoad.iterator(); iterator.hasNext();) {
+      K key = iterator.next();
+      if (cache().isNegativelyCached(key)) {
+        iterator.remove();
+        result.remove(key);
+        negativeHits++;
+      }
+    }
+    if (negativeHits > 0) {
+      cache().statsCounter().recordNegativeHits(negativeHits);
+    }
+  }
+
   /**
    * Performs a non-blocking bulk load of the missing keys. Any missing entry that materializes
    * during the load are replaced when the loaded entries are inserted into the cache.
    */
   default void bulkLoad(Set<K> keysToLoad, Map<K, V> result,
       Function<Iterable<? extends @NonNull K>, @NonNull Map<K, V>> mappingFunction) {
+    BulkLoadPartitioner partitioner = cache().bulkLoadPartitioner();
+    Map<K, V> loaded = ((partitioner == null) || !partitioner.shouldPartition(keysToLoad.size()))
+        ? loadBatch(keysToLoad, mappingFunction)
+        : loadPartitioned(partitioner, keysToLoad, mappingFunction);
+    NegativeCache<K> negativeCache = cache().negativeCache();
+    for (K key : keysToLoad) {
+      V value = loaded.get(key);
+      if (value == null) {
+        result.remove(key);
+        if (negativeCache != null) {
+          negativeCache.addIfAbsent(key, cache(), /* loading */ null);
+        }
+      } else {
+        result.put(key, value);
+      }
+    }
+  }
+
+  /**
+   * Loads the keys in batches on the calling thread and the executor, and waits for them to
+   * complete. The entries of each batch are inserted into the cache when its load completes.
+   */
+  default Map<K, V> loadPartitioned(BulkLoadPartitioner partitioner, Set<K> keysToLoad,
+      Function<Iterable<? extends @NonNull K>, @NonNull Map<K, V>> mappingFunction) {
+    Map<K, V> loaded = new ConcurrentHashMap<>(keysToLoad.size());
+    partitioner.forEachBlocking(partitioner.partition(keysToLoad),
+        batch -> loaded.putAll(loadBatch(batch, mappingFunction)), cache().executor());
+    return loaded;
+  }
+
+  /** Loads the keys and inserts the entries into the cache, returning the loaded mappings. */
+  default Map<K, V> loadBatch(Collection<K> keysToLoad,
+      Function<Iterable<? extends @NonNull K>, @NonNull Map<K, V>> mappingFunction) {
     boolean success = false;
     long startTime = cache().statsTicker().read();
     try {
       Map<K, V> loaded = mappingFunction.apply(keysToLoad);
       loaded.forEach((key, value) ->
           cache().put(key, value, /* notifyWriter */ false));
-      for (K key : keysToLoad) {
-        V value = loaded.get(key);
-        if (value == null) {
-          result.remove(key);
-        } else {
-          result.put(key, value);
-        }
-      }
       success = !loaded.isEmpty();
+      return loaded;
     } catch (RuntimeException e) {
       throw e;
     } catch (Exception e) {
@@ -128,26 +179,31 @@ interface LocalManualCache<K, V> extends Cache<K, V> {
   @Override
   default void put(K key, V value) {
     cache().put(key, value);
+    cache().invalidateNegative(key);
   }
 
   @Override
   default void putAll(Map<? extends K, ? extends V> map) {
     cache().putAll(map);
+    cache().invalidateAllNegative(map.keySet());
   }
 
   @Override
   default void invalidate(Object key) {
     cache().remove(key);
+    cache().invalidateNegative(key);
   }
 
   @Override
   default void invalidateAll(Iterable<?> keys) {
     cache().invalidateAll(keys);
+    cache().invalidateAllNegative(keys);
   }
 
   @Override
   default void invalidateAll() {
     cache().clear();
+    cache().invalidateAllNegative();
   }
 
   @Override
@@ -23,6 +23,7 @@ import static com.github.benmanes.caffeine.cache.UnsafeRefArrayAccess.soElement;
 import java.lang.reflect.Field;
 import java.util.AbstractQueue;
 import java.util.Iterator;
+import java.util.function.Consumer;
 
 /**
  * An MPSC array queue which starts at <i>initialCapacity</i> and grows to <i>maxCapacity</i> in
@@ -338,6 +339,68 @@ abstract class BaseMpscLinkedArrayQueue<E> extends BaseMpscLinkedArrayQueueColdP
     return (E) e;
   }
 
+  /**
+   * Removes up to the limit of elements from the queue and hands them to the consumer, in the order
+   * that they were added. This is equivalent to repeatedly calling {@link #poll()}, but the
+   * consumer's view of the buffer is read once rather than for every element and the consumer index
+   * is published to the producers once for the batch. The index is advanced by a plain write before
+   * each element is handed off and published when the drain ends, even exceptionally, so the
+   * consumer may fail or re-entrantly drain the queue without the elements being lost or consumed
+   * twice.
+   * <p>
+   * This implementation is correct for single consumer thread use only.
+   *
+   * @param consumer the action to perform on each element
+   * @param limit the maximum number of elements to drain
+   * @return the number of elements drained
+   */
+  @SuppressWarnings("unchecked")
+  public int drain(Consumer<E> consumer, int limit) {
+    E[] buffer = consumerBuffer;
+    long index = consumerIndex;
+    long mask = consumerMask;
+
+    int drained = 0;
+    try {
+      for (; drained < limit; drained++) {
+        long offset = modifiedCalcElementOffset(index, mask);
+        Object e = lvElement(buffer, offset);// LoadLoad
+        if (e == null) {
+          if (index == lvProducerIndex()) {
+            break;
+          }
+          // the queue is not empty so spin until the element is visible, as in poll()
+          do {
+            e = lvElement(buffer, offset);
+          } while (e == null);
+        }
+        if (e == JUMP) {
+          buffer = getNextBuffer(buffer, mask);
+          offset = newBufferAndOffset(buffer, index);
+          mask = consumerMask;
+          e = lvElement(buffer, offset);// LoadLoad
+          if (e == null) {
+            throw new IllegalStateException("new buffer must have at least one element");
+          }
+        }
+        soElement(buffer, offset, null);
+        index += 2;
+        consumerIndex = index; // visible to this thread only until published
+        consumer.accept((E) e);
+
+        if (consumerIndex != index) {
+          // the consumer drained re-entrantly, so resume from where it left off
+          buffer = consumerBuffer;
+          index = consumerIndex;
+          mask = consumerMask;
+        }
+      }
+    } finally {
+      soConsumerIndex(consumerIndex);
+    }
+    return drained;
+  }
+
   /**
    * {@inheritDoc}
    * <p>
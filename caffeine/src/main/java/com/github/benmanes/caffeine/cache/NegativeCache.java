@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.cache.Caffeine.requireArgument;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A record of the keys that were recently loaded as absent, so that lookups for them may be
+ * answered without calling the loader again until the record expires. The keys are held apart from
+ * the cache's entries, so that they are not visible through the {@link Cache#asMap()} view and do
+ * not count towards the cache's maximum size or weight, and are instead bounded by their own
+ * maximum size and time-to-live.
+ * <p>
+ * An entry in the cache takes precedence over a negative record of its key, so a lookup must first
+ * determine that the cache does not have the entry. The record is discarded when the key's value
+ * is explicitly written or invalidated through the {@link Cache} interface, but a write through the
+ * map view will only mask it until either the entry is removed or the record expires.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class NegativeCache<K> {
+  final long maximumSize;
+  final long expiresAfterWriteNanos;
+  final Cache<K, Boolean> keys;
+
+  NegativeCache(long maximumSize, long expiresAfterWriteNanos, Ticker ticker, Executor executor) {
+    requireArgument(maximumSize > 0, "maximum size must be positive: %s", maximumSize);
+    requireArgument(expiresAfterWriteNanos > 0,
+        "duration must be positive: %s ns", expiresAfterWriteNanos);
+    this.maximumSize = maximumSize;
+    this.expiresAfterWriteNanos = expiresAfterWriteNanos;
+    this.keys = Caffeine.newBuilder()
+        .expireAfterWrite(expiresAfterWriteNanos, TimeUnit.NANOSECONDS)
+        .maximumSize(maximumSize)
+        .executor(executor)
+        .ticker(ticker)
+        .build();
+  }
+
+  /** Returns if the key was recently loaded as absent. */
+  boolean contains(@NonNull Object key) {
+    return keys.asMap().containsKey(key);
+  }
+
+  /** Records that the key was loaded as absent. */
+  void add(@NonNull K key) {
+    keys.put(key, Boolean.TRUE);
+  }
+
+  /**
+   * Records that the key was loaded as absent, unless the cache now has an entry for it other than
+   * the one that was being loaded. The check is made within the record's computation, so that a
+   * concurrent write to the cache is either observed or discards the record when it invalidates the
+   * key afterwards.
+   *
+   * @param key the key that was loaded as absent
+   * @param cache the cache that the key was loaded for
+   * @param loading the cache's in-flight value for the key, or null if not held by the cache
+   */
+  void addIfAbsent(@NonNull K key, LocalCache<K, ?> cache, @Nullable Object loading) {
+    keys.asMap().compute(key, (k, record) -> {
+      Object current = cache.getIfPresentQuietly(k, new long[1]);
+      return ((current == null) || (current == loading)) ? Boolean.TRUE : record;
+    });
+  }
+
+  /** Discards the record of the key, if present. */
+  void invalidate(@NonNull Object key) {
+    keys.invalidate(key);
+  }
+
+  /** Discards the records of the keys, if present. */
+  void invalidateAll(@NonNull Iterable<?> keysToInvalidate) {
+    keys.invalidateAll(keysToInvalidate);
+  }
+
+  /** Discards all of the records. */
+  void invalidateAll() {
+    keys.invalidateAll();
+  }
+}
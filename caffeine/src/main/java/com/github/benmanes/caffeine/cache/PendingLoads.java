@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.cache.Caffeine.requireState;
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The loads that are in progress for a cache that computes its values outside of the hash table's
+ * locks. A load is registered as a placeholder future that concurrent callers for the same key wait
+ * upon, while the loading thread invokes the mapping function without holding any locks. The value
+ * is then inserted into the cache only if the key was not written to or invalidated in the interim.
+ * <p>
+ * A pending load is discarded when its key is written to or removed, whether through the
+ * {@link Cache} interface or its map view, so that the stale result is not inserted. The loads are
+ * keyed by equality, so this mode may not be combined with weak keys that are compared by identity.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class PendingLoads<K, V> {
+  final ConcurrentHashMap<Object, PendingLoad<V>> loads;
+
+  PendingLoads() {
+    this.loads = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the value associated with the key in the cache, obtaining it from the mapping function
+   * if absent. If the key is already being loaded by another thread, then this method waits for
+   * that load to complete. As when loading under the hash table's lock, only the loading thread is
+   * recorded as a miss and a waiter that receives the loaded value is recorded as a hit. If that
+   * load fails or computes a null value, then a waiter retries by loading the value itself rather
+   * than observing the other thread's failure.
+   */
+  @Nullable V computeIfAbsent(LocalCache<K, V> cache, @NonNull K key,
+      @NonNull Function<? super K, ? extends V> mappingFunction) {
+    requireNonNull(mappingFunction);
+    for (;;) {
+      V value = cache.getIfPresent(key, /* recordStats */ false);
+      if (value != null) {
+        cache.statsCounter().recordHits(1);
+        return value;
+      }
+
+      PendingLoad<V> load = new PendingLoad<>();
+      PendingLoad<V> pending = loads.putIfAbsent(key, load);
+      if (pending != null) {
+        requireState(pending.owner != Thread.currentThread(), "Recursive load of key: %s", key);
+        V result = pending.awaitIfSuccessful();
+        if (result != null) {
+          cache.statsCounter().recordHits(1);
+          return result;
+        }
+        continue;
+      }
+      try {
+        value = cache.getIfPresentQuietly(key, new long[1]);
+        if (value != null) {
+          cache.statsCounter().recordHits(1);
+          load.complete(value);
+          return value;
+        }
+        cache.statsCounter().recordMisses(1);
+        return load(cache, key, mappingFunction, load);
+      } finally {
+        loads.remove(key, load);
+      }
+    }
+  }
+
+  /**
+   * Invokes the mapping function and inserts its value if the load was not discarded. An entry that
+   * was written concurrently is left untouched so that its expiration is not extended.
+   */
+  @Nullable V load(LocalCache<K, V> cache, K key,
+      Function<? super K, ? extends V> mappingFunction, PendingLoad<V> load) {
+    long startTime = cache.statsTicker().read();
+    V value;
+    try {
+      value = mappingFunction.apply(key);
+    } catch (Throwable t) {
+      cache.statsCounter().recordLoadFailure(cache.statsTicker().read() - startTime);
+      load.completeExceptionally(t);
+      throw t;
+    }
+
+    long loadTime = cache.statsTicker().read() - startTime;
+    if (value == null) {
+      cache.statsCounter().recordLoadFailure(loadTime);
+      load.complete(null);
+      return null;
+    }
+    cache.statsCounter().recordLoadSuccess(loadTime);
+
+    V current = cache.computeIfAbsent(key, k -> (loads.get(k) == load) ? value : null,
+        /* recordStats */ false, /* recordLoad */ false);
+    V result = (current == null) ? value : current;
+    load.complete(result);
+    return result;
+  }
+
+  /** Discards the pending load of the key, if present, so that its value is not inserted. */
+  void invalidate(@NonNull Object key) {
+    loads.remove(key);
+  }
+
+  /** Discards the pending loads of the keys, if present. */
+  void invalidateAll(@NonNull Iterable<?> keys) {
+    for (Object key : keys) {
+      loads.remove(key);
+    }
+  }
+
+  /** Discards all of the pending loads. */
+  void invalidateAll() {
+    loads.clear();
+  }
+
+  /** A placeholder for a value being loaded by the owning thread. */
+  static final class PendingLoad<V> extends CompletableFuture<V> {
+    final Thread owner = Thread.currentThread();
+
+    /** Waits for the load to complete and returns its value, or null if the load failed. */
+    @Nullable V awaitIfSuccessful() {
+      try {
+        return join();
+      } catch (CompletionException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.github.benmanes.caffeine.cache;
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
@@ -25,6 +26,8 @@ import java.util.concurrent.TimeUnit;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 /**
  * An access point for inspecting and performing low-level operations based on the cache's runtime
  * characteristics. These operations are optional and dependent on how the cache was constructed
@@ -111,6 +114,54 @@ public interface Policy<K, V> {
   @NonNull
   Optional<Expiration<K, V>> refreshAfterWrite();
 
+  /**
+   * Returns a snapshot of the statistics recorded over the most recent period of time, such as the
+   * hit rate over the last minute. Unlike {@link Cache#stats()}, which is cumulative since the
+   * cache's creation, this reflects the cache's current behavior. Each invocation takes a new
+   * sample, so the returned instance's values are consistent with one another.
+   * <p>
+   * If the cache is not recording statistics or the implementation does not support these
+   * operations, an empty {@link Optional} is returned.
+   *
+   * @return the recent statistics if the cache is recording statistics
+   */
+  @NonNull
+  default Optional<RecentStats> recentStats() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns read-only access to the state of the size-based eviction policy's admission filter,
+   * such as how the adaptive admission window is currently sized and how often candidates were
+   * admitted into the main space. This may be used to correlate changes in the hit rate with the
+   * policy's behavior.
+   * <p>
+   * If the cache was not constructed with a size-based bound or the implementation does not
+   * support these operations, an empty {@link Optional} is returned.
+   *
+   * @return access to the admission policy's state if the cache is bounded by a maximum size
+   */
+  @NonNull
+  default Optional<Admission> admission() {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns access to the version stamps of the cache's entries, which allows a read-modify-write
+   * loop to compute the new value optimistically instead of while holding a lock. This may be
+   * preferred to {@link java.util.Map#compute} when many threads update the same entries and the
+   * computation is expensive.
+   * <p>
+   * If the implementation does not support these operations, an empty {@link Optional} is
+   * returned.
+   *
+   * @return access to the entries' version stamps if supported by the implementation
+   */
+  @NonNull
+  default Optional<Versioning<K, V>> versioning() {
+    return Optional.empty();
+  }
+
   /** The low-level operations for a cache with a size-based eviction policy. */
   interface Eviction<K, V> {
 
@@ -167,6 +218,24 @@ public interface Policy<K, V> {
      */
     void setMaximum(@NonNegative long maximum);
 
+    /**
+     * Returns the estimated hit rate if the maximum size was scaled by the given factor, such as
+     * {@code 0.5} for half or {@code 2.0} for double the current maximum. The estimate is derived
+     * from a sample of the recent accesses replayed against a simulated least-recently-used cache,
+     * so it is best used to compare the benefit of resizing rather than as an exact prediction.
+     * <p>
+     * If the cache was not constructed with {@link Caffeine#recordHitRateCurve()} or does not
+     * support estimating the hit rate, then the {@link OptionalDouble} will be empty.
+     *
+     * @param factor the multiple of the current maximum size, in the range of {@code (0.0, 4.0]}
+     * @return the estimated hit rate if the cache is recording the hit rate curve
+     * @throws IllegalArgumentException if the factor is outside of the range
+     */
+    @NonNull
+    default OptionalDouble estimatedHitRate(double factor) {
+      return OptionalDouble.empty();
+    }
+
     /**
      * Returns an unmodifiable snapshot {@link Map} view of the cache with ordered traversal. The
      * order of iteration is from the entries least likely to be retained (coldest) to the entries
@@ -495,4 +564,206 @@ public interface Policy<K, V> {
     @NonNull
     Map<@NonNull K, @NonNull V> youngest(@NonNegative int limit);
   }
+
+  /**
+   * A read-only view of the admission policy used by a size-bounded cache. New entries are placed
+   * into an admission window and, when evicted from it, a candidate is admitted into the main space
+   * only if it is estimated to be more popular than the main space's victim. The size of the window
+   * is adapted to the workload by sampling the hit rate. Each method reads the current state of the
+   * policy, so the values are not necessarily consistent with each other.
+   */
+  interface Admission {
+
+    /**
+     * Returns the maximum weighted size of the admission window, which is adapted over time.
+     *
+     * @return the maximum weighted size of the admission window
+     */
+    @NonNegative
+    long windowMaximum();
+
+    /**
+     * Returns the maximum weighted size of the main space's protected region, which holds the
+     * entries that were accessed after being admitted.
+     *
+     * @return the maximum weighted size of the main space's protected region
+     */
+    @NonNegative
+    long mainProtectedMaximum();
+
+    /**
+     * Returns the amount that the admission window was most recently adapted by, where a positive
+     * value grew the window and a negative value shrank it.
+     *
+     * @return the most recent adjustment to the admission window's size
+     */
+    long adjustment();
+
+    /**
+     * Returns the step size that the hill climber will next adapt the admission window by, where
+     * the sign indicates the direction. This is not used by the gradient-based strategies of
+     * {@link Caffeine#windowSizing(WindowSizing)}.
+     *
+     * @return the hill climber's current step size
+     */
+    double stepSize();
+
+    /**
+     * Returns the proportion of the popularity sketch's sampling period that has been observed
+     * since its counters were last aged, which ranges from zero to one.
+     *
+     * @return the fraction of the sampling period that has been recorded
+     */
+    @NonNegative
+    double sketchSaturation();
+
+    /**
+     * Returns the number of times that the popularity sketch's counters were aged.
+     *
+     * @return the number of times that the sketch was reset
+     */
+    @NonNegative
+    long sketchResetCount();
+
+    /**
+     * Returns the number of candidates that were admitted into the main space by evicting the
+     * victim, after their popularity was compared.
+     *
+     * @return the number of admitted candidates
+     */
+    @NonNegative
+    long admittedCount();
+
+    /**
+     * Returns the number of candidates that were evicted rather than admitted into the main space,
+     * after their popularity was compared to the victim's.
+     *
+     * @return the number of rejected candidates
+     */
+    @NonNegative
+    long rejectedCount();
+  }
+
+  /**
+   * The operations for an optimistic read-modify-write of an entry. A value is read along with a
+   * stamp of the write that stored it, a new value is computed without holding a lock, and the
+   * replacement is performed only if the entry was not written to in the meantime. If the
+   * replacement fails then the caller may retry by reading the current stamp.
+   * <p>
+   * Usage example:
+   * <pre>{@code
+   *   Versioning<Key, Graph> versioning = cache.policy().versioning().get();
+   *   for (;;) {
+   *     Optional<Versioned<Graph>> current = versioning.getVersioned(key);
+   *     if (!current.isPresent()
+   *         || versioning.replaceIfVersion(key, current.get(), merge(current.get().value()))) {
+   *       break;
+   *     }
+   *   }
+   * }</pre>
+   */
+  interface Versioning<K, V> {
+
+    /**
+     * Returns the value associated with the {@code key} in this cache, along with the stamp of the
+     * write that stored it, or {@link Optional#empty()} if there is no cached value for the
+     * {@code key}. This method does not alter the entry's position in the eviction policy or
+     * record a hit or miss in the cache's statistics.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the stamped value to which the specified key is mapped
+     * @throws NullPointerException if the specified key is null
+     */
+    @NonNull
+    Optional<Versioned<V>> getVersioned(@NonNull K key);
+
+    /**
+     * Replaces the value associated with the {@code key} only if the entry was not written to since
+     * the {@code versioned} stamp was read. The stamp reflects the identity of the value that was
+     * written, similar to {@link java.util.concurrent.atomic.AtomicReference#compareAndSet}, so a
+     * write of the same instance does not change it. Unlike {@link java.util.Map#compute}, the
+     * cache's hash table is not locked, as only the entry itself is updated.
+     *
+     * @param key the key whose associated value is to be replaced
+     * @param versioned the stamped value that was read by {@link #getVersioned}
+     * @param value the value to be associated with the specified key
+     * @return {@code true} if the value was replaced
+     * @throws NullPointerException if the specified key, stamp, or value is null
+     * @throws IllegalArgumentException if the stamp was not read from this cache for the key
+     */
+    boolean replaceIfVersion(@NonNull K key, @NonNull Versioned<V> versioned, @NonNull V value);
+  }
+
+  /** A value along with an opaque stamp of the write that stored it. */
+  interface Versioned<V> {
+
+    /**
+     * Returns the value that was read.
+     *
+     * @return the value at the time that the stamp was read
+     */
+    @NonNull
+    V value();
+  }
+
+  /**
+   * An immutable snapshot of the statistics recorded by the cache over a rolling window of time.
+   * The cumulative statistics are sampled at a fixed interval into a ring buffer, so that the
+   * difference from the oldest sample within the window is reported. If no earlier sample is within
+   * the window, then the most recent sample that preceded it is used and the snapshot spans a
+   * longer period, as reported by {@link #elapsed()}.
+   */
+  interface RecentStats {
+
+    /**
+     * Returns the duration of time that the statistics are retained for, which is the maximum
+     * period that a {@link #snapshot()} spans unless no earlier sample was taken within it.
+     *
+     * @return the duration of the rolling window
+     */
+    @NonNull
+    Duration window();
+
+    /**
+     * Returns the duration of time between when the baseline sample was taken and when this
+     * snapshot was taken, which is the period that the {@link #snapshot()} spans.
+     *
+     * @return the duration spanned by the recent statistics
+     */
+    @NonNull
+    Duration elapsed();
+
+    /**
+     * Returns the statistics recorded within the {@link #elapsed()} duration.
+     *
+     * @return the statistics recorded during the recent period
+     */
+    @NonNull
+    CacheStats snapshot();
+
+    /**
+     * Returns the average number of lookups per second within the {@link #elapsed()} duration.
+     *
+     * @return the recent rate of cache lookups
+     */
+    @NonNegative
+    double requestsPerSecond();
+
+    /**
+     * Returns the average number of hits per second within the {@link #elapsed()} duration.
+     *
+     * @return the recent rate of cache hits
+     */
+    @NonNegative
+    double hitsPerSecond();
+
+    /**
+     * Returns the average number of loads, both successful and failed, per second within the
+     * {@link #elapsed()} duration.
+     *
+     * @return the recent rate of cache loads
+     */
+    @NonNegative
+    double loadsPerSecond();
+  }
 }
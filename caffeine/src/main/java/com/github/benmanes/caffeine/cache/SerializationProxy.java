@@ -38,13 +38,23 @@ final class SerializationProxy<K, V> implements Serializable {
   boolean weakValues;
   boolean softValues;
   boolean isRecordingStats;
+  boolean isRecordingHitRateCurve;
+  boolean isSamplingReads;
+  boolean usesAdmissionDoorkeeper;
+  boolean loadsOutsideOfLock;
   long refreshAfterWriteNanos;
   long expiresAfterWriteNanos;
+  long staleWhileRevalidateNanos;
   long expiresAfterAccessNanos;
   long maximumSize = UNSET_INT;
   long maximumWeight = UNSET_INT;
+  int bulkLoadBatchSize = UNSET_INT;
+  int bulkLoadParallelism = UNSET_INT;
+  long negativeMaximumSize = UNSET_INT;
+  long negativeExpiresAfterWriteNanos;
 
   @Nullable Ticker ticker;
+  @Nullable WindowSizing windowSizing;
   @Nullable Expiry<?, ?> expiry;
   @Nullable Weigher<?, ?> weigher;
   @Nullable CacheWriter<?, ?> writer;
@@ -60,6 +70,28 @@ final class SerializationProxy<K, V> implements Serializable {
     if (isRecordingStats) {
       builder.recordStats();
     }
+    if (isRecordingHitRateCurve) {
+      builder.recordHitRateCurve();
+    }
+    if (windowSizing != null) {
+      builder.windowSizing(windowSizing);
+    }
+    if (isSamplingReads) {
+      builder.sampleReads();
+    }
+    if (usesAdmissionDoorkeeper) {
+      builder.admissionDoorkeeper();
+    }
+    if (loadsOutsideOfLock) {
+      builder.loadOutsideOfLock();
+    }
+    if (bulkLoadBatchSize != UNSET_INT) {
+      builder.bulkLoadPartitioning(bulkLoadBatchSize, bulkLoadParallelism);
+    }
+    if (negativeMaximumSize != UNSET_INT) {
+      builder.negativeCaching(negativeMaximumSize,
+          negativeExpiresAfterWriteNanos, TimeUnit.NANOSECONDS);
+    }
     if (maximumSize != UNSET_INT) {
       builder.maximumSize(maximumSize);
     }
@@ -76,6 +108,9 @@ final class SerializationProxy<K, V> implements Serializable {
     if (expiresAfterAccessNanos > 0) {
       builder.expireAfterAccess(expiresAfterAccessNanos, TimeUnit.NANOSECONDS);
     }
+    if (staleWhileRevalidateNanos > 0) {
+      builder.staleWhileRevalidate(staleWhileRevalidateNanos, TimeUnit.NANOSECONDS);
+    }
     if (refreshAfterWriteNanos > 0) {
       builder.refreshAfterWrite(refreshAfterWriteNanos, TimeUnit.NANOSECONDS);
     }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import com.github.benmanes.caffeine.cache.Policy.RecentStats;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * The statistics recorded over a rolling window of time. The cumulative statistics are sampled into
+ * a ring buffer of intervals, where the first sample taken during an interval is retained. The
+ * recent statistics are the difference between a new sample and the oldest one within the window.
+ * <p>
+ * A sample is taken when the statistics are queried and, for a bounded cache, during its periodic
+ * maintenance so that the window is populated even if it is rarely queried. If no earlier sample
+ * lies within the window, such as when an idle unbounded cache is polled less often than the
+ * window's length, then the most recent sample that preceded the window is used instead. The
+ * elapsed time reports the period that was actually spanned.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class StatsWindow {
+  static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+  static final int INTERVALS = 60;
+
+  final LocalCache<?, ?> cache;
+
+  final @Nullable CacheStats[] samples;
+  final long[] intervals;
+  final long[] times;
+
+  @Nullable CacheStats overwritten;
+  long overwrittenTime;
+
+  /**
+   * Creates a window that reads from the cache's statistics lazily, as the cache may not be fully
+   * constructed yet.
+   */
+  StatsWindow(LocalCache<?, ?> cache) {
+    this.cache = cache;
+    samples = new CacheStats[INTERVALS];
+    intervals = new long[INTERVALS];
+    times = new long[INTERVALS];
+    Arrays.fill(intervals, Long.MIN_VALUE);
+  }
+
+  /** Records a sample if one has not been taken during the current interval. */
+  synchronized void tick() {
+    long now = cache.statsTicker().read();
+    long interval = Math.floorDiv(now, INTERVAL);
+    int index = (int) Math.floorMod(interval, (long) samples.length);
+    if (intervals[index] != interval) {
+      record(index, interval, now, cache.statsCounter().snapshot());
+    }
+  }
+
+  /** Records the current statistics and returns the difference from the start of the window. */
+  synchronized RecentStats sample() {
+    long now = cache.statsTicker().read();
+    CacheStats current = cache.statsCounter().snapshot();
+    long interval = Math.floorDiv(now, INTERVAL);
+    int index = (int) Math.floorMod(interval, (long) samples.length);
+    if (intervals[index] != interval) {
+      record(index, interval, now, current);
+    }
+
+    // The oldest earlier sample within the window, else the newest one that preceded the window
+    int oldest = -1;
+    int newestExpired = -1;
+    for (int i = 0; i < samples.length; i++) {
+      if ((samples[i] == null) || (times[i] >= now)) {
+        continue;
+      } else if (intervals[i] > interval - INTERVALS) {
+        if ((oldest == -1) || (times[i] < times[oldest])) {
+          oldest = i;
+        }
+      } else if ((newestExpired == -1) || (times[i] > times[newestExpired])) {
+        newestExpired = i;
+      }
+    }
+
+    if (oldest != -1) {
+      return newSample(current, samples[oldest], now - times[oldest]);
+    }
+    long expiredTime = (newestExpired == -1) ? Long.MIN_VALUE : times[newestExpired];
+    if ((overwritten != null) && ((newestExpired == -1) || (overwrittenTime > expiredTime))) {
+      return newSample(current, overwritten, now - overwrittenTime);
+    } else if (newestExpired != -1) {
+      return newSample(current, samples[newestExpired], now - expiredTime);
+    }
+    return new Sample(CacheStats.empty(), 0L);
+  }
+
+  /** Stores the sample in the slot, retaining the replaced sample as a fallback baseline. */
+  private void record(int index, long interval, long now, CacheStats current) {
+    if ((samples[index] != null) && ((overwritten == null) || (times[index] > overwrittenTime))) {
+      overwritten = samples[index];
+      overwrittenTime = times[index];
+    }
+    intervals[index] = interval;
+    samples[index] = current;
+    times[index] = now;
+  }
+
+  private static Sample newSample(CacheStats current, @Nullable CacheStats start, long elapsed) {
+    @SuppressWarnings("NullAway")
+    CacheStats recent = current.minus(start);
+    return new Sample(recent, elapsed);
+  }
+
+  /** The statistics recorded since the start of the window and the time elapsed since then. */
+  static final class Sample implements RecentStats {
+    final CacheStats stats;
+    final long elapsed;
+
+    Sample(CacheStats stats, long elapsed) {
+      this.elapsed = elapsed;
+      this.stats = stats;
+    }
+
+    @Override
+    public Duration window() {
+      return Duration.ofNanos(INTERVALS * INTERVAL);
+    }
+
+    @Override
+    public Duration elapsed() {
+      return Duration.ofNanos(elapsed);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+      return stats;
+    }
+
+    @Override
+    public double requestsPerSecond() {
+      return perSecond(stats.requestCount());
+    }
+
+    @Override
+    public double hitsPerSecond() {
+      return perSecond(stats.hitCount());
+    }
+
+    @Override
+    public double loadsPerSecond() {
+      return perSecond(stats.loadCount());
+    }
+
+    double perSecond(long count) {
+      return (elapsed == 0) ? 0.0 : (double) count * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+  }
+}
@@ -28,6 +28,7 @@ import java.util.function.Consumer;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import com.github.benmanes.caffeine.base.ThreadProbe;
 import com.github.benmanes.caffeine.base.UnsafeAccess;
 
 /**
@@ -87,7 +88,6 @@ abstract class StripedBuffer<E> implements Buffer<E> {
    */
 
   static final long TABLE_BUSY = UnsafeAccess.objectFieldOffset(StripedBuffer.class, "tableBusy");
-  static final long PROBE = UnsafeAccess.objectFieldOffset(Thread.class, "threadLocalRandomProbe");
 
   /** Number of CPUS. */
   static final int NCPU = Runtime.getRuntime().availableProcessors();
@@ -109,26 +109,6 @@ abstract class StripedBuffer<E> implements Buffer<E> {
     return UnsafeAccess.UNSAFE.compareAndSwapInt(this, TABLE_BUSY, 0, 1);
   }
 
-  /**
-   * Returns the probe value for the current thread. Duplicated from ThreadLocalRandom because of
-   * packaging restrictions.
-   */
-  static final int getProbe() {
-    return UnsafeAccess.UNSAFE.getInt(Thread.currentThread(), PROBE);
-  }
-
-  /**
-   * Pseudo-randomly advances and records the given probe value for the given thread. Duplicated
-   * from ThreadLocalRandom because of packaging restrictions.
-   */
-  static final int advanceProbe(int probe) {
-    probe ^= probe << 13; // xorshift
-    probe ^= probe >>> 17;
-    probe ^= probe << 5;
-    UnsafeAccess.UNSAFE.putInt(Thread.currentThread(), PROBE, probe);
-    return probe;
-  }
-
   /**
    * Creates a new buffer instance after resizing to accommodate a producer.
    *
@@ -146,7 +126,7 @@ abstract class StripedBuffer<E> implements Buffer<E> {
     Buffer<E>[] buffers = table;
     if ((buffers == null)
         || (mask = buffers.length - 1) < 0
-        || (buffer = buffers[getProbe() & mask]) == null
+        || (buffer = buffers[ThreadProbe.get() & mask]) == null
         || !(uncontended = ((result = buffer.offer(e)) != Buffer.FAILED))) {
       expandOrRetry(e, uncontended);
     }
@@ -207,9 +187,9 @@ abstract class StripedBuffer<E> implements Buffer<E> {
   @SuppressWarnings("PMD.ConfusingTernary")
   final void expandOrRetry(E e, boolean wasUncontended) {
     int h;
-    if ((h = getProbe()) == 0) {
+    if ((h = ThreadProbe.get()) == 0) {
       ThreadLocalRandom.current(); // force initialization
-      h = getProbe();
+      h = ThreadProbe.get();
       wasUncontended = true;
     }
     boolean collide = false; // True if last slot nonempty
@@ -257,7 +237,7 @@ abstract class StripedBuffer<E> implements Buffer<E> {
           collide = false;
           continue; // Retry with expanded table
         }
-        h = advanceProbe(h);
+        h = ThreadProbe.advance(h);
       } else if ((tableBusy == 0) && (table == buffers) && casTableBusy()) {
         boolean init = false;
         try { // Initialize table
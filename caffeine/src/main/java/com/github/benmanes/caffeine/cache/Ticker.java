@@ -41,6 +41,22 @@ public interface Ticker {
     return SystemTicker.INSTANCE;
   }
 
+  /**
+   * Returns a ticker that reads a cached value of {@link System#nanoTime}, which is refreshed by a
+   * shared background thread at a resolution of approximately one millisecond. This reduces the
+   * cost of the time reads performed by expiration and statistics on platforms where querying the
+   * system clock is expensive, at the penalty of entries expiring slightly later and load times
+   * being measured coarsely. The background thread is started when this method creates the
+   * ticker and wakes up every millisecond until the ticker is no longer referenced, such as by a
+   * cache, and has been garbage collected. Subsequent calls return the same ticker while it remains
+   * in use.
+   *
+   * @return a ticker that reads a periodically refreshed value of {@link System#nanoTime}
+   */
+  static @NonNull Ticker coarseTicker() {
+    return CoarseTicker.shared();
+  }
+
   /**
    * Returns a ticker that always returns {@code 0}.
    *
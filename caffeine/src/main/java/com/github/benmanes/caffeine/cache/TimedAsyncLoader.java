@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.cache.Caffeine.UNSET_INT;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+
+/**
+ * A loader that bounds how long the cache waits on the futures returned by the delegate. A load
+ * that has not completed within the timeout is failed with a {@link TimeoutException}, so that the
+ * cache discards it, and a single-key load that has not completed within the hedging delay is
+ * raced against a second attempt.
+ * <p>
+ * The delegate's futures are never completed or cancelled by this loader. Instead, a proxy future
+ * is returned to the cache which is completed by the first successful attempt, by the last failed
+ * attempt, or by the timer, whichever occurs first. A future that is already complete is returned
+ * as is, as it does not require any timers.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class TimedAsyncLoader<K, V> implements AsyncCacheLoader<K, V> {
+  final Supplier<StatsCounter> statsCounter;
+  final AsyncCacheLoader<K, V> delegate;
+  final Scheduler scheduler;
+  final long timeoutNanos;
+  final long hedgeNanos;
+
+  TimedAsyncLoader(AsyncCacheLoader<K, V> delegate, Caffeine<?, ?> builder,
+      Supplier<StatsCounter> statsCounter) {
+    this.delegate = requireNonNull(delegate);
+    this.statsCounter = requireNonNull(statsCounter);
+    this.timeoutNanos = builder.asyncLoadTimeoutNanos;
+    this.hedgeNanos = builder.hedgeAsyncLoadNanos;
+    this.scheduler = builder.getScheduler();
+  }
+
+  @Override
+  public CompletableFuture<V> asyncLoad(K key, Executor executor) {
+    CompletableFuture<V> future = delegate.asyncLoad(key, executor);
+    if (future.isDone()) {
+      return future;
+    }
+
+    CompletableFuture<V> result = new CompletableFuture<>();
+    AtomicInteger attempts = new AtomicInteger(1);
+    settle(future, result, attempts);
+    if (hedgeNanos != UNSET_INT) {
+      Future<?> hedge = scheduler.schedule(executor,
+          () -> hedge(key, executor, result, attempts), hedgeNanos, TimeUnit.NANOSECONDS);
+      result.whenComplete((value, error) -> hedge.cancel(/* mayInterruptIfRunning */ false));
+    }
+    scheduleTimeout(result, executor);
+    return result;
+  }
+
+  @Override
+  public CompletableFuture<Map<K, V>> asyncLoadAll(
+      Iterable<? extends K> keys, Executor executor) {
+    return withTimeout(delegate.asyncLoadAll(keys, executor), executor);
+  }
+
+  @Override
+  public CompletableFuture<V> asyncReload(K key, V oldValue, Executor executor) {
+    return withTimeout(delegate.asyncReload(key, oldValue, executor), executor);
+  }
+
+  /** Issues a second attempt to load the key if the result is still pending. */
+  void hedge(K key, Executor executor, CompletableFuture<V> result, AtomicInteger attempts) {
+    if (result.isDone()) {
+      return;
+    }
+    attempts.incrementAndGet();
+    statsCounter.get().recordHedgedLoads(1);
+
+    CompletableFuture<V> future;
+    try {
+      future = delegate.asyncLoad(key, executor);
+    } catch (Throwable t) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(t);
+    }
+    settle(future, result, attempts);
+  }
+
+  /** Returns a proxy of the future that is failed if not completed within the timeout. */
+  <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Executor executor) {
+    if ((timeoutNanos == UNSET_INT) || future.isDone()) {
+      return future;
+    }
+    CompletableFuture<T> result = new CompletableFuture<>();
+    settle(future, result, new AtomicInteger(1));
+    scheduleTimeout(result, executor);
+    return result;
+  }
+
+  /** Fails the result if it has not completed within the timeout. */
+  void scheduleTimeout(CompletableFuture<?> result, Executor executor) {
+    if (timeoutNanos == UNSET_INT) {
+      return;
+    }
+    Future<?> timer = scheduler.schedule(executor, () -> {
+      result.completeExceptionally(new TimeoutException(
+          "Load did not complete within " + timeoutNanos + " ns"));
+    }, timeoutNanos, TimeUnit.NANOSECONDS);
+    result.whenComplete((value, error) -> timer.cancel(/* mayInterruptIfRunning */ false));
+  }
+
+  /**
+   * Completes the result with the attempt's value, or with its failure if it is the last of the
+   * attempts to remain outstanding.
+   */
+  static <T> void settle(CompletableFuture<T> attempt,
+      CompletableFuture<T> result, AtomicInteger attempts) {
+    attempt.whenComplete((value, error) -> {
+      if (error == null) {
+        result.complete(value);
+      } else if (attempts.decrementAndGet() == 0) {
+        result.completeExceptionally(error);
+      }
+    });
+  }
+}
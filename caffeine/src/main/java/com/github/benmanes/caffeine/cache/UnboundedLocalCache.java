@@ -59,6 +59,10 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
   final StatsCounter statsCounter;
   final boolean isRecordingStats;
   final CacheWriter<K, V> writer;
+  final @Nullable BulkLoadPartitioner bulkLoadPartitioner;
+  final @Nullable NegativeCache<K> negativeCache;
+  final @Nullable PendingLoads<K, V> pendingLoads;
+  final @Nullable StatsWindow statsWindow;
   final Executor executor;
   final Ticker ticker;
 
@@ -72,8 +76,15 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
     this.removalListener = builder.getRemovalListener(async);
     this.isRecordingStats = builder.isRecordingStats();
     this.writer = builder.getCacheWriter();
+    this.bulkLoadPartitioner = builder.getBulkLoadPartitioner();
+    this.negativeCache = builder.newNegativeCache();
+    this.pendingLoads = builder.newPendingLoads();
     this.executor = builder.getExecutor();
     this.ticker = builder.getTicker();
+    this.statsWindow = isRecordingStats ? new StatsWindow(this) : null;
+    if (statsWindow != null) {
+      statsWindow.tick();
+    }
   }
 
   @Override
@@ -167,6 +178,21 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
     return executor;
   }
 
+  @Override
+  public @Nullable BulkLoadPartitioner bulkLoadPartitioner() {
+    return bulkLoadPartitioner;
+  }
+
+  @Override
+  public @Nullable NegativeCache<K> negativeCache() {
+    return negativeCache;
+  }
+
+  @Override
+  public @Nullable PendingLoads<K, V> pendingLoads() {
+    return pendingLoads;
+  }
+
   @Override
   public Ticker expirationTicker() {
     return Ticker.disabledTicker();
@@ -253,6 +279,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
     if (!data.containsKey(key)) {
       return null;
     }
+    invalidatePending(key);
 
     // ensures that the removal notification is processed after the removal has completed
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -280,6 +307,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
   public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction,
       boolean recordMiss, boolean recordLoad, boolean recordLoadFailure) {
     requireNonNull(remappingFunction);
+    invalidatePending(key);
     return remap(key, statsAware(remappingFunction, recordMiss, recordLoad, recordLoadFailure));
   }
 
@@ -287,6 +315,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
   public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
     requireNonNull(remappingFunction);
     requireNonNull(value);
+    invalidatePending(key);
 
     return remap(key, (k, oldValue) ->
       (oldValue == null) ? value : statsAware(remappingFunction).apply(oldValue, value));
@@ -337,6 +366,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
 
   @Override
   public void clear() {
+    invalidateAllPending();
     if (!hasRemovalListener() && (writer == CacheWriter.disabledWriter())) {
       data.clear();
       return;
@@ -369,6 +399,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
   @Override
   public @Nullable V put(K key, V value, boolean notifyWriter) {
     requireNonNull(value);
+    invalidatePending(key);
 
     // ensures that the removal notification is processed after the removal has completed
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -416,6 +447,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
 
   @Override
   public @Nullable V remove(Object key) {
+    invalidatePending(key);
     @SuppressWarnings("unchecked")
     K castKey = (K) key;
     @SuppressWarnings({"unchecked", "rawtypes"})
@@ -444,6 +476,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
       requireNonNull(key);
       return false;
     }
+    invalidatePending(key);
 
     @SuppressWarnings("unchecked")
     K castKey = (K) key;
@@ -868,7 +901,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
 
     @Override
     public Policy<K, V> policy() {
-      return (policy == null) ? (policy = new UnboundedPolicy<>(cache.isRecordingStats)) : policy;
+      return (policy == null) ? (policy = new UnboundedPolicy<>(cache)) : policy;
     }
 
     @SuppressWarnings("UnusedVariable")
@@ -882,19 +915,28 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
       proxy.removalListener = cache.removalListener;
       proxy.ticker = cache.ticker;
       proxy.writer = cache.writer;
+      if (cache.bulkLoadPartitioner != null) {
+        proxy.bulkLoadBatchSize = cache.bulkLoadPartitioner.batchSize;
+        proxy.bulkLoadParallelism = cache.bulkLoadPartitioner.parallelism;
+      }
+      if (cache.negativeCache != null) {
+        proxy.negativeMaximumSize = cache.negativeCache.maximumSize;
+        proxy.negativeExpiresAfterWriteNanos = cache.negativeCache.expiresAfterWriteNanos;
+      }
+      proxy.loadsOutsideOfLock = (cache.pendingLoads != null);
       return proxy;
     }
   }
 
   /** An eviction policy that supports no boundings. */
   static final class UnboundedPolicy<K, V> implements Policy<K, V> {
-    private final boolean isRecordingStats;
+    private final UnboundedLocalCache<?, ?> cache;
 
-    UnboundedPolicy(boolean isRecordingStats) {
-      this.isRecordingStats = isRecordingStats;
+    UnboundedPolicy(UnboundedLocalCache<?, ?> cache) {
+      this.cache = cache;
     }
     @Override public boolean isRecordingStats() {
-      return isRecordingStats;
+      return cache.isRecordingStats;
     }
     @Override public Optional<Eviction<K, V>> eviction() {
       return Optional.empty();
@@ -908,6 +950,11 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
     @Override public Optional<Expiration<K, V>> refreshAfterWrite() {
       return Optional.empty();
     }
+    @Override public Optional<RecentStats> recentStats() {
+      return (cache.statsWindow == null)
+          ? Optional.empty()
+          : Optional.of(cache.statsWindow.sample());
+    }
   }
 
   /* --------------- Loading Cache --------------- */
@@ -990,7 +1037,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
 
     @Override
     public Policy<K, V> policy() {
-      return (policy == null) ? (policy = new UnboundedPolicy<>(cache.isRecordingStats)) : policy;
+      return (policy == null) ? (policy = new UnboundedPolicy<>(cache)) : policy;
     }
 
     @SuppressWarnings("UnusedVariable")
@@ -1004,6 +1051,14 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
       proxy.removalListener = cache.removalListener;
       proxy.ticker = cache.ticker;
       proxy.writer = cache.writer;
+      if (cache.bulkLoadPartitioner != null) {
+        proxy.bulkLoadBatchSize = cache.bulkLoadPartitioner.batchSize;
+        proxy.bulkLoadParallelism = cache.bulkLoadPartitioner.parallelism;
+      }
+      if (cache.negativeCache != null) {
+        proxy.negativeMaximumSize = cache.negativeCache.maximumSize;
+        proxy.negativeExpiresAfterWriteNanos = cache.negativeCache.expiresAfterWriteNanos;
+      }
       proxy.async = true;
       return proxy;
     }
@@ -1022,7 +1077,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
 
     @SuppressWarnings("unchecked")
     UnboundedLocalAsyncLoadingCache(Caffeine<K, V> builder, AsyncCacheLoader<? super K, V> loader) {
-      super(loader);
+      super(builder, loader);
       cache = new UnboundedLocalCache<>(
           (Caffeine<K, CompletableFuture<V>>) builder, /* async */ true);
     }
@@ -1039,7 +1094,7 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
 
     @Override
     public Policy<K, V> policy() {
-      return (policy == null) ? (policy = new UnboundedPolicy<>(cache.isRecordingStats)) : policy;
+      return (policy == null) ? (policy = new UnboundedPolicy<>(cache)) : policy;
     }
 
     @SuppressWarnings("UnusedVariable")
@@ -1053,6 +1108,14 @@ final class UnboundedLocalCache<K, V> implements LocalCache<K, V> {
       proxy.removalListener = cache.removalListener();
       proxy.ticker = cache.ticker;
       proxy.writer = cache.writer;
+      if (cache.bulkLoadPartitioner != null) {
+        proxy.bulkLoadBatchSize = cache.bulkLoadPartitioner.batchSize;
+        proxy.bulkLoadParallelism = cache.bulkLoadPartitioner.parallelism;
+      }
+      if (cache.negativeCache != null) {
+        proxy.negativeMaximumSize = cache.negativeCache.maximumSize;
+        proxy.negativeExpiresAfterWriteNanos = cache.negativeCache.expiresAfterWriteNanos;
+      }
       proxy.loader = loader;
       proxy.async = true;
       return proxy;
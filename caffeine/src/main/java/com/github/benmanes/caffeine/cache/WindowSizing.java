@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+/**
+ * The strategies that a size-bounded cache may use to adapt the size of its admission window. A
+ * large window favors recency-biased workloads while a small one favors frequency-biased workloads,
+ * so the cache periodically samples its hit rate and resizes the window towards the configuration
+ * that it predicts is optimal.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public enum WindowSizing {
+
+  /**
+   * A hill climber that steps in the direction that improved the hit rate, decaying the step size
+   * until it converges and restarting when the hit rate changes significantly. The hit rate is
+   * sampled over a period that is proportional to the maximum size. This is the default strategy.
+   */
+  HILL_CLIMBING,
+
+  /**
+   * An Adaptive Moment Estimation (Adam) optimizer, which walks the gradient of the miss rate with
+   * momentum and an adaptive step size. The hit rate is sampled over short periods, so the window
+   * is adjusted by small steps that quickly respond to a phase change in the workload. The method
+   * is described in <a href="https://arxiv.org/abs/1412.6980">Adam: A Method for Stochastic
+   * Optimization</a>.
+   */
+  ADAM,
+
+  /**
+   * A variant of {@link #ADAM} that applies Nesterov momentum, which looks ahead in the direction
+   * of the momentum to correct its course sooner.
+   */
+  NADAM,
+
+  /**
+   * A variant of {@link #ADAM} that uses the maximum of the past squared gradients, rather than
+   * their exponential average, which avoids overly large steps when the gradients are noisy.
+   */
+  AMSGRAD,
+}
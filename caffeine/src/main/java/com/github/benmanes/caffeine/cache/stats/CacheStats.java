@@ -30,6 +30,15 @@ import com.google.errorprone.annotations.Immutable;
  * Cache statistics are incremented according to the following rules:
  * <ul>
  *   <li>When a cache lookup encounters an existing cache entry {@code hitCount} is incremented.
+ *       If the entry is being served beyond its freshness lifetime, such as by
+ *       {@link com.github.benmanes.caffeine.cache.Caffeine#staleWhileRevalidate}, then
+ *       {@code staleHitCount} is also incremented.
+ *   <li>When a cache lookup encounters a missing cache entry whose key was recently loaded as
+ *       absent, such as by {@link com.github.benmanes.caffeine.cache.Caffeine#negativeCaching},
+ *       {@code missCount} and {@code negativeHitCount} are incremented and no entry is loaded.
+ *   <li>When a load is slow and a second attempt is issued, such as by
+ *       {@link com.github.benmanes.caffeine.cache.Caffeine#hedgeAsyncLoadAfter}, then
+ *       {@code hedgedLoadCount} is incremented.
  *   <li>When a cache lookup first encounters a missing cache entry, a new entry is loaded.
  *   <ul>
  *     <li>After successfully loading an entry {@code missCount} and {@code loadSuccessCount} are
@@ -67,6 +76,9 @@ public final class CacheStats {
   private final long totalLoadTime;
   private final long evictionCount;
   private final long evictionWeight;
+  private final long staleHitCount;
+  private final long negativeHitCount;
+  private final long hedgedLoadCount;
 
   /**
    * Constructs a new {@code CacheStats} instance.
@@ -104,8 +116,36 @@ public final class CacheStats {
       @NonNegative long loadSuccessCount, @NonNegative long loadFailureCount,
       @NonNegative long totalLoadTime, @NonNegative long evictionCount,
       @NonNegative long evictionWeight) {
+    this(hitCount, missCount, loadSuccessCount, loadFailureCount,
+        totalLoadTime, evictionCount, evictionWeight, 0L, 0L, 0L);
+  }
+
+  /**
+   * Constructs a new {@code CacheStats} instance.
+   * <p>
+   * Many parameters of the same type in a row is a bad thing, but this class is not constructed
+   * by end users and is too fine-grained for a builder.
+   *
+   * @param hitCount the number of cache hits
+   * @param missCount the number of cache misses
+   * @param loadSuccessCount the number of successful cache loads
+   * @param loadFailureCount the number of failed cache loads
+   * @param totalLoadTime the total load time (success and failure)
+   * @param evictionCount the number of entries evicted from the cache
+   * @param evictionWeight the sum of weights of entries evicted from the cache
+   * @param staleHitCount the number of cache hits that were served a stale entry
+   * @param negativeHitCount the number of cache misses that were answered by a key recently loaded
+   *        as absent
+   * @param hedgedLoadCount the number of additional loads issued because a load was slow
+   */
+  public CacheStats(@NonNegative long hitCount, @NonNegative long missCount,
+      @NonNegative long loadSuccessCount, @NonNegative long loadFailureCount,
+      @NonNegative long totalLoadTime, @NonNegative long evictionCount,
+      @NonNegative long evictionWeight, @NonNegative long staleHitCount,
+      @NonNegative long negativeHitCount, @NonNegative long hedgedLoadCount) {
     if ((hitCount < 0) || (missCount < 0) || (loadSuccessCount < 0) || (loadFailureCount < 0)
-        || (totalLoadTime < 0) || (evictionCount < 0) || (evictionWeight < 0)) {
+        || (totalLoadTime < 0) || (evictionCount < 0) || (evictionWeight < 0)
+        || (staleHitCount < 0) || (negativeHitCount < 0) || (hedgedLoadCount < 0)) {
       throw new IllegalArgumentException();
     }
     this.hitCount = hitCount;
@@ -115,6 +155,9 @@ public final class CacheStats {
     this.totalLoadTime = totalLoadTime;
     this.evictionCount = evictionCount;
     this.evictionWeight = evictionWeight;
+    this.staleHitCount = staleHitCount;
+    this.negativeHitCount = negativeHitCount;
+    this.hedgedLoadCount = hedgedLoadCount;
   }
 
   /**
@@ -307,6 +350,44 @@ public final class CacheStats {
     return evictionWeight;
   }
 
+  /**
+   * Returns the number of times {@link Cache} lookup methods have returned a cached value that had
+   * outlived its freshness lifetime, such as while it was being revalidated in the background.
+   * These lookups are included in {@link #hitCount()}.
+   *
+   * @return the number of times {@link Cache} lookup methods have returned a stale value
+   */
+  @NonNegative
+  public long staleHitCount() {
+    return staleHitCount;
+  }
+
+  /**
+   * Returns the number of times {@link Cache} lookup methods have returned {@code null} without
+   * loading because the key was recently loaded as absent. These lookups are included in
+   * {@link #missCount()}, but not in {@link #loadCount()}.
+   *
+   * @return the number of times {@link Cache} lookup methods have returned a cached absence
+   */
+  @NonNegative
+  public long negativeHitCount() {
+    return negativeHitCount;
+  }
+
+  /**
+   * Returns the number of times that a second load was issued for a key because the first had not
+   * completed within the delay configured by
+   * {@link com.github.benmanes.caffeine.cache.Caffeine#hedgeAsyncLoadAfter}. The result of a
+   * hedged load is recorded by {@link #loadSuccessCount()} or {@link #loadFailureCount()} only
+   * once, regardless of how many attempts were made.
+   *
+   * @return the number of times that a slow load was hedged by a second attempt
+   */
+  @NonNegative
+  public long hedgedLoadCount() {
+    return hedgedLoadCount;
+  }
+
   /**
    * Returns a new {@code CacheStats} representing the difference between this {@code CacheStats}
    * and {@code other}. Negative values, which aren't supported by {@code CacheStats} will be
@@ -324,7 +405,10 @@ public final class CacheStats {
         Math.max(0L, saturatedSubtract(loadFailureCount, other.loadFailureCount)),
         Math.max(0L, saturatedSubtract(totalLoadTime, other.totalLoadTime)),
         Math.max(0L, saturatedSubtract(evictionCount, other.evictionCount)),
-        Math.max(0L, saturatedSubtract(evictionWeight, other.evictionWeight)));
+        Math.max(0L, saturatedSubtract(evictionWeight, other.evictionWeight)),
+        Math.max(0L, saturatedSubtract(staleHitCount, other.staleHitCount)),
+        Math.max(0L, saturatedSubtract(negativeHitCount, other.negativeHitCount)),
+        Math.max(0L, saturatedSubtract(hedgedLoadCount, other.hedgedLoadCount)));
   }
 
   /**
@@ -347,7 +431,10 @@ public final class CacheStats {
         saturatedAdd(loadFailureCount, other.loadFailureCount),
         saturatedAdd(totalLoadTime, other.totalLoadTime),
         saturatedAdd(evictionCount, other.evictionCount),
-        saturatedAdd(evictionWeight, other.evictionWeight));
+        saturatedAdd(evictionWeight, other.evictionWeight),
+        saturatedAdd(staleHitCount, other.staleHitCount),
+        saturatedAdd(negativeHitCount, other.negativeHitCount),
+        saturatedAdd(hedgedLoadCount, other.hedgedLoadCount));
   }
 
   /**
@@ -384,8 +471,9 @@ public final class CacheStats {
 
   @Override
   public int hashCode() {
-    return Objects.hash(hitCount, missCount, loadSuccessCount,
-        loadFailureCount, totalLoadTime, evictionCount, evictionWeight);
+    return Objects.hash(hitCount, missCount, loadSuccessCount, loadFailureCount,
+        totalLoadTime, evictionCount, evictionWeight, staleHitCount, negativeHitCount,
+        hedgedLoadCount);
   }
 
   @Override
@@ -402,7 +490,10 @@ public final class CacheStats {
         && loadFailureCount == other.loadFailureCount
         && totalLoadTime == other.totalLoadTime
         && evictionCount == other.evictionCount
-        && evictionWeight == other.evictionWeight;
+        && evictionWeight == other.evictionWeight
+        && staleHitCount == other.staleHitCount
+        && negativeHitCount == other.negativeHitCount
+        && hedgedLoadCount == other.hedgedLoadCount;
   }
 
   @Override
@@ -414,7 +505,10 @@ public final class CacheStats {
         + "loadFailureCount=" + loadFailureCount + ", "
         + "totalLoadTime=" + totalLoadTime + ", "
         + "evictionCount=" + evictionCount + ", "
-        + "evictionWeight=" + evictionWeight
+        + "evictionWeight=" + evictionWeight + ", "
+        + "staleHitCount=" + staleHitCount + ", "
+        + "negativeHitCount=" + negativeHitCount + ", "
+        + "hedgedLoadCount=" + hedgedLoadCount
         + '}';
   }
 }
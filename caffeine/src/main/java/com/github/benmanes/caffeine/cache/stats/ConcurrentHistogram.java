@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.github.benmanes.caffeine.base.ThreadProbe;
+
+/**
+ * A thread-safe histogram that records non-negative values into logarithmic buckets that are each
+ * linearly subdivided, in the style of an HdrHistogram. A recorded value is attributed to a bucket
+ * whose bounds are within 12.5% of it, regardless of its magnitude, so that the full range of a
+ * {@code long} is covered by a small, fixed number of counters.
+ * <p>
+ * The counters are striped to reduce contention between concurrent writers, where a thread selects
+ * its stripe by its random probe. Recording a value does not allocate and is lock-free, while a
+ * {@link #snapshot()} sums the stripes and may not reflect concurrent updates.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+final class ConcurrentHistogram {
+  /** The number of bits used to linearly subdivide each power of two. */
+  static final int SUB_BUCKET_BITS = 3;
+  /** The number of linear buckets within each power of two. */
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  /** The number of buckets required to span all non-negative long values. */
+  static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS);
+
+  final AtomicLongArray counts;
+  final int mask;
+
+  /**
+   * Creates a histogram with the number of stripes rounded up to the next power of two.
+   *
+   * @param stripes the desired number of independently updated copies of the buckets
+   */
+  ConcurrentHistogram(int stripes) {
+    int size = 1 << -Integer.numberOfLeadingZeros(Math.max(stripes, 1) - 1);
+    counts = new AtomicLongArray(size * BUCKETS);
+    mask = size - 1;
+  }
+
+  /**
+   * Records the value, where a negative value is treated as zero.
+   *
+   * @param value the value to record
+   */
+  void record(long value) {
+    int stripe = (mask == 0) ? 0 : (ThreadProbe.current() & mask);
+    counts.getAndIncrement((stripe * BUCKETS) + indexOf(value));
+  }
+
+  /** Returns the merged counts of all of the stripes. */
+  Histogram snapshot() {
+    long[] buckets = new long[BUCKETS];
+    for (int i = 0; i < counts.length(); i++) {
+      buckets[i % BUCKETS] += counts.get(i);
+    }
+    return new Histogram(buckets);
+  }
+
+  /** Returns the index of the bucket that the value is counted in. */
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) Math.max(value, 0L);
+    }
+    int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (SUB_BUCKETS * (exponent - SUB_BUCKET_BITS + 1)) + subBucket;
+  }
+
+  /** Returns the largest value that is counted in the bucket at the index. */
+  static long highestValueOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = (index / SUB_BUCKETS) - 1;
+    long lowest = (long) (SUB_BUCKETS + (index % SUB_BUCKETS)) << shift;
+    return lowest + ((1L << shift) - 1);
+  }
+}
@@ -15,91 +15,179 @@
  */
 package com.github.benmanes.caffeine.cache.stats;
 
-import java.util.concurrent.atomic.LongAdder;
-
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import com.github.benmanes.caffeine.base.ThreadProbe;
+import com.github.benmanes.caffeine.base.UnsafeAccess;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 
 /**
  * A thread-safe {@link StatsCounter} implementation for use by {@link Cache} implementors.
+ * <p>
+ * The counts are recorded into a table of cells and a thread selects a cell by its random probe.
+ * Each cell's counts span two cache lines and are padded on both sides, so that the lines are not
+ * shared with another cell's counts. This allows for a hit, which is the most frequent event, to be
+ * recorded by an uncontended update to cache lines that are likely owned by the recording core.
+ * The table is created when contention is first observed and the counts are summed across the
+ * cells when a {@link #snapshot()} is requested.
  *
  * @author ben.manes@gmail.com (Ben Manes)
  */
 public final class ConcurrentStatsCounter implements StatsCounter {
-  private final LongAdder hitCount;
-  private final LongAdder missCount;
-  private final LongAdder loadSuccessCount;
-  private final LongAdder loadFailureCount;
-  private final LongAdder totalLoadTime;
-  private final LongAdder evictionCount;
-  private final LongAdder evictionWeight;
+  static final long HIT_COUNT = UnsafeAccess.objectFieldOffset(CountsRef.class, "hitCount");
+  static final long STALE_HIT_COUNT =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "staleHitCount");
+  static final long NEGATIVE_HIT_COUNT =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "negativeHitCount");
+  static final long HEDGED_LOAD_COUNT =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "hedgedLoadCount");
+  static final long MISS_COUNT = UnsafeAccess.objectFieldOffset(CountsRef.class, "missCount");
+  static final long LOAD_SUCCESS_COUNT =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "loadSuccessCount");
+  static final long LOAD_FAILURE_COUNT =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "loadFailureCount");
+  static final long TOTAL_LOAD_TIME =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "totalLoadTime");
+  static final long EVICTION_COUNT =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "evictionCount");
+  static final long EVICTION_WEIGHT =
+      UnsafeAccess.objectFieldOffset(CountsRef.class, "evictionWeight");
+
+  /** The number of cells to stripe the counts across once contention is observed. */
+  static final int TABLE_SIZE = ceilingPowerOfTwo(Runtime.getRuntime().availableProcessors());
+
+  private final Cell base;
+  private volatile Cell[] cells;
 
   /**
    * Constructs an instance with all counts initialized to zero.
    */
   public ConcurrentStatsCounter() {
-    hitCount = new LongAdder();
-    missCount = new LongAdder();
-    loadSuccessCount = new LongAdder();
-    loadFailureCount = new LongAdder();
-    totalLoadTime = new LongAdder();
-    evictionCount = new LongAdder();
-    evictionWeight = new LongAdder();
+    base = new Cell();
   }
 
   @Override
   public void recordHits(int count) {
-    hitCount.add(count);
+    add(HIT_COUNT, count);
+  }
+
+  @Override
+  public void recordStaleHits(int count) {
+    add(STALE_HIT_COUNT, count);
+  }
+
+  @Override
+  public void recordNegativeHits(int count) {
+    add(NEGATIVE_HIT_COUNT, count);
+  }
+
+  @Override
+  public void recordHedgedLoads(int count) {
+    add(HEDGED_LOAD_COUNT, count);
   }
 
   @Override
   public void recordMisses(int count) {
-    missCount.add(count);
+    add(MISS_COUNT, count);
   }
 
   @Override
   public void recordLoadSuccess(long loadTime) {
-    loadSuccessCount.increment();
-    totalLoadTime.add(loadTime);
+    Cell cell = add(LOAD_SUCCESS_COUNT, 1L);
+    UnsafeAccess.UNSAFE.getAndAddLong(cell, TOTAL_LOAD_TIME, loadTime);
   }
 
   @Override
   public void recordLoadFailure(long loadTime) {
-    loadFailureCount.increment();
-    totalLoadTime.add(loadTime);
+    Cell cell = add(LOAD_FAILURE_COUNT, 1L);
+    UnsafeAccess.UNSAFE.getAndAddLong(cell, TOTAL_LOAD_TIME, loadTime);
   }
 
   @Override @Deprecated
   @SuppressWarnings("deprecation")
   public void recordEviction() {
-    evictionCount.increment();
+    add(EVICTION_COUNT, 1L);
   }
 
   @Override @Deprecated
   @SuppressWarnings("deprecation")
   public void recordEviction(int weight) {
-    evictionCount.increment();
-    evictionWeight.add(weight);
+    Cell cell = add(EVICTION_COUNT, 1L);
+    UnsafeAccess.UNSAFE.getAndAddLong(cell, EVICTION_WEIGHT, weight);
   }
 
   @Override
   public void recordEviction(int weight, RemovalCause cause) {
-    evictionCount.increment();
-    evictionWeight.add(weight);
+    Cell cell = add(EVICTION_COUNT, 1L);
+    UnsafeAccess.UNSAFE.getAndAddLong(cell, EVICTION_WEIGHT, weight);
+  }
+
+  /**
+   * Adds the value to the count at the field offset in the current thread's cell. If the update
+   * fails due to contention then the table of cells is created or the thread is moved to another
+   * cell for its subsequent updates.
+   *
+   * @param offset the field offset of the count
+   * @param x the value to add
+   * @return the cell that was updated
+   */
+  private Cell add(long offset, long x) {
+    Cell[] table = cells;
+    int probe = (table == null) ? 0 : ThreadProbe.current();
+    Cell cell = (table == null) ? base : table[probe & (table.length - 1)];
+    long count = UnsafeAccess.UNSAFE.getLongVolatile(cell, offset);
+    if (UnsafeAccess.UNSAFE.compareAndSwapLong(cell, offset, count, count + x)) {
+      return cell;
+    }
+
+    if (table == null) {
+      if (TABLE_SIZE > 1) {
+        initializeTable();
+      }
+    } else {
+      ThreadProbe.advance(probe);
+    }
+    UnsafeAccess.UNSAFE.getAndAddLong(cell, offset, x);
+    return cell;
+  }
+
+  /** Creates the table of cells, if it does not already exist. */
+  private synchronized void initializeTable() {
+    if (cells == null) {
+      Cell[] table = new Cell[TABLE_SIZE];
+      for (int i = 0; i < table.length; i++) {
+        table[i] = new Cell();
+      }
+      cells = table;
+    }
   }
 
   @Override
   public CacheStats snapshot() {
     return new CacheStats(
-        negativeToMaxValue(hitCount.sum()),
-        negativeToMaxValue(missCount.sum()),
-        negativeToMaxValue(loadSuccessCount.sum()),
-        negativeToMaxValue(loadFailureCount.sum()),
-        negativeToMaxValue(totalLoadTime.sum()),
-        negativeToMaxValue(evictionCount.sum()),
-        negativeToMaxValue(evictionWeight.sum()));
+        negativeToMaxValue(sum(HIT_COUNT)),
+        negativeToMaxValue(sum(MISS_COUNT)),
+        negativeToMaxValue(sum(LOAD_SUCCESS_COUNT)),
+        negativeToMaxValue(sum(LOAD_FAILURE_COUNT)),
+        negativeToMaxValue(sum(TOTAL_LOAD_TIME)),
+        negativeToMaxValue(sum(EVICTION_COUNT)),
+        negativeToMaxValue(sum(EVICTION_WEIGHT)),
+        negativeToMaxValue(sum(STALE_HIT_COUNT)),
+        negativeToMaxValue(sum(NEGATIVE_HIT_COUNT)),
+        negativeToMaxValue(sum(HEDGED_LOAD_COUNT)));
+  }
+
+  /** Returns the sum of the count at the field offset across all of the cells. */
+  private long sum(long offset) {
+    long sum = UnsafeAccess.UNSAFE.getLongVolatile(base, offset);
+    Cell[] table = cells;
+    if (table != null) {
+      for (Cell cell : table) {
+        sum += UnsafeAccess.UNSAFE.getLongVolatile(cell, offset);
+      }
+    }
+    return sum;
   }
 
   /** Returns {@code value}, if non-negative. Otherwise, returns {@link Long#MAX_VALUE}. */
@@ -107,6 +195,12 @@ public final class ConcurrentStatsCounter implements StatsCounter {
     return (value >= 0) ? value : Long.MAX_VALUE;
   }
 
+  /** Returns the smallest power of two greater than or equal to {@code x}. */
+  static int ceilingPowerOfTwo(int x) {
+    // From Hacker's Delight, Chapter 3, Harry S. Warren Jr.
+    return 1 << -Integer.numberOfLeadingZeros(x - 1);
+  }
+
   /**
    * Increments all counters by the values in {@code other}.
    *
@@ -114,17 +208,51 @@ public final class ConcurrentStatsCounter implements StatsCounter {
    */
   public void incrementBy(@NonNull StatsCounter other) {
     CacheStats otherStats = other.snapshot();
-    hitCount.add(otherStats.hitCount());
-    missCount.add(otherStats.missCount());
-    loadSuccessCount.add(otherStats.loadSuccessCount());
-    loadFailureCount.add(otherStats.loadFailureCount());
-    totalLoadTime.add(otherStats.totalLoadTime());
-    evictionCount.add(otherStats.evictionCount());
-    evictionWeight.add(otherStats.evictionWeight());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, HIT_COUNT, otherStats.hitCount());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, MISS_COUNT, otherStats.missCount());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, LOAD_SUCCESS_COUNT, otherStats.loadSuccessCount());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, LOAD_FAILURE_COUNT, otherStats.loadFailureCount());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, TOTAL_LOAD_TIME, otherStats.totalLoadTime());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, EVICTION_COUNT, otherStats.evictionCount());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, EVICTION_WEIGHT, otherStats.evictionWeight());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, STALE_HIT_COUNT, otherStats.staleHitCount());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, NEGATIVE_HIT_COUNT, otherStats.negativeHitCount());
+    UnsafeAccess.UNSAFE.getAndAddLong(base, HEDGED_LOAD_COUNT, otherStats.hedgedLoadCount());
   }
 
   @Override
   public String toString() {
     return snapshot().toString();
   }
+
+  /** The namespace for field padding through inheritance. */
+  @SuppressWarnings("PMD.AbstractClassWithoutAbstractMethod")
+  abstract static class PadCounts {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+    long p10, p11, p12, p13, p14, p15, p16;
+  }
+
+  /** The counts recorded by a cell, which are updated through their field offsets. */
+  abstract static class CountsRef extends PadCounts {
+    volatile long hitCount;
+    volatile long missCount;
+    volatile long loadSuccessCount;
+    volatile long loadFailureCount;
+    volatile long totalLoadTime;
+    volatile long evictionCount;
+    volatile long evictionWeight;
+    volatile long staleHitCount;
+    volatile long negativeHitCount;
+    volatile long hedgedLoadCount;
+  }
+
+  /**
+   * Enforces a memory layout to avoid false sharing by padding the counts. The counts occupy 80
+   * bytes, so they may span two cache lines, and the padding of 120 bytes on each side ensures that
+   * neither line is shared with the counts of an adjacent cell.
+   */
+  static final class Cell extends CountsRef {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+    long p30, p31, p32, p33, p34, p35, p36;
+  }
 }
@@ -47,6 +47,33 @@ final class GuardedStatsCounter implements StatsCounter {
     }
   }
 
+  @Override
+  public void recordStaleHits(int count) {
+    try {
+      delegate.recordStaleHits(count);
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception thrown by stats counter", t);
+    }
+  }
+
+  @Override
+  public void recordNegativeHits(int count) {
+    try {
+      delegate.recordNegativeHits(count);
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception thrown by stats counter", t);
+    }
+  }
+
+  @Override
+  public void recordHedgedLoads(int count) {
+    try {
+      delegate.recordHedgedLoads(count);
+    } catch (Throwable t) {
+      logger.log(Level.WARNING, "Exception thrown by stats counter", t);
+    }
+  }
+
   @Override
   public void recordMisses(int count) {
     try {
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.stats;
+
+import static com.github.benmanes.caffeine.cache.stats.ConcurrentHistogram.BUCKETS;
+import static com.github.benmanes.caffeine.cache.stats.ConcurrentHistogram.highestValueOf;
+
+import java.util.Arrays;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.google.errorprone.annotations.Immutable;
+
+/**
+ * A point-in-time snapshot of the distribution of values recorded by a {@link StatsCounter}, such
+ * as the time spent loading entries. The values are tracked with a bounded relative error of 12.5%,
+ * where a percentile is reported as the largest value that is equivalent to it at that precision.
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@Immutable
+public final class Histogram {
+  private static final Histogram EMPTY = new Histogram(new long[BUCKETS]);
+
+  @SuppressWarnings("Immutable")
+  private final long[] buckets;
+  private final long count;
+
+  Histogram(long[] buckets) {
+    long sum = 0L;
+    for (long bucket : buckets) {
+      sum += bucket;
+      if (sum < 0) {
+        sum = Long.MAX_VALUE;
+        break;
+      }
+    }
+    this.buckets = buckets;
+    this.count = sum;
+  }
+
+  /**
+   * Returns a histogram where no values have been recorded.
+   *
+   * @return an empty histogram
+   */
+  public static @NonNull Histogram empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns the number of values that were recorded.
+   *
+   * @return the number of values that were recorded
+   */
+  @NonNegative
+  public long count() {
+    return count;
+  }
+
+  /**
+   * Returns the value at the given percentile, such that the specified percentage of the recorded
+   * values are less than or equal to it. If no values have been recorded then {@code 0} is
+   * returned.
+   *
+   * @param percentile the percentage of recorded values, in the range of {@code [0.0, 100.0]}
+   * @return the largest value equivalent to the one at the given percentile
+   * @throws IllegalArgumentException if the percentile is outside of the range
+   */
+  @NonNegative
+  public long percentile(double percentile) {
+    if (!((percentile >= 0.0) && (percentile <= 100.0))) {
+      throw new IllegalArgumentException();
+    }
+    long rank = Math.max(1L, (long) Math.ceil((percentile / 100.0) * count));
+    long seen = 0L;
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+      if (seen >= rank) {
+        return highestValueOf(i);
+      }
+    }
+    return 0L;
+  }
+
+  /**
+   * Returns the largest value that was recorded, or {@code 0} if no values have been recorded.
+   *
+   * @return the largest value equivalent to the maximum recorded value
+   */
+  @NonNegative
+  public long max() {
+    for (int i = buckets.length - 1; i >= 0; i--) {
+      if (buckets[i] != 0) {
+        return highestValueOf(i);
+      }
+    }
+    return 0L;
+  }
+
+  /**
+   * Returns a new {@code Histogram} representing the difference between this and {@code other}.
+   * Negative counts, which aren't supported by {@code Histogram} values, are rounded up to zero.
+   *
+   * @param other the histogram of values recorded earlier by the same source
+   * @return the difference between this instance and {@code other}
+   */
+  public @NonNull Histogram minus(@NonNull Histogram other) {
+    long[] difference = new long[BUCKETS];
+    for (int i = 0; i < difference.length; i++) {
+      difference[i] = Math.max(0L, buckets[i] - other.buckets[i]);
+    }
+    return new Histogram(difference);
+  }
+
+  /**
+   * Returns a new {@code Histogram} representing the sum of this and {@code other}.
+   *
+   * @param other the histogram to add with
+   * @return the sum of the distributions
+   */
+  public @NonNull Histogram plus(@NonNull Histogram other) {
+    long[] sum = new long[BUCKETS];
+    for (int i = 0; i < sum.length; i++) {
+      long total = buckets[i] + other.buckets[i];
+      sum[i] = (total >= 0) ? total : Long.MAX_VALUE;
+    }
+    return new Histogram(sum);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (!(o instanceof Histogram)) {
+      return false;
+    }
+    return Arrays.equals(buckets, ((Histogram) o).buckets);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(buckets);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + '{'
+        + "count=" + count + ", "
+        + "p50=" + percentile(50.0) + ", "
+        + "p90=" + percentile(90.0) + ", "
+        + "p99=" + percentile(99.0) + ", "
+        + "p999=" + percentile(99.9) + ", "
+        + "max=" + max()
+        + '}';
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.stats;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+/**
+ * A thread-safe {@link StatsCounter} implementation that, in addition to the counts captured by
+ * {@link CacheStats}, records the distribution of load times and eviction weights. This allows for
+ * observing the tail latencies of the loader, such as the 99th percentile, rather than only the
+ * average load penalty.
+ * <p>
+ * The recording of a value is lock-free and does not allocate. As the histograms are not part of
+ * the {@link Cache#stats()} snapshot, the counter should be shared with the cache when it is
+ * constructed and queried directly, for example:
+ * <pre>{@code
+ *   HistogramStatsCounter statsCounter = new HistogramStatsCounter();
+ *   Cache<Key, Graph> graphs = Caffeine.newBuilder()
+ *       .maximumSize(10_000)
+ *       .recordStats(() -> statsCounter)
+ *       .build();
+ *   ...
+ *   long p99 = statsCounter.loadTimes().percentile(99.0);
+ * }</pre>
+ *
+ * @author ben.manes@gmail.com (Ben Manes)
+ * @see Caffeine#recordStats(java.util.function.Supplier)
+ */
+public final class HistogramStatsCounter implements StatsCounter {
+  static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+  /** The maximum number of stripes for the load time histogram. */
+  static final int MAXIMUM_STRIPES = 16;
+
+  private final ConcurrentStatsCounter counter;
+  private final ConcurrentHistogram loadTimes;
+  private final ConcurrentHistogram evictionWeights;
+
+  /**
+   * Constructs an instance with all counts initialized to zero.
+   */
+  public HistogramStatsCounter() {
+    counter = new ConcurrentStatsCounter();
+    loadTimes = new ConcurrentHistogram(Math.min(NCPU, MAXIMUM_STRIPES));
+
+    // Evictions are performed under the cache's eviction lock, so the writes are not contended
+    evictionWeights = new ConcurrentHistogram(1);
+  }
+
+  @Override
+  public void recordHits(int count) {
+    counter.recordHits(count);
+  }
+
+  @Override
+  public void recordStaleHits(int count) {
+    counter.recordStaleHits(count);
+  }
+
+  @Override
+  public void recordNegativeHits(int count) {
+    counter.recordNegativeHits(count);
+  }
+
+  @Override
+  public void recordHedgedLoads(int count) {
+    counter.recordHedgedLoads(count);
+  }
+
+  @Override
+  public void recordMisses(int count) {
+    counter.recordMisses(count);
+  }
+
+  @Override
+  public void recordLoadSuccess(long loadTime) {
+    counter.recordLoadSuccess(loadTime);
+    loadTimes.record(loadTime);
+  }
+
+  @Override
+  public void recordLoadFailure(long loadTime) {
+    counter.recordLoadFailure(loadTime);
+    loadTimes.record(loadTime);
+  }
+
+  @Override @Deprecated
+  @SuppressWarnings("deprecation")
+  public void recordEviction() {
+    counter.recordEviction();
+  }
+
+  @Override @Deprecated
+  @SuppressWarnings("deprecation")
+  public void recordEviction(int weight) {
+    counter.recordEviction(weight);
+    evictionWeights.record(weight);
+  }
+
+  @Override
+  public void recordEviction(int weight, RemovalCause cause) {
+    counter.recordEviction(weight, cause);
+    evictionWeights.record(weight);
+  }
+
+  @Override
+  public CacheStats snapshot() {
+    return counter.snapshot();
+  }
+
+  /**
+   * Returns a snapshot of the distribution of the time, in nanoseconds, spent loading new values
+   * (success and failure).
+   *
+   * @return a snapshot of the load times
+   */
+  public @NonNull Histogram loadTimes() {
+    return loadTimes.snapshot();
+  }
+
+  /**
+   * Returns a snapshot of the distribution of the weights of the entries evicted from the cache.
+   *
+   * @return a snapshot of the eviction weights
+   */
+  public @NonNull Histogram evictionWeights() {
+    return evictionWeights.snapshot();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + '{'
+        + "stats=" + snapshot() + ", "
+        + "loadTimes=" + loadTimes() + ", "
+        + "evictionWeights=" + evictionWeights()
+        + '}';
+  }
+}
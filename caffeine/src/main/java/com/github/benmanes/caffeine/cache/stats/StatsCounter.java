@@ -38,6 +38,39 @@ public interface StatsCounter {
    */
   void recordHits(@NonNegative int count);
 
+  /**
+   * Records cache hits that returned a stale value. This should be called, in addition to
+   * {@link #recordHits}, when a cache request returns a cached value that has outlived its
+   * freshness lifetime and is being served while it is revalidated.
+   *
+   * @param count the number of stale hits to record
+   */
+  default void recordStaleHits(@NonNegative int count) {
+    // Ignored by default, as tracking this count is optional
+  }
+
+  /**
+   * Records cache lookups that were answered by a key recently loaded as absent. This should be
+   * called, in addition to {@link #recordMisses}, when a cache request returns {@code null} without
+   * loading because a prior load did not produce a value for the key.
+   *
+   * @param count the number of negative hits to record
+   */
+  default void recordNegativeHits(@NonNegative int count) {
+    // Ignored by default, as tracking this count is optional
+  }
+
+  /**
+   * Records additional loads that were issued because a prior attempt to load the same key had not
+   * completed within the hedging delay. The outcome of the hedged load is recorded only once, by
+   * either {@link #recordLoadSuccess} or {@link #recordLoadFailure}.
+   *
+   * @param count the number of hedged loads to record
+   */
+  default void recordHedgedLoads(@NonNegative int count) {
+    // Ignored by default, as tracking this count is optional
+  }
+
   /**
    * Records cache misses. This should be called when a cache request returns a value that was not
    * found in the cache. This method should be called by the loading thread, as well as by threads
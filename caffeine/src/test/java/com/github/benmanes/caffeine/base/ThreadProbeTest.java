@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.base;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class ThreadProbeTest {
+
+  @Test
+  public void current_initializes() {
+    int[] probes = new int[2];
+    Thread thread = new Thread(() -> {
+      probes[0] = ThreadProbe.get();
+      probes[1] = ThreadProbe.current();
+    });
+    thread.start();
+    joinUninterruptibly(thread);
+
+    assertThat(probes[0], is(0));
+    assertThat(probes[1], is(not(0)));
+  }
+
+  @Test
+  public void advance() {
+    int probe = ThreadProbe.current();
+    int advanced = ThreadProbe.advance(probe);
+    assertThat(advanced, is(not(probe)));
+    assertThat(ThreadProbe.get(), is(advanced));
+    assertThat(ThreadProbe.current(), is(advanced));
+  }
+
+  private static void joinUninterruptibly(Thread thread) {
+    for (;;) {
+      try {
+        thread.join();
+        return;
+      } catch (InterruptedException ignored) {}
+    }
+  }
+}
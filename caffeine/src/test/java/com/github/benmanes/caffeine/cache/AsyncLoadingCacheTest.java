@@ -62,6 +62,7 @@ import com.github.benmanes.caffeine.cache.testing.CheckNoStats;
 import com.github.benmanes.caffeine.cache.testing.CheckNoWriter;
 import com.github.benmanes.caffeine.testing.Awaits;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.primitives.Ints;
@@ -352,6 +353,74 @@ public final class AsyncLoadingCacheTest {
   @SuppressWarnings("serial")
   private static final class LoadAllException extends RuntimeException {};
 
+  /* --------------- getAllFutures --------------- */
+
+  @CheckNoWriter @CheckNoStats
+  @Test(dataProvider = "caches", expectedExceptions = NullPointerException.class)
+  @CacheSpec(removalListener = { Listener.DEFAULT, Listener.REJECTING })
+  public void getAllFutures_null(
+      AsyncLoadingCache<Integer, Integer> cache, CacheContext context) {
+    cache.getAllFutures(null);
+  }
+
+  @CacheSpec
+  @CheckNoWriter
+  @Test(dataProvider = "caches", expectedExceptions = UnsupportedOperationException.class)
+  public void getAllFutures_immutable(
+      AsyncLoadingCache<Integer, Integer> cache, CacheContext context) {
+    cache.getAllFutures(context.absentKeys()).clear();
+  }
+
+  @CheckNoWriter
+  @Test(dataProvider = "caches")
+  @CacheSpec(loader = { Loader.NEGATIVE, Loader.BULK_NEGATIVE },
+      population = { Population.SINGLETON, Population.PARTIAL, Population.FULL },
+      removalListener = { Listener.DEFAULT, Listener.REJECTING })
+  public void getAllFutures_present_partial(
+      AsyncLoadingCache<Integer, Integer> cache, CacheContext context) {
+    List<Integer> keys = ImmutableSet.of(
+        context.firstKey(), context.middleKey(), context.lastKey()).asList();
+    Map<Integer, CompletableFuture<Integer>> result = cache.getAllFutures(keys);
+
+    assertThat(new ArrayList<>(result.keySet()), is(equalTo(keys)));
+    for (Integer key : keys) {
+      assertThat(result.get(key), is(futureOf(-key)));
+    }
+    assertThat(context, both(hasMissCount(0)).and(hasHitCount(keys.size())));
+    assertThat(context, both(hasLoadSuccessCount(0)).and(hasLoadFailureCount(0)));
+  }
+
+  @CheckNoWriter
+  @Test(dataProvider = "caches")
+  @CacheSpec(implementation = Implementation.Caffeine, compute = Compute.ASYNC,
+      removalListener = { Listener.DEFAULT, Listener.REJECTING })
+  public void getAllFutures_pending(CacheContext context) {
+    CompletableFuture<Map<Integer, Integer>> bulk = new CompletableFuture<>();
+    AsyncCacheLoader<Integer, Integer> loader = new AsyncCacheLoader<Integer, Integer>() {
+      @Override public CompletableFuture<Integer> asyncLoad(Integer key, Executor executor) {
+        throw new IllegalStateException();
+      }
+      @Override public CompletableFuture<Map<Integer, Integer>> asyncLoadAll(
+          Iterable<? extends Integer> keys, Executor executor) {
+        return bulk;
+      }
+    };
+    AsyncLoadingCache<Integer, Integer> cache = context.buildAsync(loader);
+    cache.put(1, CompletableFuture.completedFuture(-1));
+
+    Map<Integer, CompletableFuture<Integer>> result =
+        cache.getAllFutures(ImmutableList.of(1, 2, 3));
+    assertThat(result.get(1), is(futureOf(-1)));
+    assertThat(result.get(2).isDone(), is(false));
+    assertThat(result.get(3).isDone(), is(false));
+
+    bulk.complete(ImmutableMap.of(2, -2));
+    assertThat(result.get(2), is(futureOf(-2)));
+    assertThat(result.get(3).join(), is(nullValue()));
+    assertThat(cache.synchronous().getIfPresent(2), is(-2));
+    assertThat(cache.getIfPresent(3), is(nullValue()));
+  }
+
   /* --------------- put --------------- */
 
   @Test(dataProvider = "caches")
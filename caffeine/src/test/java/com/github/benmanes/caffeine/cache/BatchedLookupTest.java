@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class BatchedLookupTest {
+  List<CompletableFuture<Map<Integer, Integer>>> loads;
+  List<Map<Integer, Integer>> batches;
+  List<Integer> batchSizes;
+  Map<Integer, Integer> delivered;
+  AtomicInteger consumed;
+  boolean pending;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    delivered = new LinkedHashMap<>();
+    consumed = new AtomicInteger();
+    batchSizes = new ArrayList<>();
+    batches = new ArrayList<>();
+    loads = new ArrayList<>();
+    pending = false;
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void getAllInBatches_zeroBatchSize() {
+    newCache().getAllInBatches(keys(1), 0, delivered::put);
+  }
+
+  @Test
+  public void getAllInBatches_present() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache();
+    cache.synchronous().putAll(IntStream.rangeClosed(1, 5).boxed()
+        .collect(Collectors.toMap(key -> key, key -> -key)));
+
+    CompletableFuture<Void> future = cache.getAllInBatches(keys(5), 2, delivered::put);
+    assertThat(future.isDone(), is(true));
+    assertThat(delivered.keySet(), contains(1, 2, 3, 4, 5));
+    assertThat(batchSizes.isEmpty(), is(true));
+    assertThat(cache.synchronous().stats().hitCount(), is(5L));
+  }
+
+  @Test
+  public void getAllInBatches_absent() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache();
+    cache.synchronous().put(4, -4);
+
+    CompletableFuture<Void> future = cache.getAllInBatches(keys(10), 3, delivered::put);
+    assertThat(future.isDone(), is(true));
+    assertThat(batchSizes, contains(3, 3, 3));
+    assertThat(delivered.size(), is(10));
+    assertThat(delivered.get(10), is(-10));
+  }
+
+  @Test
+  public void getAllInBatches_backpressure() {
+    pending = true;
+    AsyncLoadingCache<Integer, Integer> cache = newCache();
+    CompletableFuture<Void> future = cache.getAllInBatches(keys(5), 2, delivered::put);
+    assertThat(consumed.get(), is(2));
+    assertThat(loads.size(), is(1));
+
+    complete(0);
+    assertThat(consumed.get(), is(4));
+    assertThat(delivered.keySet(), contains(1, 2));
+    assertThat(loads.size(), is(2));
+
+    complete(1);
+    complete(2);
+    assertThat(future.isDone(), is(true));
+    assertThat(delivered.keySet(), contains(1, 2, 3, 4, 5));
+    assertThat(batchSizes, contains(2, 2, 1));
+  }
+
+  @Test
+  public void getAllInBatches_loadFails() {
+    pending = true;
+    AsyncLoadingCache<Integer, Integer> cache = newCache();
+    CompletableFuture<Void> future = cache.getAllInBatches(keys(5), 2, delivered::put);
+
+    loads.get(0).completeExceptionally(new IllegalStateException());
+    assertThat(failure(future), is(instanceOf(IllegalStateException.class)));
+    assertThat(consumed.get(), is(2));
+    assertThat(delivered.isEmpty(), is(true));
+  }
+
+  @Test
+  public void getAllInBatches_actionFails() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache();
+    CompletableFuture<Void> future = cache.getAllInBatches(keys(5), 2, (key, value) -> {
+      throw new IllegalArgumentException();
+    });
+    assertThat(failure(future), is(instanceOf(IllegalArgumentException.class)));
+    assertThat(consumed.get(), is(2));
+  }
+
+  @Test
+  public void getAllInBatches_missingValues() {
+    AsyncLoadingCache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(Runnable::run)
+        .buildAsync(key -> ((key % 2) == 0) ? null : -key);
+    CompletableFuture<Void> future = cache.getAllInBatches(keys(5), 2, delivered::put);
+    assertThat(future.isDone(), is(true));
+    assertThat(delivered.keySet(), contains(1, 3, 5));
+  }
+
+  private AsyncLoadingCache<Integer, Integer> newCache() {
+    return Caffeine.newBuilder().executor(Runnable::run).recordStats().buildAsync(
+        new AsyncCacheLoader<Integer, Integer>() {
+          @Override public CompletableFuture<Integer> asyncLoad(Integer key, Executor executor) {
+            throw new UnsupportedOperationException();
+          }
+          @Override public CompletableFuture<Map<Integer, Integer>> asyncLoadAll(
+              Iterable<? extends Integer> keys, Executor executor) {
+            Map<Integer, Integer> result = new LinkedHashMap<>();
+            keys.forEach(key -> result.put(key, -key));
+            batchSizes.add(result.size());
+            if (!pending) {
+              return CompletableFuture.completedFuture(result);
+            }
+            CompletableFuture<Map<Integer, Integer>> future = new CompletableFuture<>();
+            batches.add(result);
+            loads.add(future);
+            return future;
+          }
+        });
+  }
+
+  private void complete(int index) {
+    loads.get(index).complete(batches.get(index));
+  }
+
+  private Iterable<Integer> keys(int count) {
+    return () -> new Iterator<Integer>() {
+      @Override public boolean hasNext() {
+        return consumed.get() < count;
+      }
+      @Override public Integer next() {
+        return consumed.incrementAndGet();
+      }
+    };
+  }
+
+  private static Throwable failure(CompletableFuture<?> future) {
+    try {
+      future.join();
+      throw new AssertionError();
+    } catch (CompletionException e) {
+      return e.getCause();
+    }
+  }
+}
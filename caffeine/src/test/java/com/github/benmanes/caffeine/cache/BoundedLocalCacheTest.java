@@ -33,17 +33,25 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.ArgumentMatchers.any;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.mockito.Mockito;
+import org.testng.Assert;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
@@ -188,6 +196,161 @@ public final class BoundedLocalCacheTest {
     assertThat(Math.max(0, map.weightedSize()), is(BoundedLocalCache.MAXIMUM_CAPACITY));
   }
 
+  @Test
+  public void putAll_batchesWrites() {
+    List<Runnable> tasks = new ArrayList<>();
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(tasks::add)
+        .maximumSize(100)
+        .build();
+    BoundedLocalCache<Integer, Integer> map = asBoundedLocalCache(cache);
+
+    Map<Integer, Integer> entries = new LinkedHashMap<>();
+    for (int i = 0; i < (2 * BoundedLocalCache.WRITE_BUFFER_MAX) + 1; i++) {
+      entries.put(i, -i);
+    }
+    cache.putAll(entries);
+    assertThat(map.writeBuffer().size(), is(3));
+
+    cache.cleanUp();
+    assertThat(map.size(), is(100));
+    assertThat(map.weightedSize(), is(100L));
+  }
+
+  @Test
+  public void putAll_failure() {
+    List<Runnable> tasks = new ArrayList<>();
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(tasks::add)
+        .maximumSize(100)
+        .build();
+    BoundedLocalCache<Integer, Integer> map = asBoundedLocalCache(cache);
+
+    Map<Integer, Integer> entries = new LinkedHashMap<>();
+    entries.put(1, -1);
+    entries.put(2, -2);
+    entries.put(3, null);
+    try {
+      cache.putAll(entries);
+      Assert.fail();
+    } catch (NullPointerException expected) {}
+    assertThat(map.writeBuffer().size(), is(1));
+
+    cache.cleanUp();
+    assertThat(map.size(), is(2));
+    assertThat(map.weightedSize(), is(2L));
+  }
+
+  @Test
+  public void invalidateAll_batchesWrites() {
+    List<Runnable> tasks = new ArrayList<>();
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(tasks::add)
+        .maximumSize(1_000)
+        .build();
+    BoundedLocalCache<Integer, Integer> map = asBoundedLocalCache(cache);
+
+    Map<Integer, Integer> entries = new LinkedHashMap<>();
+    for (int i = 0; i < (2 * BoundedLocalCache.WRITE_BUFFER_MAX) + 1; i++) {
+      entries.put(i, -i);
+    }
+    cache.putAll(entries);
+    cache.cleanUp();
+
+    cache.invalidateAll(entries.keySet());
+    assertThat(map.size(), is(0));
+    assertThat(map.writeBuffer().size(), is(3));
+
+    cache.cleanUp();
+    assertThat(map.weightedSize(), is(0L));
+  }
+
+  @Test
+  public void putAll_outOfOrderWrites() {
+    @SuppressWarnings("unchecked")
+    BoundedLocalCache<Integer, Integer>[] ref = new BoundedLocalCache[1];
+    List<Runnable> tasks = new ArrayList<>();
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .weigher((Integer key, Integer value) -> {
+          if (key == 3) {
+            // publishes a removal and an update before the batch's add tasks
+            ref[0].remove(1);
+            ref[0].replace(2, 20);
+          }
+          return value;
+        })
+        .executor(tasks::add)
+        .maximumWeight(1_000)
+        .build();
+    BoundedLocalCache<Integer, Integer> map = asBoundedLocalCache(cache);
+    ref[0] = map;
+
+    cache.putAll(ImmutableMap.of(1, 1, 2, 2, 3, 3));
+    cache.cleanUp();
+
+    assertThat(map.size(), is(2));
+    assertThat(map.weightedSize(), is(23L));
+    checkPolicyConsistency(map);
+  }
+
+  @Test
+  public void putAll_concurrentWrites() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .weigher((Integer key, Integer value) -> value)
+        .maximumWeight(Long.MAX_VALUE)
+        .build();
+    BoundedLocalCache<Integer, Integer> map = asBoundedLocalCache(cache);
+
+    AtomicInteger threadId = new AtomicInteger();
+    ConcurrentTestHarness.timeTasks(4, () -> {
+      boolean writesInBulk = (threadId.getAndIncrement() % 2) == 0;
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      for (int i = 0; i < 5_000; i++) {
+        if (writesInBulk) {
+          Map<Integer, Integer> entries = new LinkedHashMap<>();
+          for (int key = 0; key < 32; key++) {
+            entries.put(key, random.nextInt(1, 10));
+          }
+          cache.putAll(entries);
+        } else if (random.nextBoolean()) {
+          cache.invalidate(random.nextInt(32));
+        } else {
+          cache.asMap().replace(random.nextInt(32), random.nextInt(1, 10));
+        }
+      }
+    });
+    cache.cleanUp();
+
+    long weightedSize = 0;
+    for (Node<Integer, Integer> node : map.data.values()) {
+      weightedSize += node.getWeight();
+      assertThat(node.getPolicyWeight(), is(node.getWeight()));
+    }
+    assertThat(map.weightedSize(), is(weightedSize));
+    checkPolicyConsistency(map);
+  }
+
+  /** Checks that every live entry is in exactly one of the policy's deques, and no others are. */
+  private static void checkPolicyConsistency(BoundedLocalCache<Integer, Integer> map) {
+    Set<Node<Integer, Integer>> linked = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Node<Integer, Integer> node : map.accessOrderWindowDeque()) {
+      assertThat(node.inWindow(), is(true));
+      assertThat(linked.add(node), is(true));
+    }
+    for (Node<Integer, Integer> node : map.accessOrderProbationDeque()) {
+      assertThat(node.inMainProbation(), is(true));
+      assertThat(linked.add(node), is(true));
+    }
+    for (Node<Integer, Integer> node : map.accessOrderProtectedDeque()) {
+      assertThat(node.inMainProtected(), is(true));
+      assertThat(linked.add(node), is(true));
+    }
+    assertThat(linked.size(), is(map.data.size()));
+    for (Node<Integer, Integer> node : map.data.values()) {
+      assertThat(linked.contains(node), is(true));
+    }
+  }
+
   @Test(dataProvider = "caches")
   @CacheSpec(compute = Compute.SYNC, implementation = Implementation.Caffeine,
       population = Population.EMPTY, maximumSize = Maximum.ONE)
@@ -472,7 +635,8 @@ public final class BoundedLocalCacheTest {
     BoundedLocalCache<Integer, Integer> localCache = asBoundedLocalCache(cache);
 
     boolean[] ran = new boolean[1];
-    localCache.afterWrite(() -> ran[0] = true);
+    Runnable task = () -> ran[0] = true;
+    localCache.afterWrite(task);
     assertThat(ran[0], is(true));
 
     assertThat(localCache.writeBuffer().size(), is(0));
@@ -524,6 +688,28 @@ public final class BoundedLocalCacheTest {
     assertThat(triggered[0], is(expectedCount[0] + 1));
   }
 
+  @Test(dataProvider = "caches")
+  @CacheSpec(compute = Compute.SYNC, implementation = Implementation.Caffeine,
+      population = Population.FULL, maximumSize = Maximum.FULL, weigher = CacheWeigher.DEFAULT,
+      expireAfterWrite = Expire.ONE_MINUTE)
+  public void afterWrite_nodeAsTask(Cache<Integer, Integer> cache, CacheContext context) {
+    BoundedLocalCache<Integer, Integer> localCache = asBoundedLocalCache(cache);
+    Node<Integer, Integer> node = localCache.data.get(localCache.nodeFactory.newLookupKey(
+        context.firstKey()));
+    localCache.drainStatus = PROCESSING_TO_IDLE;
+
+    cache.asMap().replace(context.firstKey(), context.absentValue());
+    assertThat(localCache.writeBuffer().poll(), is(sameInstance(node)));
+
+    cache.invalidate(context.firstKey());
+    assertThat(localCache.writeBuffer().peek(), is(sameInstance(node)));
+
+    localCache.drainStatus = IDLE;
+    cache.cleanUp();
+    assertThat(node.isDead(), is(true));
+    assertThat(localCache.writeBuffer().size(), is(0));
+  }
+
   @Test(dataProvider = "caches")
   @CacheSpec(compute = Compute.SYNC, implementation = Implementation.Caffeine,
       population = Population.FULL, maximumSize = Maximum.FULL)
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class BulkLoadPartitionerTest {
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void construct_zeroBatchSize() {
+    new BulkLoadPartitioner(0, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void construct_zeroParallelism() {
+    new BulkLoadPartitioner(1, 0);
+  }
+
+  @Test
+  public void partition_empty() {
+    BulkLoadPartitioner partitioner = new BulkLoadPartitioner(2, 1);
+    assertThat(partitioner.partition(Collections.emptyList()), is(empty()));
+  }
+
+  @Test
+  public void partition() {
+    BulkLoadPartitioner partitioner = new BulkLoadPartitioner(2, 1);
+    assertThat(partitioner.partition(ImmutableList.of(1, 2, 3, 4, 5)), contains(
+        ImmutableList.of(1, 2), ImmutableList.of(3, 4), ImmutableList.of(5)));
+    assertThat(partitioner.shouldPartition(2), is(false));
+    assertThat(partitioner.shouldPartition(3), is(true));
+  }
+
+  @Test
+  public void forEach_parallelism() {
+    BulkLoadPartitioner partitioner = new BulkLoadPartitioner(1, 2);
+    List<CompletableFuture<Void>> pending = new ArrayList<>();
+    CompletableFuture<Void> result = partitioner.forEach(
+        partitioner.partition(ImmutableList.of(1, 2, 3, 4, 5)), batch -> {
+          CompletableFuture<Void> future = new CompletableFuture<>();
+          pending.add(future);
+          return future;
+        });
+    assertThat(pending.size(), is(2));
+
+    for (int i = 0; i < pending.size(); i++) {
+      assertThat(result.isDone(), is(false));
+      assertThat(pending.size() - i, is(lessThanOrEqualTo(2)));
+      pending.get(i).complete(null);
+    }
+    assertThat(pending.size(), is(5));
+    assertThat(result.join(), is(nullValue()));
+  }
+
+  @Test
+  public void forEach_failure() {
+    BulkLoadPartitioner partitioner = new BulkLoadPartitioner(1, 1);
+    AtomicInteger performed = new AtomicInteger();
+    CompletableFuture<Void> result = partitioner.forEach(
+        partitioner.partition(ImmutableList.of(1, 2, 3)), batch -> {
+          performed.incrementAndGet();
+          if (batch.get(0) == 2) {
+            throw new IllegalStateException();
+          }
+          return CompletableFuture.completedFuture(null);
+        });
+    assertThat(performed.get(), is(3));
+    try {
+      result.join();
+      Assert.fail();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+  }
+
+  @Test
+  public void forEachBlocking_callerParticipates() {
+    List<Runnable> tasks = new ArrayList<>();
+    List<List<Integer>> performed = new ArrayList<>();
+    BulkLoadPartitioner partitioner = new BulkLoadPartitioner(1, 3);
+    partitioner.forEachBlocking(partitioner.partition(ImmutableList.of(1, 2, 3, 4)),
+        performed::add, tasks::add);
+
+    // The queued tasks did not run, so the calling thread performed every batch
+    assertThat(tasks.size(), is(2));
+    assertThat(performed, contains(ImmutableList.of(1), ImmutableList.of(2),
+        ImmutableList.of(3), ImmutableList.of(4)));
+
+    tasks.forEach(Runnable::run);
+    assertThat(performed.size(), is(4));
+  }
+
+  @Test
+  public void forEachBlocking_rejected() {
+    List<Integer> performed = new ArrayList<>();
+    BulkLoadPartitioner partitioner = new BulkLoadPartitioner(1, 2);
+    partitioner.forEachBlocking(partitioner.partition(ImmutableList.of(1, 2)),
+        batch -> performed.addAll(batch), task -> {
+          throw new RejectedExecutionException();
+        });
+    assertThat(performed, contains(1, 2));
+  }
+
+  @Test
+  public void forEachBlocking_failure() {
+    AtomicInteger performed = new AtomicInteger();
+    BulkLoadPartitioner partitioner = new BulkLoadPartitioner(1, 1);
+    try {
+      partitioner.forEachBlocking(partitioner.partition(ImmutableList.of(1, 2, 3)), batch -> {
+        performed.incrementAndGet();
+        if (batch.get(0) == 2) {
+          throw new IllegalStateException();
+        }
+      }, Runnable::run);
+      Assert.fail();
+    } catch (IllegalStateException expected) {}
+    assertThat(performed.get(), is(3));
+  }
+
+  @Test
+  public void getAll_sync() {
+    List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+    LoadingCache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(Runnable::run)
+        .bulkLoadPartitioning(3, 1)
+        .build(new CacheLoader<Integer, Integer>() {
+          @Override public Integer load(Integer key) {
+            throw new UnsupportedOperationException();
+          }
+          @Override public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+            List<Integer> batch = ImmutableList.copyOf(keys);
+            batches.add(batch);
+            Map<Integer, Integer> result = new HashMap<>();
+            batch.forEach(key -> result.put(key, -key));
+            return result;
+          }
+        });
+    List<Integer> keys = ContiguousSet.create(
+        Range.closed(1, 8), DiscreteDomain.integers()).asList();
+    cache.put(2, -2);
+
+    Map<Integer, Integer> result = cache.getAll(keys);
+    assertThat(new ArrayList<>(result.keySet()), is(keys));
+    assertThat(batches, contains(ImmutableList.of(1, 3, 4),
+        ImmutableList.of(5, 6, 7), ImmutableList.of(8)));
+    assertThat(cache.estimatedSize(), is(8L));
+  }
+
+  @Test
+  public void getAll_sync_insertedPerBatch() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(Runnable::run)
+        .bulkLoadPartitioning(1, 1)
+        .build();
+    Map<Integer, Integer> result = cache.getAll(ImmutableList.of(1, 2), keys -> {
+      int key = keys.iterator().next();
+      if (key == 2) {
+        assertThat(cache.getIfPresent(1), is(-1));
+      }
+      return Collections.singletonMap(key, -key);
+    });
+    assertThat(result.get(2), is(-2));
+  }
+
+  @Test
+  public void getAll_sync_boundedExecutor() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Cache<Integer, Integer> cache = Caffeine.newBuilder()
+          .executor(executor)
+          .bulkLoadPartitioning(1, 4)
+          .build();
+
+      // The executor's only thread is the caller, so the batches are loaded by it
+      Future<Map<Integer, Integer>> future = executor.submit(() ->
+          cache.getAll(ImmutableList.of(1, 2, 3, 4), keys -> {
+            int key = keys.iterator().next();
+            return Collections.singletonMap(key, -key);
+          }));
+      assertThat(future.get(10, TimeUnit.SECONDS).size(), is(4));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void getAll_sync_stats() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(Runnable::run)
+        .bulkLoadPartitioning(2, 2)
+        .recordStats()
+        .build();
+    cache.getAll(ImmutableList.of(1, 2, 3, 4, 5), keys -> {
+      Map<Integer, Integer> result = new HashMap<>();
+      keys.forEach(key -> result.put(key, -key));
+      return result;
+    });
+
+    // Each batch is recorded as a separate load
+    assertThat(cache.stats().missCount(), is(5L));
+    assertThat(cache.stats().loadSuccessCount(), is(3L));
+  }
+
+  @Test
+  public void getAll_sync_failure() {
+    AtomicInteger loads = new AtomicInteger();
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(Runnable::run)
+        .bulkLoadPartitioning(1, 1)
+        .build();
+    try {
+      cache.getAll(ImmutableList.of(1, 2, 3), keys -> {
+        loads.incrementAndGet();
+        int key = keys.iterator().next();
+        if (key == 2) {
+          throw new IllegalStateException();
+        }
+        return Collections.singletonMap(key, -key);
+      });
+      Assert.fail();
+    } catch (IllegalStateException expected) {}
+
+    assertThat(loads.get(), is(3));
+    assertThat(cache.getIfPresent(1), is(-1));
+    assertThat(cache.getIfPresent(3), is(-3));
+  }
+
+  @Test
+  public void getAll_async() {
+    List<CompletableFuture<Map<Integer, Integer>>> pending = new ArrayList<>();
+    AsyncLoadingCache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(Runnable::run)
+        .bulkLoadPartitioning(2, 2)
+        .buildAsync(new AsyncCacheLoader<Integer, Integer>() {
+          @Override public CompletableFuture<Integer> asyncLoad(Integer key, Executor executor) {
+            throw new UnsupportedOperationException();
+          }
+          @Override public CompletableFuture<Map<Integer, Integer>> asyncLoadAll(
+              Iterable<? extends Integer> keys, Executor executor) {
+            CompletableFuture<Map<Integer, Integer>> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+          }
+        });
+    Map<Integer, CompletableFuture<Integer>> result =
+        cache.getAllFutures(ImmutableList.of(1, 2, 3, 4, 5));
+    assertThat(pending.size(), is(2));
+
+    Map<Integer, Integer> first = new HashMap<>();
+    first.put(1, -1);
+    first.put(2, -2);
+    pending.get(0).complete(first);
+    assertThat(result.get(1).join(), is(-1));
+    assertThat(result.get(2).join(), is(-2));
+    assertThat(result.get(3).isDone(), is(false));
+    assertThat(pending.size(), is(3));
+
+    pending.get(1).completeExceptionally(new IllegalStateException());
+    assertThat(result.get(3).isCompletedExceptionally(), is(true));
+    assertThat(result.get(4).isCompletedExceptionally(), is(true));
+
+    pending.get(2).complete(Collections.singletonMap(5, -5));
+    assertThat(result.get(5).join(), is(-5));
+    assertThat(cache.synchronous().estimatedSize(), is(3L));
+  }
+}
@@ -33,7 +33,9 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -55,6 +57,7 @@ import com.github.benmanes.caffeine.cache.testing.CacheSpec;
 import com.github.benmanes.caffeine.cache.testing.CacheSpec.Compute;
 import com.github.benmanes.caffeine.cache.testing.CacheSpec.Implementation;
 import com.github.benmanes.caffeine.cache.testing.CacheSpec.Listener;
+import com.github.benmanes.caffeine.cache.testing.CacheSpec.Maximum;
 import com.github.benmanes.caffeine.cache.testing.CacheSpec.Population;
 import com.github.benmanes.caffeine.cache.testing.CacheSpec.ReferenceType;
 import com.github.benmanes.caffeine.cache.testing.CacheSpec.Writer;
@@ -849,6 +852,26 @@ public final class CacheTest {
     assertThat(cache.policy().isRecordingStats(), is(context.isRecordingStats()));
   }
 
+  @CacheSpec(implementation = Implementation.Caffeine)
+  @CheckNoWriter @CheckNoStats
+  @Test(dataProvider = "caches")
+  public void recentStats(Cache<Integer, Integer> cache, CacheContext context) {
+    assertThat(cache.policy().recentStats().isPresent(), is(context.isRecordingStats()));
+    cache.policy().recentStats().ifPresent(recentStats -> {
+      assertThat(recentStats, is(not(sameInstance(cache.policy().recentStats().get()))));
+      assertThat(recentStats.window(), is(Duration.ofMinutes(1)));
+      assertThat(recentStats.snapshot().requestCount(), is(0L));
+    });
+  }
+
+  @CacheSpec(implementation = Implementation.Caffeine)
+  @CheckNoWriter @CheckNoStats
+  @Test(dataProvider = "caches")
+  public void admission(Cache<Integer, Integer> cache, CacheContext context) {
+    boolean evicts = (context.maximum() != Maximum.DISABLED);
+    assertThat(cache.policy().admission().isPresent(), is(evicts));
+  }
+
   /* --------------- serialize --------------- */
 
   @CheckNoStats
@@ -16,7 +16,11 @@
 package com.github.benmanes.caffeine.cache;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.sameInstance;
@@ -36,6 +40,7 @@ import com.github.benmanes.caffeine.cache.Policy.Eviction;
 import com.github.benmanes.caffeine.cache.Policy.Expiration;
 import com.github.benmanes.caffeine.cache.stats.StatsCounter;
 import com.google.common.testing.FakeTicker;
+import com.google.common.testing.SerializableTester;
 import com.google.common.util.concurrent.MoreExecutors;
 
 /**
@@ -524,6 +529,248 @@ public final class CaffeineTest {
     builder.build(k -> k);
   }
 
+  /* --------------- staleWhileRevalidate --------------- */
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void staleWhileRevalidate_zero() {
+    Caffeine.newBuilder().staleWhileRevalidate(0, TimeUnit.MILLISECONDS);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void staleWhileRevalidate_twice() {
+    Caffeine.newBuilder().staleWhileRevalidate(Duration.ofMillis(1))
+        .staleWhileRevalidate(Duration.ofMillis(1));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void staleWhileRevalidate_noCacheLoader() {
+    Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(1))
+        .staleWhileRevalidate(Duration.ofMillis(1)).build();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void staleWhileRevalidate_noExpireAfterWrite() {
+    Caffeine.newBuilder().staleWhileRevalidate(Duration.ofMillis(1)).build(k -> k);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void staleWhileRevalidate_refreshAfterWrite() {
+    Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(1))
+        .refreshAfterWrite(Duration.ofMillis(1))
+        .staleWhileRevalidate(Duration.ofMillis(1)).build(k -> k);
+  }
+
+  @Test
+  public void staleWhileRevalidate() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMillis(1))
+        .staleWhileRevalidate(Duration.ofMillis(2));
+    assertThat(builder.refreshes(), is(true));
+    assertThat(builder.getExpiresAfterWriteNanos(), is(TimeUnit.MILLISECONDS.toNanos(1)));
+    assertThat(builder.getStaleWhileRevalidateNanos(), is(TimeUnit.MILLISECONDS.toNanos(2)));
+    builder.build(k -> k);
+    builder.buildAsync(k -> k);
+  }
+
+  @Test
+  public void staleWhileRevalidate_saturated() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+        .expireAfterWrite(Long.MAX_VALUE, TimeUnit.NANOSECONDS)
+        .staleWhileRevalidate(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    BoundedLocalCache<Object, Object> cache =
+        (BoundedLocalCache<Object, Object>) builder.build(k -> k).asMap();
+    assertThat(cache.writeLifetimeNanos(), is(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void staleWhileRevalidate_fromSpec() {
+    Caffeine<Object, Object> builder =
+        Caffeine.from("expireAfterWrite=1m, staleWhileRevalidate=2m");
+    assertThat(builder.getExpiresAfterWriteNanos(), is(TimeUnit.MINUTES.toNanos(1)));
+    assertThat(builder.getStaleWhileRevalidateNanos(), is(TimeUnit.MINUTES.toNanos(2)));
+    assertThat(CaffeineSpec.parse("staleWhileRevalidate=2m"),
+        is(CaffeineSpec.parse("staleWhileRevalidate=120s")));
+  }
+
+  /* --------------- negativeCaching --------------- */
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void negativeCaching_zeroMaximumSize() {
+    Caffeine.newBuilder().negativeCaching(0, Duration.ofMinutes(1));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void negativeCaching_zeroDuration() {
+    Caffeine.newBuilder().negativeCaching(1, 0, TimeUnit.MINUTES);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void negativeCaching_twice() {
+    Caffeine.newBuilder().negativeCaching(1, Duration.ofMinutes(1))
+        .negativeCaching(1, Duration.ofMinutes(1));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void negativeCaching_noCacheLoader() {
+    Caffeine.newBuilder().negativeCaching(1, Duration.ofMinutes(1)).build();
+  }
+
+  @Test
+  public void negativeCaching_default() {
+    assertThat(Caffeine.newBuilder().newNegativeCache(), is(nullValue()));
+  }
+
+  @Test
+  public void negativeCaching() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+        .negativeCaching(10, 1, TimeUnit.MINUTES);
+    NegativeCache<Object> negativeCache = builder.newNegativeCache();
+    assertThat(negativeCache.maximumSize, is(10L));
+    assertThat(negativeCache.expiresAfterWriteNanos, is(TimeUnit.MINUTES.toNanos(1)));
+
+    LocalCache<?, ?> unbounded = (LocalCache<?, ?>) builder.build(k -> k).asMap();
+    assertThat(unbounded.negativeCache().maximumSize, is(10L));
+
+    LocalCache<?, ?> bounded = (LocalCache<?, ?>) builder.maximumSize(10).build(k -> k).asMap();
+    assertThat(bounded.negativeCache().maximumSize, is(10L));
+  }
+
+  /* --------------- asyncLoadTimeout --------------- */
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void asyncLoadTimeout_zero() {
+    Caffeine.newBuilder().asyncLoadTimeout(0, TimeUnit.SECONDS);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void asyncLoadTimeout_twice() {
+    Caffeine.newBuilder().asyncLoadTimeout(Duration.ofSeconds(1))
+        .asyncLoadTimeout(Duration.ofSeconds(1));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void asyncLoadTimeout_noScheduler() {
+    Caffeine.newBuilder().asyncLoadTimeout(Duration.ofSeconds(1))
+        .buildAsync(k -> k);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void asyncLoadTimeout_loadingCache() {
+    Caffeine.newBuilder().asyncLoadTimeout(Duration.ofSeconds(1))
+        .scheduler(Scheduler.systemScheduler()).build(k -> k);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void asyncLoadTimeout_asyncCache() {
+    Caffeine.newBuilder().asyncLoadTimeout(Duration.ofSeconds(1))
+        .scheduler(Scheduler.systemScheduler()).buildAsync();
+  }
+
+  @Test
+  public void asyncLoadTimeout() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+        .scheduler((executor, command, delay, unit) -> DisabledFuture.INSTANCE)
+        .asyncLoadTimeout(1, TimeUnit.SECONDS);
+    assertThat(builder.asyncLoadTimeoutNanos, is(TimeUnit.SECONDS.toNanos(1)));
+    assertThat(builder.boundsAsyncLoads(), is(true));
+
+    LocalAsyncLoadingCache<?, ?> cache = (LocalAsyncLoadingCache<?, ?>) builder.buildAsync(k -> k);
+    assertThat(cache.timedLoader, is(instanceOf(TimedAsyncLoader.class)));
+  }
+
+  /* --------------- hedgeAsyncLoadAfter --------------- */
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void hedgeAsyncLoadAfter_zero() {
+    Caffeine.newBuilder().hedgeAsyncLoadAfter(0, TimeUnit.SECONDS);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void hedgeAsyncLoadAfter_twice() {
+    Caffeine.newBuilder().hedgeAsyncLoadAfter(Duration.ofSeconds(1))
+        .hedgeAsyncLoadAfter(Duration.ofSeconds(1));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void hedgeAsyncLoadAfter_noScheduler() {
+    Caffeine.newBuilder().hedgeAsyncLoadAfter(Duration.ofSeconds(1))
+        .scheduler(Scheduler.disabledScheduler()).buildAsync(k -> k);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void hedgeAsyncLoadAfter_notBeforeTimeout() {
+    Caffeine.newBuilder().hedgeAsyncLoadAfter(Duration.ofSeconds(1))
+        .asyncLoadTimeout(Duration.ofSeconds(1))
+        .scheduler(Scheduler.systemScheduler()).buildAsync(k -> k);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void hedgeAsyncLoadAfter_manualCache() {
+    Caffeine.newBuilder().hedgeAsyncLoadAfter(Duration.ofSeconds(1))
+        .scheduler(Scheduler.systemScheduler()).build();
+  }
+
+  @Test
+  public void hedgeAsyncLoadAfter_default() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder();
+    assertThat(builder.boundsAsyncLoads(), is(false));
+
+    LocalAsyncLoadingCache<?, ?> cache = (LocalAsyncLoadingCache<?, ?>) builder.buildAsync(k -> k);
+    assertThat(cache.timedLoader, is(sameInstance(cache.loader)));
+  }
+
+  @Test
+  public void hedgeAsyncLoadAfter() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder()
+        .scheduler((executor, command, delay, unit) -> DisabledFuture.INSTANCE)
+        .hedgeAsyncLoadAfter(Duration.ofMillis(100))
+        .asyncLoadTimeout(Duration.ofSeconds(1));
+    assertThat(builder.hedgeAsyncLoadNanos, is(TimeUnit.MILLISECONDS.toNanos(100)));
+
+    LocalAsyncLoadingCache<?, ?> cache = (LocalAsyncLoadingCache<?, ?>)
+        builder.maximumSize(10).buildAsync(k -> k);
+    assertThat(cache.timedLoader, is(instanceOf(TimedAsyncLoader.class)));
+  }
+
+  /* --------------- loadOutsideOfLock --------------- */
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void loadOutsideOfLock_twice() {
+    Caffeine.newBuilder().loadOutsideOfLock().loadOutsideOfLock();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void loadOutsideOfLock_asyncCache() {
+    Caffeine.newBuilder().loadOutsideOfLock().buildAsync();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void loadOutsideOfLock_asyncLoadingCache() {
+    Caffeine.newBuilder().loadOutsideOfLock().buildAsync(k -> k);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void loadOutsideOfLock_weakKeys() {
+    Caffeine.newBuilder().loadOutsideOfLock().weakKeys().build();
+  }
+
+  @Test
+  public void loadOutsideOfLock_default() {
+    assertThat(Caffeine.newBuilder().newPendingLoads(), is(nullValue()));
+  }
+
+  @Test
+  public void loadOutsideOfLock() {
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().loadOutsideOfLock();
+    assertThat(builder.newPendingLoads(), is(not(nullValue())));
+
+    LocalCache<?, ?> unbounded = (LocalCache<?, ?>) builder.build().asMap();
+    assertThat(unbounded.pendingLoads(), is(not(nullValue())));
+
+    LocalCache<?, ?> bounded = (LocalCache<?, ?>) builder.maximumSize(10).build(k -> k).asMap();
+    assertThat(bounded.pendingLoads(), is(not(nullValue())));
+  }
+
   /* --------------- weakKeys --------------- */
 
   @Test(expectedExceptions = IllegalStateException.class)
@@ -606,6 +853,42 @@ public final class CaffeineTest {
     builder.build();
   }
 
+  /* --------------- bulkLoadPartitioning --------------- */
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void bulkLoadPartitioning_zeroBatchSize() {
+    Caffeine.newBuilder().bulkLoadPartitioning(0, 1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void bulkLoadPartitioning_zeroParallelism() {
+    Caffeine.newBuilder().bulkLoadPartitioning(1, 0);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void bulkLoadPartitioning_twice() {
+    Caffeine.newBuilder().bulkLoadPartitioning(1, 1).bulkLoadPartitioning(1, 1);
+  }
+
+  @Test
+  public void bulkLoadPartitioning_default() {
+    assertThat(Caffeine.newBuilder().getBulkLoadPartitioner(), is(nullValue()));
+  }
+
+  @Test
+  public void bulkLoadPartitioning() {
+    Caffeine<?, ?> builder = Caffeine.newBuilder().bulkLoadPartitioning(100, 4);
+    BulkLoadPartitioner partitioner = builder.getBulkLoadPartitioner();
+    assertThat(partitioner.batchSize, is(100));
+    assertThat(partitioner.parallelism, is(4));
+
+    LocalCache<?, ?> unbounded = (LocalCache<?, ?>) builder.build().asMap();
+    assertThat(unbounded.bulkLoadPartitioner().batchSize, is(100));
+
+    LocalCache<?, ?> bounded = (LocalCache<?, ?>) builder.maximumSize(10).build().asMap();
+    assertThat(bounded.bulkLoadPartitioner().parallelism, is(4));
+  }
+
   /* --------------- ticker --------------- */
 
   @Test(expectedExceptions = NullPointerException.class)
@@ -666,6 +949,193 @@ public final class CaffeineTest {
     builder.build();
   }
 
+  /* --------------- hitRateCurve --------------- */
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void recordHitRateCurve_twice() {
+    Caffeine.newBuilder().recordHitRateCurve().recordHitRateCurve();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void recordHitRateCurve_noMaximumSize() {
+    Caffeine.newBuilder().recordHitRateCurve().build();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void recordHitRateCurve_maximumWeight() {
+    Caffeine.newBuilder().recordHitRateCurve()
+        .maximumWeight(1).weigher(Weigher.singletonWeigher()).build();
+  }
+
+  @Test
+  public void recordHitRateCurve() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .maximumSize(100).executor(Runnable::run).recordHitRateCurve().build();
+    Eviction<Integer, Integer> eviction = cache.policy().eviction().get();
+    assertThat(eviction.estimatedHitRate(1.0).getAsDouble(), is(0.0));
+
+    for (int i = 0; i < 1_000; i++) {
+      cache.get(i % 150, key -> key);
+    }
+    cache.cleanUp();
+    assertThat(eviction.estimatedHitRate(0.5).getAsDouble(), is(0.0));
+    assertThat(eviction.estimatedHitRate(2.0).getAsDouble(), is(greaterThan(0.5)));
+  }
+
+  @Test
+  public void recordHitRateCurve_disabled() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder().maximumSize(100).build();
+    Eviction<Integer, Integer> eviction = cache.policy().eviction().get();
+    assertThat(eviction.estimatedHitRate(1.0).isPresent(), is(false));
+  }
+
+  /* --------------- windowSizing --------------- */
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void windowSizing_null() {
+    Caffeine.newBuilder().windowSizing(null);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void windowSizing_twice() {
+    Caffeine.newBuilder().windowSizing(WindowSizing.ADAM).windowSizing(WindowSizing.ADAM);
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void windowSizing_noMaximum() {
+    Caffeine.newBuilder().windowSizing(WindowSizing.ADAM).build();
+  }
+
+  @Test
+  public void windowSizing_default() {
+    BoundedLocalCache<?, ?> cache = (BoundedLocalCache<?, ?>) Caffeine.newBuilder()
+        .maximumSize(100).build().asMap();
+    assertThat(cache.climber, is(nullValue()));
+    assertThat(Caffeine.newBuilder().getWindowSizing(), is(WindowSizing.HILL_CLIMBING));
+  }
+
+  @Test
+  public void windowSizing_hillClimbing() {
+    BoundedLocalCache<?, ?> cache = (BoundedLocalCache<?, ?>) Caffeine.newBuilder()
+        .maximumSize(100).windowSizing(WindowSizing.HILL_CLIMBING).build().asMap();
+    assertThat(cache.climber, is(nullValue()));
+  }
+
+  @Test
+  public void windowSizing_gradient() {
+    for (WindowSizing type : new WindowSizing[] {
+        WindowSizing.ADAM, WindowSizing.NADAM, WindowSizing.AMSGRAD }) {
+      Cache<Integer, Integer> cache = Caffeine.newBuilder()
+          .maximumSize(100).executor(Runnable::run).windowSizing(type).build();
+      BoundedLocalCache<?, ?> localCache = (BoundedLocalCache<?, ?>) cache.asMap();
+      assertThat(localCache.climber.type, is(type));
+
+      for (int i = 0; i < 10_000; i++) {
+        cache.get(i % 150, key -> key);
+      }
+      cache.cleanUp();
+      assertThat(localCache.windowMaximum() + localCache.mainProtectedMaximum(),
+          is(lessThanOrEqualTo(100L)));
+    }
+  }
+
+  /* --------------- sampleReads --------------- */
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void sampleReads_twice() {
+    Caffeine.newBuilder().sampleReads().sampleReads();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void sampleReads_noMaximum() {
+    Caffeine.newBuilder().sampleReads().build();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void sampleReads_expireAfterAccess() {
+    Caffeine.newBuilder().maximumSize(100)
+        .expireAfterAccess(Duration.ofMinutes(1)).sampleReads().build();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void sampleReads_expireAfterAccess_async() {
+    Caffeine.newBuilder().maximumSize(100)
+        .expireAfterAccess(Duration.ofMinutes(1)).sampleReads().buildAsync(k -> k);
+  }
+
+  @Test
+  public void sampleReads_default() {
+    BoundedLocalCache<?, ?> cache = (BoundedLocalCache<?, ?>) Caffeine.newBuilder()
+        .maximumSize(100).build().asMap();
+    assertThat(cache.sampleReads, is(false));
+  }
+
+  @Test
+  public void sampleReads() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .maximumSize(100).executor(Runnable::run).sampleReads().build();
+    BoundedLocalCache<Integer, Integer> localCache =
+        (BoundedLocalCache<Integer, Integer>) cache.asMap();
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i);
+    }
+    cache.cleanUp();
+
+    int recorded = localCache.readBuffer.writes();
+    for (int i = 0; i < 1_000; i++) {
+      cache.getIfPresent(0);
+    }
+    cache.cleanUp();
+
+    assertThat(localCache.readBuffer.writes() - recorded, is(lessThan(500)));
+    assertThat(localCache.frequencySketch().isSaturated(0), is(true));
+  }
+
+  /* --------------- admissionDoorkeeper --------------- */
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void admissionDoorkeeper_twice() {
+    Caffeine.newBuilder().admissionDoorkeeper().admissionDoorkeeper();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void admissionDoorkeeper_noMaximum() {
+    Caffeine.newBuilder().admissionDoorkeeper().build();
+  }
+
+  @Test
+  public void admissionDoorkeeper_default() {
+    BoundedLocalCache<?, ?> cache = (BoundedLocalCache<?, ?>) Caffeine.newBuilder()
+        .maximumSize(100).build().asMap();
+    assertThat(cache.frequencySketch().useDoorkeeper, is(false));
+  }
+
+  @Test
+  public void admissionDoorkeeper() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .maximumSize(100).executor(Runnable::run).admissionDoorkeeper().build();
+    BoundedLocalCache<Integer, Integer> localCache =
+        (BoundedLocalCache<Integer, Integer>) cache.asMap();
+    for (int i = 0; i < 100; i++) {
+      cache.put(i, i);
+    }
+    cache.cleanUp();
+
+    assertThat(localCache.frequencySketch().useDoorkeeper, is(true));
+    assertThat(localCache.frequencySketch().doorkeeper, is(not(nullValue())));
+  }
+
+  @Test
+  public void admissionDoorkeeper_spec() {
+    Caffeine<Object, Object> builder = Caffeine.from("maximumSize=100,admissionDoorkeeper");
+    assertThat(builder.usesAdmissionDoorkeeper(), is(true));
+
+    Cache<Integer, Integer> cache = builder.build();
+    Cache<Integer, Integer> copy = SerializableTester.reserialize(cache);
+    BoundedLocalCache<?, ?> localCopy = (BoundedLocalCache<?, ?>) copy.asMap();
+    assertThat(localCopy.frequencySketch().useDoorkeeper, is(true));
+  }
+
   /* --------------- removalListener --------------- */
 
   @Test(expectedExceptions = NullPointerException.class)
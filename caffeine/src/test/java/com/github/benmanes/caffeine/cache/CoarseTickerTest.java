@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.testing.Awaits.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import com.google.common.testing.GcFinalization;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class CoarseTickerTest {
+
+  @Test
+  public void coarseTicker_shared() {
+    Ticker ticker = Ticker.coarseTicker();
+    assertThat(ticker, is(sameInstance(Ticker.coarseTicker())));
+  }
+
+  @Test
+  public void read_trailsSystemTime() {
+    CoarseTicker ticker = new CoarseTicker();
+    assertThat(ticker.read(), is(lessThanOrEqualTo(System.nanoTime())));
+  }
+
+  @Test
+  public void read_doesNotStart() {
+    CoarseTicker ticker = new CoarseTicker();
+    long start = ticker.read();
+    assertThat(ticker.read(), is(start));
+  }
+
+  @Test
+  public void advance_monotonic() {
+    CoarseTicker ticker = new CoarseTicker();
+    long start = ticker.read();
+    ticker.advance();
+    assertThat(ticker.read(), is(greaterThanOrEqualTo(start)));
+  }
+
+  @Test
+  public void start_advances() {
+    CoarseTicker ticker = new CoarseTicker();
+    long start = ticker.read();
+    CoarseTicker.start(ticker, CoarseTicker.RESOLUTION);
+    await().until(ticker::read, is(greaterThan(start)));
+  }
+
+  @Test
+  public void start_threadConfiguration() {
+    ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+    Thread thread = CoarseTicker.start(new CoarseTicker(), TimeUnit.MINUTES.toNanos(1));
+
+    assertThat(contextClassLoader, is(not(nullValue())));
+    assertThat(thread.getContextClassLoader(), is(nullValue()));
+    assertThat(thread.getName(), is("Caffeine-CoarseTicker"));
+    assertThat(thread.isDaemon(), is(true));
+  }
+
+  @Test
+  public void start_stopsWhenCollected() {
+    CoarseTicker ticker = new CoarseTicker();
+    Thread thread = CoarseTicker.start(ticker, CoarseTicker.RESOLUTION);
+    WeakReference<CoarseTicker> ref = new WeakReference<>(ticker);
+    ticker = null;
+
+    GcFinalization.awaitClear(ref);
+    await().until(() -> !thread.isAlive());
+  }
+}
@@ -23,10 +23,16 @@ import static com.github.benmanes.caffeine.testing.Awaits.await;
 import static com.github.benmanes.caffeine.testing.IsEmptyMap.emptyMap;
 import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.mockito.Mockito.verify;
 
 import java.util.Collections;
@@ -43,6 +49,7 @@ import org.mockito.Mockito;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import com.github.benmanes.caffeine.cache.Policy.Admission;
 import com.github.benmanes.caffeine.cache.Policy.Eviction;
 import com.github.benmanes.caffeine.cache.testing.CacheContext;
 import com.github.benmanes.caffeine.cache.testing.CacheProvider;
@@ -707,4 +714,39 @@ public final class EvictionTest {
     cache.invalidateAll();
     assertThat(hottest, is(equalTo(context.original())));
   }
+
+  /* --------------- Policy: Admission --------------- */
+
+  @Test(dataProvider = "caches")
+  @CacheSpec(implementation = Implementation.Caffeine, population = Population.FULL,
+      maximumSize = Maximum.FULL, weigher = CacheWeigher.DEFAULT)
+  public void admission(Cache<Integer, Integer> cache, CacheContext context) {
+    Admission admission = cache.policy().admission().get();
+    assertThat(admission, is(sameInstance(cache.policy().admission().get())));
+    assertThat(admission.admittedCount(), is(0L));
+    assertThat(admission.rejectedCount(), is(0L));
+
+    cache.putAll(context.absent());
+    context.cleanUp();
+    int count = context.absentKeys().size();
+    assertThat(admission.admittedCount() + admission.rejectedCount(), is((long) count));
+    assertThat(admission.windowMaximum() + admission.mainProtectedMaximum(),
+        is(lessThanOrEqualTo(context.maximumSize())));
+    assertThat(admission.sketchSaturation(),
+        is(both(greaterThanOrEqualTo(0.0)).and(lessThan(1.0))));
+    assertThat(admission.sketchResetCount(), is(0L));
+  }
+
+  @Test(dataProvider = "caches")
+  @CacheSpec(implementation = Implementation.Caffeine, population = Population.EMPTY,
+      maximumSize = Maximum.TEN, weigher = CacheWeigher.DEFAULT)
+  public void admission_sketchReset(Cache<Integer, Integer> cache, CacheContext context) {
+    Admission admission = cache.policy().admission().get();
+    for (int i = 0; i < 1_000; i++) {
+      cache.put(i, -i);
+      cache.getIfPresent(i);
+    }
+    context.cleanUp();
+    assertThat(admission.sketchResetCount(), is(greaterThan(0L)));
+  }
 }
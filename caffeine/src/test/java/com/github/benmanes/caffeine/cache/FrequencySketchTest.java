@@ -16,12 +16,16 @@
 package com.github.benmanes.caffeine.cache;
 
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -40,6 +44,38 @@ public final class FrequencySketchTest {
     assertThat(sketch.table, is(nullValue()));
   }
 
+  @Test
+  public void construct_randomSeed() {
+    Set<Integer> seeds = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      seeds.add(new FrequencySketch<>().seed);
+    }
+    assertThat(seeds.size(), is(greaterThan(1)));
+  }
+
+  @Test
+  public void spread_collisionsDependOnSeed() {
+    FrequencySketch<Integer> first = makeSketch(512);
+    FrequencySketch<Integer> second = makeSketch(512);
+    while (second.seed == first.seed) {
+      second = makeSketch(512);
+    }
+
+    // Keys whose hash codes collide on a block in one sketch are scattered in another
+    List<Integer> colliding = new ArrayList<>();
+    int target = FrequencySketch.spread(0, first.seed) & first.blockMask;
+    for (int key = 1; colliding.size() < 32; key++) {
+      if ((FrequencySketch.spread(key, first.seed) & first.blockMask) == target) {
+        colliding.add(key);
+      }
+    }
+    Set<Integer> blocks = new HashSet<>();
+    for (int key : colliding) {
+      blocks.add(FrequencySketch.spread(key, second.seed) & second.blockMask);
+    }
+    assertThat(blocks.size(), is(greaterThan(colliding.size() / 2)));
+  }
+
   @Test(dataProvider = "sketch", expectedExceptions = IllegalArgumentException.class)
   public void ensureCapacity_negative(FrequencySketch<Integer> sketch) {
     sketch.ensureCapacity(-1);
@@ -50,7 +86,7 @@ public final class FrequencySketchTest {
     int size = sketch.table.length;
     sketch.ensureCapacity(size / 2);
     assertThat(sketch.table.length, is(size));
-    assertThat(sketch.tableMask, is(size - 1));
+    assertThat(sketch.blockMask, is((size >>> 3) - 1));
     assertThat(sketch.sampleSize, is(10 * size));
   }
 
@@ -59,7 +95,7 @@ public final class FrequencySketchTest {
     int size = sketch.table.length;
     sketch.ensureCapacity(size * 2);
     assertThat(sketch.table.length, is(size * 2));
-    assertThat(sketch.tableMask, is(2 * size - 1));
+    assertThat(sketch.blockMask, is(((2 * size) >>> 3) - 1));
     assertThat(sketch.sampleSize, is(10 * 2 * size));
   }
 
@@ -77,6 +113,19 @@ public final class FrequencySketchTest {
     assertThat(sketch.frequency(item), is(15));
   }
 
+  @Test(dataProvider = "sketch")
+  public void isSaturated(FrequencySketch<Integer> sketch) {
+    assertThat(new FrequencySketch<Integer>().isSaturated(item), is(false));
+
+    sketch.increment(item);
+    assertThat(sketch.isSaturated(item), is(false));
+    for (int i = 0; i < 20; i++) {
+      sketch.increment(item);
+    }
+    assertThat(sketch.isSaturated(item), is(true));
+    assertThat(sketch.isSaturated(item + 1), is(false));
+  }
+
   @Test(dataProvider = "sketch")
   public void increment_distinct(FrequencySketch<Integer> sketch) {
     sketch.increment(item);
@@ -87,15 +136,43 @@ public final class FrequencySketchTest {
   }
 
   @Test(dataProvider = "sketch")
-  public void indexOf_aroundZero(FrequencySketch<Integer> sketch) {
-    Set<Integer> indexes = new HashSet<>(16);
+  public void increment_sameBlock(FrequencySketch<Integer> sketch) {
+    sketch.increment(item);
+    int block = (FrequencySketch.spread(item.hashCode(), sketch.seed) & sketch.blockMask) << 3;
+    for (int i = 0; i < sketch.table.length; i++) {
+      boolean inBlock = (i >= block) && (i < block + FrequencySketch.BLOCK_SIZE);
+      if (!inBlock) {
+        assertThat(sketch.table[i], is(0L));
+      }
+    }
+
+    // Each depth increments one counter in its pair of slots within the block
+    long counters = 0;
+    for (int i = block; i < block + FrequencySketch.BLOCK_SIZE; i++) {
+      counters += Long.bitCount(sketch.table[i]);
+    }
+    assertThat(counters, is(4L));
+  }
+
+  @Test
+  public void ensureCapacity_minimum() {
+    FrequencySketch<Integer> sketch = makeSketch(0);
+    assertThat(sketch.table.length, is(FrequencySketch.BLOCK_SIZE));
+    assertThat(sketch.blockMask, is(0));
+
+    sketch.increment(item);
+    assertThat(sketch.frequency(item), is(1));
+  }
+
+  @Test(dataProvider = "sketch")
+  public void increment_aroundZero(FrequencySketch<Integer> sketch) {
     int[] hashes = { -1, 0, 1 };
     for (int hash : hashes) {
-      for (int i = 0; i < 4; i++) {
-        indexes.add(sketch.indexOf(hash, i));
-      }
+      sketch.increment(hash);
+    }
+    for (int hash : hashes) {
+      assertThat(sketch.frequency(hash), is(1));
     }
-    assertThat(indexes, hasSize(4 * hashes.length));
   }
 
   @Test
@@ -112,9 +189,53 @@ public final class FrequencySketchTest {
       }
     }
     assertThat(reset, is(true));
+    assertThat(sketch.resetCount(), is(1L));
     assertThat(sketch.size, lessThanOrEqualTo(sketch.sampleSize / 2));
   }
 
+  @Test
+  public void saturation() {
+    FrequencySketch<Integer> sketch = new FrequencySketch<>();
+    assertThat(sketch.saturation(), is(0.0));
+
+    sketch.ensureCapacity(64);
+    for (int i = 0; i < sketch.sampleSize / 2; i++) {
+      sketch.increment(i);
+    }
+    assertThat(sketch.saturation(), is((double) sketch.size / sketch.sampleSize));
+    assertThat(sketch.resetCount(), is(0L));
+  }
+
+  @Test
+  public void reset_incremental() {
+    FrequencySketch<Integer> sketch = makeSketch(2 * FrequencySketch.INCREMENTAL_RESET_THRESHOLD);
+    for (int i = 0; i < 15; i++) {
+      sketch.increment(item);
+    }
+    assertThat(sketch.frequency(item), is(15));
+
+    sketch.size = sketch.sampleSize - 1;
+    sketch.increment(item + 1);
+    assertThat(sketch.resetIndex, is(0));
+    assertThat(sketch.size, is(sketch.sampleSize >>> 1));
+
+    int steps = sketch.table.length / FrequencySketch.RESET_CHUNK;
+    for (int i = 0; i < steps; i++) {
+      assertThat(sketch.resetIndex, is(i * FrequencySketch.RESET_CHUNK));
+      sketch.increment(item + 2);
+    }
+    assertThat(sketch.resetIndex, is(sketch.table.length));
+    assertThat(sketch.frequency(item), is(7));
+  }
+
+  @Test
+  public void reset_incremental_ensureCapacity() {
+    FrequencySketch<Integer> sketch = makeSketch(2 * FrequencySketch.INCREMENTAL_RESET_THRESHOLD);
+    sketch.startReset();
+    sketch.ensureCapacity(4 * FrequencySketch.INCREMENTAL_RESET_THRESHOLD);
+    assertThat(sketch.resetIndex, is(sketch.table.length));
+  }
+
   @Test
   public void heavyHitters() {
     FrequencySketch<Double> sketch = makeSketch(512);
@@ -145,6 +266,86 @@ public final class FrequencySketchTest {
     }
   }
 
+  @Test
+  public void doorkeeper_ensureCapacity() {
+    FrequencySketch<Integer> sketch = makeDoorkeeperSketch(512);
+    assertThat(sketch.table.length, is(256));
+    assertThat(sketch.doorkeeper.length, is(128));
+    assertThat(sketch.doorkeeperMask, is(127));
+
+    long[] table = sketch.table;
+    sketch.ensureCapacity(512);
+    assertThat(sketch.table, is(sameInstance(table)));
+
+    sketch.ensureCapacity(1024);
+    assertThat(sketch.table.length, is(512));
+    assertThat(sketch.doorkeeper.length, is(256));
+  }
+
+  @Test
+  public void doorkeeper_firstOccurrence() {
+    FrequencySketch<Integer> sketch = makeDoorkeeperSketch(512);
+    sketch.increment(item);
+    assertThat(sketch.frequency(item), is(1));
+    assertThat(Arrays.stream(sketch.table).allMatch(slot -> slot == 0L), is(true));
+    assertThat(sketch.size, is(1));
+
+    sketch.increment(item);
+    assertThat(sketch.frequency(item), is(2));
+    assertThat(sketch.size, is(2));
+  }
+
+  @Test
+  public void doorkeeper_maximum() {
+    FrequencySketch<Integer> sketch = makeDoorkeeperSketch(512);
+    for (int i = 0; i < 20; i++) {
+      sketch.increment(item);
+    }
+    assertThat(sketch.frequency(item), is(15));
+  }
+
+  @Test
+  public void doorkeeper_reset() {
+    FrequencySketch<Integer> sketch = makeDoorkeeperSketch(64);
+    sketch.increment(item);
+    sketch.size = sketch.sampleSize - 1;
+    sketch.increment(item + 1);
+    assertThat(Arrays.stream(sketch.doorkeeper).allMatch(word -> word == 0L), is(true));
+    assertThat(sketch.frequency(item), is(0));
+  }
+
+  @Test
+  public void doorkeeper_reset_incremental() {
+    FrequencySketch<Integer> sketch =
+        makeDoorkeeperSketch(4 * FrequencySketch.INCREMENTAL_RESET_THRESHOLD);
+    sketch.increment(item);
+    sketch.size = sketch.sampleSize - 1;
+    sketch.increment(item + 1);
+    assertThat(sketch.resetIndex, is(0));
+
+    while (sketch.resetIndex < sketch.table.length) {
+      sketch.age();
+    }
+    assertThat(Arrays.stream(sketch.doorkeeper).allMatch(word -> word == 0L), is(true));
+    assertThat(sketch.frequency(item), is(0));
+  }
+
+  @Test
+  public void doorkeeper_heavyHitters() {
+    FrequencySketch<Integer> sketch = makeDoorkeeperSketch(512);
+    for (int i = 100; i < 100_000; i++) {
+      sketch.increment(i);
+    }
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < i; j++) {
+        sketch.increment(i);
+      }
+    }
+    for (int i = 2; i < 10; i++) {
+      assertThat(sketch.frequency(i - 1), lessThanOrEqualTo(sketch.frequency(i)));
+    }
+  }
+
   @DataProvider(name = "sketch")
   public Object[][] providesSketch() {
     return new Object[][] {{ makeSketch(512) }};
@@ -155,4 +356,10 @@ public final class FrequencySketchTest {
     sketch.ensureCapacity(maximumSize);
     return sketch;
   }
+
+  private static <E> FrequencySketch<E> makeDoorkeeperSketch(long maximumSize) {
+    FrequencySketch<E> sketch = new FrequencySketch<>(/* useDoorkeeper */ true);
+    sketch.ensureCapacity(maximumSize);
+    return sketch;
+  }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class GetAllFuturesTimeoutTest {
+  static final Duration TIMEOUT = Duration.ofSeconds(1);
+
+  List<CompletableFuture<Map<Integer, Integer>>> loads;
+  List<CompletableFuture<Void>> timers;
+  List<Runnable> commands;
+  List<Long> delays;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    loads = new ArrayList<>();
+    timers = new ArrayList<>();
+    commands = new ArrayList<>();
+    delays = new ArrayList<>();
+  }
+
+  @Test
+  public void timeout() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder().bulkLoadPartitioning(1, 2));
+    cache.put(1, CompletableFuture.completedFuture(-1));
+    Map<Integer, CompletableFuture<Integer>> result =
+        cache.getAllFutures(ImmutableList.of(1, 2, 3), TIMEOUT);
+    assertThat(result.get(1).join(), is(-1));
+    assertThat(delays, is(ImmutableList.of(TIMEOUT.toNanos())));
+
+    loads.get(0).complete(Collections.singletonMap(2, -2));
+    assertThat(result.get(2).join(), is(-2));
+    assertThat(result.get(3).isDone(), is(false));
+
+    // The deadline reports the pending key as missing while its load continues
+    commands.get(0).run();
+    assertThat(failure(result.get(3)), is(instanceOf(TimeoutException.class)));
+    loads.get(1).complete(Collections.singletonMap(3, -3));
+    assertThat(cache.synchronous().getIfPresent(3), is(-3));
+  }
+
+  @Test
+  public void completedBeforeTimeout() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder());
+    Map<Integer, CompletableFuture<Integer>> result =
+        cache.getAllFutures(ImmutableList.of(1, 2), TIMEOUT);
+    loads.get(0).complete(Collections.singletonMap(1, -1));
+
+    assertThat(result.get(1).join(), is(-1));
+    assertThat(result.get(2).join(), is((Integer) null));
+    assertThat(timers.get(0).isCancelled(), is(true));
+  }
+
+  @Test
+  public void allPresent() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder());
+    cache.put(1, CompletableFuture.completedFuture(-1));
+    Map<Integer, CompletableFuture<Integer>> result =
+        cache.getAllFutures(ImmutableList.of(1), TIMEOUT);
+    assertThat(result.get(1).join(), is(-1));
+    assertThat(timers.isEmpty(), is(true));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void negativeTimeout() {
+    newCache(builder()).getAllFutures(ImmutableList.of(1), Duration.ofSeconds(-1));
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void noScheduler() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(Caffeine.newBuilder());
+    cache.getAllFutures(ImmutableList.of(1), TIMEOUT);
+  }
+
+  private Caffeine<Object, Object> builder() {
+    return Caffeine.newBuilder()
+        .executor(Runnable::run)
+        .scheduler((executor, command, delay, unit) -> {
+          CompletableFuture<Void> timer = new CompletableFuture<>();
+          delays.add(unit.toNanos(delay));
+          commands.add(command);
+          timers.add(timer);
+          return timer;
+        });
+  }
+
+  private AsyncLoadingCache<Integer, Integer> newCache(Caffeine<Object, Object> builder) {
+    return builder.buildAsync(new AsyncCacheLoader<Integer, Integer>() {
+      @Override public CompletableFuture<Integer> asyncLoad(Integer key, Executor executor) {
+        throw new UnsupportedOperationException();
+      }
+      @Override public CompletableFuture<Map<Integer, Integer>> asyncLoadAll(
+          Iterable<? extends Integer> keys, Executor executor) {
+        CompletableFuture<Map<Integer, Integer>> future = new CompletableFuture<>();
+        loads.add(future);
+        return future;
+      }
+    });
+  }
+
+  private static Throwable failure(CompletableFuture<?> future) {
+    try {
+      future.join();
+      throw new AssertionError();
+    } catch (CompletionException e) {
+      return e.getCause();
+    }
+  }
+}
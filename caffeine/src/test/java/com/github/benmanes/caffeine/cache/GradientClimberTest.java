@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class GradientClimberTest {
+  static final long MAXIMUM = 10_000;
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void construct_null() {
+    new GradientClimber(null);
+  }
+
+  @Test
+  public void sampleSize() {
+    assertThat(GradientClimber.sampleSize(0), is(1));
+    assertThat(GradientClimber.sampleSize(10 * (int) MAXIMUM), is(2000));
+  }
+
+  @Test(dataProvider = "gradient")
+  public void adjust_unchanged(WindowSizing type) {
+    GradientClimber climber = new GradientClimber(type);
+    assertThat(climber.adjust(0.5, 0.5, MAXIMUM), is(closeTo(0.0, 0.0)));
+  }
+
+  @Test(dataProvider = "gradient")
+  public void adjust_missRateIncreased(WindowSizing type) {
+    GradientClimber climber = new GradientClimber(type);
+    assertThat(climber.adjust(0.4, 0.5, MAXIMUM), is(greaterThan(0.0)));
+  }
+
+  @Test(dataProvider = "gradient")
+  public void adjust_missRateDecreased(WindowSizing type) {
+    GradientClimber climber = new GradientClimber(type);
+    assertThat(climber.adjust(0.6, 0.5, MAXIMUM), is(lessThan(0.0)));
+  }
+
+  @Test
+  public void adjust_adam_firstStep() {
+    GradientClimber climber = new GradientClimber(WindowSizing.ADAM);
+    double stepSize = GradientClimber.PERCENT_PIVOT * MAXIMUM;
+    assertThat(climber.adjust(0.4, 0.5, MAXIMUM), is(closeTo(stepSize, 0.01)));
+  }
+
+  @Test(dataProvider = "gradient")
+  public void adjust_momentum(WindowSizing type) {
+    GradientClimber climber = new GradientClimber(type);
+    climber.adjust(0.4, 0.5, MAXIMUM);
+
+    // the momentum carries the previous direction when the hit rate holds steady
+    assertThat(climber.adjust(0.4, 0.4, MAXIMUM), is(greaterThan(0.0)));
+  }
+
+  @DataProvider(name = "gradient")
+  public Object[][] providesGradient() {
+    return new Object[][] {
+      { WindowSizing.ADAM }, { WindowSizing.NADAM }, { WindowSizing.AMSGRAD },
+    };
+  }
+}
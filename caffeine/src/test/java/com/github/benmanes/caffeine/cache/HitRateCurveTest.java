@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class HitRateCurveTest {
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void resize_negative() {
+    new HitRateCurve(-1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void estimate_zero() {
+    new HitRateCurve(100).estimate(0.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void estimate_tooLarge() {
+    new HitRateCurve(100).estimate(4.1);
+  }
+
+  @Test
+  public void estimate_empty() {
+    assertThat(new HitRateCurve(100).estimate(1.0), is(0.0));
+  }
+
+  @Test
+  public void estimate_loop() {
+    // A loop that is larger than an LRU cache always misses, but fits in double the size
+    HitRateCurve curve = new HitRateCurve(100);
+    for (int i = 0; i < 10_000; i++) {
+      curve.record(i % 150);
+    }
+    checkStructure(curve);
+    assertThat(curve.estimate(1.0), is(0.0));
+    assertThat(curve.estimate(2.0), is(closeTo(1.0, 0.05)));
+    assertThat(curve.estimate(4.0), is(curve.estimate(2.0)));
+  }
+
+  @Test
+  public void estimate_uniform() {
+    // A uniform distribution has a hit rate proportional to the fraction of keys retained
+    HitRateCurve curve = new HitRateCurve(1_000);
+    Random random = new Random(1);
+    for (int i = 0; i < 1_000_000; i++) {
+      curve.record(random.nextInt(4_000));
+    }
+    checkStructure(curve);
+    assertThat(curve.estimate(0.5), is(closeTo(0.125, 0.05)));
+    assertThat(curve.estimate(1.0), is(closeTo(0.25, 0.05)));
+    assertThat(curve.estimate(2.0), is(closeTo(0.5, 0.05)));
+    assertThat(curve.estimate(4.0), is(closeTo(1.0, 0.05)));
+  }
+
+  @Test
+  public void estimate_sampled() {
+    HitRateCurve curve = new HitRateCurve(1_000_000);
+    assertThat(curve.threshold, is(lessThanOrEqualTo(HitRateCurve.SAMPLING_MODULUS / 100)));
+
+    Random random = new Random(1);
+    for (int i = 0; i < 10_000_000; i++) {
+      curve.record(random.nextInt(2_000_000));
+    }
+    checkStructure(curve);
+    assertThat(curve.size, is(lessThanOrEqualTo(HitRateCurve.MAXIMUM_SAMPLES)));
+    assertThat(curve.estimate(1.0), is(closeTo(0.5, 0.1)));
+  }
+
+  @Test
+  public void resize() {
+    HitRateCurve curve = new HitRateCurve(100);
+    for (int i = 0; i < 1_000; i++) {
+      curve.record(i % 50);
+    }
+    curve.resize(200);
+    checkStructure(curve);
+    assertThat(curve.size, is(0));
+    assertThat(curve.estimate(1.0), is(0.0));
+  }
+
+  @Test
+  public void resize_zero() {
+    HitRateCurve curve = new HitRateCurve(0);
+    for (int i = 0; i < 1_000; i++) {
+      curve.record(i % 10);
+    }
+    checkStructure(curve);
+    assertThat(curve.estimate(4.0), is(0.0));
+  }
+
+  @Test
+  public void record_collidingProbes() {
+    // Sampled hashes share their low bits, so the table must spread them by the high bits
+    HitRateCurve curve = new HitRateCurve(500);
+    for (int i = 0; i < 100_000; i++) {
+      curve.record(i % 1_500);
+      if ((i % 1_000) == 0) {
+        checkStructure(curve);
+      }
+    }
+    checkStructure(curve);
+    assertThat(curve.estimate(4.0), is(closeTo(1.0, 0.05)));
+  }
+
+  /** Checks that the segments are contiguous and match their recorded sizes, tails, and table. */
+  private static void checkStructure(HitRateCurve curve) {
+    int[] sizes = new int[HitRateCurve.SEGMENTS];
+    int[] tails = new int[HitRateCurve.SEGMENTS];
+    Set<Integer> hashes = new HashSet<>();
+    int segment = 0;
+    int count = 0;
+    for (int slot = curve.next[HitRateCurve.HEAD]; slot != HitRateCurve.HEAD;
+        slot = curve.next[slot]) {
+      assertThat(curve.segments[slot] >= segment, is(true));
+      assertThat(curve.prev[curve.next[slot]], is(slot));
+      assertThat(curve.table[curve.indexOf(curve.hashes[slot])], is(slot));
+      assertThat(hashes.add(curve.hashes[slot]), is(true));
+      segment = curve.segments[slot];
+      tails[segment] = slot;
+      sizes[segment]++;
+      count++;
+    }
+    assertThat(count, is(curve.size));
+    for (int i = 0; i < HitRateCurve.SEGMENTS; i++) {
+      assertThat(curve.sizes[i], is(sizes[i]));
+      assertThat(curve.tails[i], is(tails[i]));
+      assertThat(curve.sizes[i], is(lessThanOrEqualTo(curve.widths[i])));
+    }
+
+    int occupied = 0;
+    for (int slot : curve.table) {
+      if (slot != HitRateCurve.HEAD) {
+        occupied++;
+      }
+    }
+    assertThat(occupied, is(count));
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class InlineCacheLoaderTest {
+  AtomicInteger executions;
+  Executor executor;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    executions = new AtomicInteger();
+    executor = task -> {
+      executions.incrementAndGet();
+      task.run();
+    };
+  }
+
+  @Test
+  public void get_present() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(key -> -key);
+    CompletableFuture<Integer> future = cache.get(1);
+
+    assertThat(future.isDone(), is(true));
+    assertThat(future.join(), is(-1));
+    assertThat(executions.get(), is(0));
+    assertThat(cache.synchronous().getIfPresent(1), is(-1));
+
+    CacheStats stats = cache.synchronous().stats();
+    assertThat(stats.missCount(), is(1L));
+    assertThat(stats.loadSuccessCount(), is(1L));
+    assertThat(stats.loadFailureCount(), is(0L));
+  }
+
+  @Test
+  public void get_absent() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(key -> null);
+    CompletableFuture<Integer> future = cache.get(1);
+
+    assertThat(future.isDone(), is(true));
+    assertThat(future.join(), is(nullValue()));
+    assertThat(executions.get(), is(0));
+    assertThat(cache.synchronous().estimatedSize(), is(0L));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+  }
+
+  @Test
+  public void get_failure() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(key -> { throw new IOException(); });
+    CompletableFuture<Integer> future = cache.get(1);
+
+    assertThat(future.isCompletedExceptionally(), is(true));
+    assertThat(executions.get(), is(0));
+    assertThat(cache.synchronous().estimatedSize(), is(0L));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+    try {
+      future.join();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), is(instanceOf(IOException.class)));
+    }
+  }
+
+  @Test
+  public void get_interrupted() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(key -> {
+      throw new InterruptedException();
+    });
+    CompletableFuture<Integer> future = cache.get(1);
+
+    assertThat(future.isCompletedExceptionally(), is(true));
+    assertThat(Thread.interrupted(), is(true));
+  }
+
+  @Test
+  public void get_loadsWithoutLock() {
+    @SuppressWarnings("unchecked")
+    AsyncLoadingCache<Integer, Integer>[] ref = new AsyncLoadingCache[1];
+    ref[0] = newCache(key -> {
+      // A write to the loading key would fail as a recursive update if the bin lock was held
+      ref[0].put(key, CompletableFuture.completedFuture(2));
+      return -key;
+    });
+    CompletableFuture<Integer> future = ref[0].get(1);
+
+    assertThat(future.join(), is(-1));
+    assertThat(ref[0].synchronous().getIfPresent(1), is(2));
+  }
+
+  @Test
+  public void get_readyFailure() {
+    AsyncCache<Integer, Integer> cache = newCache(key -> -key);
+    CompletableFuture<Integer> future = cache.get(1,
+        (key, executor) -> Async.failedFuture(new IllegalStateException()));
+
+    assertThat(future.isCompletedExceptionally(), is(true));
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+  }
+
+  @Test
+  public void get_readyNull() {
+    AsyncCache<Integer, Integer> cache = newCache(key -> -key);
+    CompletableFuture<Integer> future = cache.get(1,
+        (key, executor) -> CompletableFuture.completedFuture(null));
+
+    assertThat(future.join(), is(nullValue()));
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+  }
+
+  @Test
+  public void put_readyFailure() {
+    AsyncCache<Integer, Integer> cache = newCache(key -> -key);
+    cache.put(1, CompletableFuture.completedFuture(1));
+    cache.put(1, Async.failedFuture(new IllegalStateException()));
+
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+  }
+
+  @Test
+  public void put_readyNull() {
+    AsyncCache<Integer, Integer> cache = newCache(key -> -key);
+    cache.put(1, CompletableFuture.completedFuture(1));
+    cache.put(1, CompletableFuture.completedFuture(null));
+
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+  }
+
+  @Test
+  public void get_weighed() {
+    AsyncLoadingCache<Integer, Integer> cache = Caffeine.newBuilder()
+        .weigher((Integer key, Integer value) -> Math.abs(value))
+        .maximumWeight(100)
+        .executor(executor)
+        .buildAsync((InlineCacheLoader<Integer, Integer>) key -> -key);
+    cache.get(5).join();
+
+    assertThat(cache.synchronous().policy().eviction().get().weightedSize().getAsLong(), is(5L));
+  }
+
+  @Test
+  public void put_weighed() {
+    AsyncLoadingCache<Integer, Integer> cache = Caffeine.newBuilder()
+        .weigher((Integer key, Integer value) -> Math.abs(value))
+        .maximumWeight(100)
+        .executor(executor)
+        .recordStats()
+        .buildAsync((InlineCacheLoader<Integer, Integer>) key -> -key);
+    cache.put(1, CompletableFuture.completedFuture(7));
+
+    assertThat(cache.synchronous().policy().eviction().get().weightedSize().getAsLong(), is(7L));
+    assertThat(cache.synchronous().stats().loadSuccessCount(), is(1L));
+  }
+
+  @Test
+  public void getAll_bulk() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(new InlineCacheLoader<Integer, Integer>() {
+      @Override public Integer load(Integer key) {
+        throw new UnsupportedOperationException();
+      }
+      @Override public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+        Map<Integer, Integer> result = new HashMap<>();
+        keys.forEach(key -> result.put(key, -key));
+        return result;
+      }
+    });
+    CompletableFuture<Map<Integer, Integer>> future = cache.getAll(Arrays.asList(1, 2, 3));
+
+    assertThat(((LocalAsyncLoadingCache<?, ?>) cache).canBulkLoad, is(true));
+    assertThat(future.isDone(), is(true));
+    assertThat(future.join().get(3), is(-3));
+    assertThat(executions.get(), is(0));
+  }
+
+  @Test
+  public void getAll_notBulk() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(key -> -key);
+    CompletableFuture<Map<Integer, Integer>> future = cache.getAll(Arrays.asList(1, 2, 3));
+
+    assertThat(((LocalAsyncLoadingCache<?, ?>) cache).canBulkLoad, is(false));
+    assertThat(future.isDone(), is(true));
+    assertThat(future.join().get(3), is(-3));
+    assertThat(executions.get(), is(0));
+  }
+
+  @Test
+  public void refresh_usesExecutor() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(key -> -key);
+    cache.put(1, CompletableFuture.completedFuture(1));
+    cache.synchronous().refresh(1);
+
+    assertThat(executions.get(), is(1));
+    assertThat(cache.synchronous().getIfPresent(1), is(-1));
+  }
+
+  private AsyncLoadingCache<Integer, Integer> newCache(InlineCacheLoader<Integer, Integer> loader) {
+    return Caffeine.newBuilder().executor(executor).recordStats().buildAsync(loader);
+  }
+}
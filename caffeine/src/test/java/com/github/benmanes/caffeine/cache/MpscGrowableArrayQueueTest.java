@@ -15,13 +15,20 @@
  */
 package com.github.benmanes.caffeine.cache;
 
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
+import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -89,6 +96,55 @@ public final class MpscGrowableArrayQueueTest {
     assertThat(buffer.size(), is(0));
   }
 
+  /* --------------- Drain --------------- */
+
+  @Test(dataProvider = "empty")
+  public void drain_whenEmpty(MpscGrowableArrayQueue<Integer> buffer) {
+    assertThat(buffer.drain(e -> Assert.fail(), Integer.MAX_VALUE), is(0));
+  }
+
+  @Test(dataProvider = "full")
+  public void drain_toEmpty(MpscGrowableArrayQueue<Integer> buffer) {
+    List<Integer> drained = new ArrayList<>();
+    assertThat(buffer.drain(drained::add, Integer.MAX_VALUE), is(FULL_SIZE));
+    assertThat(drained, is(equalTo(IntStream.range(0, FULL_SIZE).boxed().collect(toList()))));
+    assertThat(buffer.size(), is(0));
+    assertThat(buffer.poll(), is(nullValue()));
+  }
+
+  @Test(dataProvider = "populated")
+  public void drain_limit(MpscGrowableArrayQueue<Integer> buffer) {
+    List<Integer> drained = new ArrayList<>();
+    assertThat(buffer.drain(drained::add, 3), is(3));
+    assertThat(drained, contains(0, 1, 2));
+    assertThat(buffer.size(), is(POPULATED_SIZE - 3));
+    assertThat(buffer.poll(), is(3));
+  }
+
+  @Test(dataProvider = "full")
+  public void drain_reentrant(MpscGrowableArrayQueue<Integer> buffer) {
+    List<Integer> drained = new ArrayList<>();
+    int count = buffer.drain(e -> {
+      drained.add(e);
+      if (e == 1) {
+        drained.add(buffer.poll());
+      }
+    }, Integer.MAX_VALUE);
+    assertThat(count, is(FULL_SIZE - 1));
+    assertThat(drained, is(equalTo(IntStream.range(0, FULL_SIZE).boxed().collect(toList()))));
+    assertThat(buffer.size(), is(0));
+  }
+
+  @Test(dataProvider = "populated")
+  public void drain_consumerFails(MpscGrowableArrayQueue<Integer> buffer) {
+    try {
+      buffer.drain(e -> { throw new IllegalStateException(); }, Integer.MAX_VALUE);
+      Assert.fail();
+    } catch (IllegalStateException expected) {}
+    assertThat(buffer.size(), is(POPULATED_SIZE - 1));
+    assertThat(buffer.poll(), is(1));
+  }
+
   /* --------------- Concurrency --------------- */
 
   @Test(dataProvider = "empty")
@@ -157,6 +213,34 @@ public final class MpscGrowableArrayQueueTest {
     assertThat(buffer.size(), is(0));
   }
 
+  @Test(dataProvider = "empty")
+  public void manyProducers_oneDrainingConsumer(MpscGrowableArrayQueue<Integer> buffer) {
+    AtomicInteger started = new AtomicInteger();
+    AtomicInteger finished = new AtomicInteger();
+
+    ConcurrentTestHarness.execute(() -> {
+      started.incrementAndGet();
+      Awaits.await().untilAtomic(started, is(NUM_PRODUCERS + 1));
+      int drained = 0;
+      while (drained < (NUM_PRODUCERS * PRODUCE)) {
+        drained += buffer.drain(e -> {}, 16);
+      }
+      finished.incrementAndGet();
+    });
+
+    ConcurrentTestHarness.timeTasks(NUM_PRODUCERS, () -> {
+      started.incrementAndGet();
+      Awaits.await().untilAtomic(started, is(NUM_PRODUCERS + 1));
+      for (int i = 0; i < PRODUCE; i++) {
+        while (!buffer.offer(i)) {}
+      }
+      finished.incrementAndGet();
+    });
+
+    Awaits.await().untilAtomic(finished, is(NUM_PRODUCERS + 1));
+    assertThat(buffer.size(), is(0));
+  }
+
   /* --------------- Providers --------------- */
 
   @DataProvider(name = "empty")
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.aMapWithSize;
+import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.Mockito;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.testing.FakeTicker;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class NegativeCacheTest {
+  FakeTicker ticker;
+  AtomicInteger loads;
+  Set<Integer> present;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    ticker = new FakeTicker();
+    loads = new AtomicInteger();
+    present = ConcurrentHashMap.newKeySet();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void construct_zeroMaximumSize() {
+    new NegativeCache<>(0, 1, Ticker.systemTicker(), Runnable::run);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void construct_zeroDuration() {
+    new NegativeCache<>(1, 0, Ticker.systemTicker(), Runnable::run);
+  }
+
+  @Test
+  public void negativeCache() {
+    NegativeCache<Integer> negativeCache =
+        new NegativeCache<>(10, TimeUnit.MINUTES.toNanos(1), ticker::read, Runnable::run);
+    negativeCache.add(1);
+    negativeCache.add(2);
+    assertThat(negativeCache.contains(1), is(true));
+
+    negativeCache.invalidate(1);
+    assertThat(negativeCache.contains(1), is(false));
+
+    ticker.advance(1, TimeUnit.MINUTES);
+    assertThat(negativeCache.contains(2), is(false));
+  }
+
+  @Test
+  public void get_absent() {
+    LoadingCache<Integer, Integer> cache = builder().build(this::load);
+    assertThat(cache.get(1), is(nullValue()));
+    assertThat(cache.get(1), is(nullValue()));
+    assertThat(cache.asMap(), is(anEmptyMap()));
+    assertThat(loads.get(), is(1));
+
+    CacheStats stats = cache.stats();
+    assertThat(stats.missCount(), is(2L));
+    assertThat(stats.loadCount(), is(1L));
+    assertThat(stats.negativeHitCount(), is(1L));
+  }
+
+  @Test
+  public void get_expires() {
+    LoadingCache<Integer, Integer> cache = builder().build(this::load);
+    cache.get(1);
+
+    present.add(1);
+    ticker.advance(1, TimeUnit.MINUTES);
+    assertThat(cache.get(1), is(1));
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void get_evicted() {
+    LoadingCache<Integer, Integer> cache = builder().build(this::load);
+    for (int i = 0; i < 100; i++) {
+      cache.get(i);
+    }
+    cache.cleanUp();
+
+    int remembered = 0;
+    NegativeCache<Integer> negativeCache = negativeCache(cache);
+    for (int i = 0; i < 100; i++) {
+      remembered += negativeCache.contains(i) ? 1 : 0;
+    }
+    assertThat(remembered, is(10));
+  }
+
+  @Test
+  public void put() {
+    LoadingCache<Integer, Integer> cache = builder().build(this::load);
+    cache.get(1);
+    cache.put(1, 1);
+    cache.invalidate(1);
+    present.add(1);
+    assertThat(cache.get(1), is(1));
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void put_duringLoad() {
+    @SuppressWarnings("unchecked")
+    LoadingCache<Integer, Integer>[] ref = new LoadingCache[1];
+    ref[0] = builder().loadOutsideOfLock().build(key -> {
+      ref[0].put(key, 2);
+      return null;
+    });
+    assertThat(ref[0].get(1), is(nullValue()));
+    assertThat(negativeCache(ref[0]).contains(1), is(false));
+
+    ref[0].asMap().remove(1);
+    present.add(1);
+    assertThat(ref[0].get(1, this::load), is(1));
+  }
+
+  @Test
+  public void getAll_noNegativeHits() {
+    StatsCounter statsCounter = Mockito.mock(StatsCounter.class);
+    LoadingCache<Integer, Integer> cache = Caffeine.newBuilder()
+        .negativeCaching(10, Duration.ofMinutes(1))
+        .recordStats(() -> statsCounter)
+        .executor(Runnable::run)
+        .build(new CacheLoader<Integer, Integer>() {
+          @Override public Integer load(Integer key) {
+            throw new AssertionError();
+          }
+          @Override public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+            return ImmutableMap.of(1, 1, 2, 2);
+          }
+        });
+    assertThat(cache.getAll(Arrays.asList(1, 2)), is(ImmutableMap.of(1, 1, 2, 2)));
+    cache.invalidate(2);
+    assertThat(cache.getAll(Arrays.asList(1, 2)), is(ImmutableMap.of(1, 1, 2, 2)));
+    Mockito.verify(statsCounter, Mockito.never()).recordNegativeHits(Mockito.anyInt());
+  }
+
+  @Test
+  public void invalidate() {
+    LoadingCache<Integer, Integer> cache = builder().build(this::load);
+    cache.get(1);
+    cache.get(2);
+
+    present.add(1);
+    present.add(2);
+    cache.invalidate(1);
+    assertThat(cache.get(1), is(1));
+    assertThat(cache.get(2), is(nullValue()));
+
+    cache.invalidateAll();
+    assertThat(cache.get(2), is(2));
+  }
+
+  @Test
+  public void refresh() {
+    LoadingCache<Integer, Integer> cache = builder().build(this::load);
+    cache.get(1);
+
+    present.add(1);
+    cache.refresh(1);
+    assertThat(cache.getIfPresent(1), is(1));
+  }
+
+  @Test
+  public void getAll_bulk() {
+    LoadingCache<Integer, Integer> cache = builder().build(new CacheLoader<Integer, Integer>() {
+      @Override public Integer load(Integer key) {
+        throw new AssertionError();
+      }
+      @Override public Map<Integer, Integer> loadAll(Iterable<? extends Integer> keys) {
+        loads.incrementAndGet();
+        return ImmutableMap.of(1, 1);
+      }
+    });
+    assertThat(cache.getAll(Arrays.asList(1, 2, 3)), is(ImmutableMap.of(1, 1)));
+    assertThat(cache.getAll(Arrays.asList(1, 2, 3)), is(ImmutableMap.of(1, 1)));
+    assertThat(loads.get(), is(1));
+    assertThat(cache.stats().negativeHitCount(), is(2L));
+  }
+
+  @Test
+  public void getAll_sequential() {
+    LoadingCache<Integer, Integer> cache = builder().build(this::load);
+    present.add(1);
+    assertThat(cache.getAll(Arrays.asList(1, 2)), is(aMapWithSize(1)));
+    assertThat(cache.getAll(Arrays.asList(1, 2)), is(aMapWithSize(1)));
+    assertThat(loads.get(), is(2));
+    assertThat(cache.stats().negativeHitCount(), is(1L));
+  }
+
+  @Test
+  public void async_absent() {
+    AsyncLoadingCache<Integer, Integer> cache = builder().buildAsync(this::load);
+    assertThat(cache.get(1).join(), is(nullValue()));
+    assertThat(cache.get(1).join(), is(nullValue()));
+    assertThat(loads.get(), is(1));
+    assertThat(cache.synchronous().stats().negativeHitCount(), is(1L));
+  }
+
+  @Test
+  public void async_failure() {
+    AsyncLoadingCache<Integer, Integer> cache = builder().buildAsync((key, executor) -> {
+      loads.incrementAndGet();
+      CompletableFuture<Integer> future = new CompletableFuture<>();
+      future.completeExceptionally(new IllegalStateException());
+      return future;
+    });
+    assertThat(cache.get(1).isCompletedExceptionally(), is(true));
+    assertThat(cache.get(1).join(), is(nullValue()));
+    assertThat(loads.get(), is(1));
+
+    cache.put(1, CompletableFuture.completedFuture(1));
+    cache.synchronous().invalidate(1);
+    assertThat(cache.get(1).isCompletedExceptionally(), is(true));
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void async_putDuringLoad() {
+    CompletableFuture<Integer> loading = new CompletableFuture<>();
+    AsyncLoadingCache<Integer, Integer> cache = builder().buildAsync((key, executor) -> loading);
+    CompletableFuture<Integer> future = cache.get(1);
+
+    cache.put(1, CompletableFuture.completedFuture(2));
+    loading.complete(null);
+    assertThat(future.join(), is(nullValue()));
+    assertThat(cache.synchronous().getIfPresent(1), is(2));
+
+    @SuppressWarnings("unchecked")
+    LocalAsyncLoadingCache<Integer, Integer> localCache =
+        (LocalAsyncLoadingCache<Integer, Integer>) cache;
+    assertThat(localCache.cache().negativeCache().contains(1), is(false));
+  }
+
+  @Test
+  public void async_getAll() {
+    AsyncLoadingCache<Integer, Integer> cache = builder().buildAsync(
+        new AsyncCacheLoader<Integer, Integer>() {
+          @Override public CompletableFuture<Integer> asyncLoad(Integer key, Executor executor) {
+            throw new AssertionError();
+          }
+          @Override public CompletableFuture<Map<Integer, Integer>> asyncLoadAll(
+              Iterable<? extends Integer> keys, Executor executor) {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture(ImmutableMap.of(1, 1));
+          }
+        });
+    assertThat(cache.getAll(Arrays.asList(1, 2)).join(), is(ImmutableMap.of(1, 1)));
+    assertThat(cache.getAll(Arrays.asList(1, 2)).join(), is(ImmutableMap.of(1, 1)));
+    assertThat(loads.get(), is(1));
+
+    CacheStats stats = cache.synchronous().stats();
+    assertThat(stats.hitCount(), is(1L));
+    assertThat(stats.missCount(), is(3L));
+    assertThat(stats.negativeHitCount(), is(1L));
+  }
+
+  private Caffeine<Object, Object> builder() {
+    return Caffeine.newBuilder()
+        .negativeCaching(10, Duration.ofMinutes(1))
+        .executor(Runnable::run)
+        .ticker(ticker::read)
+        .recordStats();
+  }
+
+  private Integer load(Integer key) {
+    loads.incrementAndGet();
+    return present.contains(key) ? key : null;
+  }
+
+  private static NegativeCache<Integer> negativeCache(LoadingCache<Integer, Integer> cache) {
+    @SuppressWarnings("unchecked")
+    LocalCache<Integer, Integer> localCache = (LocalCache<Integer, Integer>) cache.asMap();
+    return localCache.negativeCache();
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static com.github.benmanes.caffeine.testing.Awaits.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.PendingLoads.PendingLoad;
+import com.google.common.testing.FakeTicker;
+import com.google.common.testing.SerializableTester;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class PendingLoadsTest {
+  AtomicInteger loads;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    loads = new AtomicInteger();
+  }
+
+  @DataProvider(name = "builders")
+  public Object[][] providesBuilders() {
+    return new Object[][] {
+      { Caffeine.newBuilder().loadOutsideOfLock().recordStats() },
+      { Caffeine.newBuilder().loadOutsideOfLock().recordStats().maximumSize(100) },
+    };
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_load(Caffeine<Object, Object> builder) {
+    LoadingCache<Integer, Integer> cache = builder.build(key -> {
+      loads.incrementAndGet();
+      return -key;
+    });
+    assertThat(cache.get(1), is(-1));
+    assertThat(cache.get(1), is(-1));
+    assertThat(loads.get(), is(1));
+    assertThat(cache.stats().hitCount(), is(1L));
+    assertThat(cache.stats().missCount(), is(1L));
+    assertThat(cache.stats().loadSuccessCount(), is(1L));
+    assertThat(pending(cache).loads.isEmpty(), is(true));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_mappingFunction(Caffeine<Object, Object> builder) {
+    Cache<Integer, Integer> cache = builder.build();
+    assertThat(cache.get(1, key -> -key), is(-1));
+    assertThat(cache.getIfPresent(1), is(-1));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_null(Caffeine<Object, Object> builder) {
+    LoadingCache<Integer, Integer> cache = builder.build(key -> null);
+    assertThat(cache.get(1), is(nullValue()));
+    assertThat(cache.asMap().isEmpty(), is(true));
+    assertThat(cache.stats().loadFailureCount(), is(1L));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_failure(Caffeine<Object, Object> builder) {
+    LoadingCache<Integer, Integer> cache = builder.build(key -> {
+      throw new IllegalStateException();
+    });
+    try {
+      cache.get(1);
+      throw new AssertionError();
+    } catch (IllegalStateException expected) {}
+    assertThat(cache.stats().loadFailureCount(), is(1L));
+    assertThat(pending(cache).loads.isEmpty(), is(true));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_checkedFailure(Caffeine<Object, Object> builder) {
+    LoadingCache<Integer, Integer> cache = builder.build(key -> {
+      throw new IOException();
+    });
+    try {
+      cache.get(1);
+      throw new AssertionError();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), is(instanceOf(IOException.class)));
+    }
+  }
+
+  @Test(dataProvider = "builders", expectedExceptions = IllegalStateException.class)
+  public void get_recursive(Caffeine<Object, Object> builder) {
+    @SuppressWarnings("unchecked")
+    Cache<Integer, Integer>[] ref = new Cache[1];
+    ref[0] = builder.build();
+    ref[0].get(1, key -> ref[0].get(key, k -> -k));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_loadsWithoutLock(Caffeine<Object, Object> builder) {
+    @SuppressWarnings("unchecked")
+    Cache<Integer, Integer>[] ref = new Cache[1];
+    ref[0] = builder.build();
+
+    // A write to the loading key would fail as a recursive update if the bin lock was held
+    int value = ref[0].get(1, key -> {
+      ref[0].asMap().putIfAbsent(key, 2);
+      return 1;
+    });
+    assertThat(value, is(2));
+    assertThat(ref[0].getIfPresent(1), is(2));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_invalidatedDuringLoad(Caffeine<Object, Object> builder) {
+    @SuppressWarnings("unchecked")
+    Cache<Integer, Integer>[] ref = new Cache[1];
+    ref[0] = builder.build();
+
+    int value = ref[0].get(1, key -> {
+      ref[0].invalidate(key);
+      return 1;
+    });
+    assertThat(value, is(1));
+    assertThat(ref[0].getIfPresent(1), is(nullValue()));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_removedByMapDuringLoad(Caffeine<Object, Object> builder) {
+    @SuppressWarnings("unchecked")
+    Cache<Integer, Integer>[] ref = new Cache[1];
+    ref[0] = builder.build();
+
+    int value = ref[0].get(1, key -> {
+      ref[0].asMap().put(key, 2);
+      ref[0].asMap().remove(key);
+      return 1;
+    });
+    assertThat(value, is(1));
+    assertThat(ref[0].getIfPresent(1), is(nullValue()));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_computedByMapDuringLoad(Caffeine<Object, Object> builder) {
+    @SuppressWarnings("unchecked")
+    Cache<Integer, Integer>[] ref = new Cache[1];
+    ref[0] = builder.build();
+
+    int value = ref[0].get(1, key -> {
+      ref[0].asMap().compute(key, (k, v) -> null);
+      return 1;
+    });
+    assertThat(value, is(1));
+    assertThat(ref[0].getIfPresent(1), is(nullValue()));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_clearedByMapDuringLoad(Caffeine<Object, Object> builder) {
+    @SuppressWarnings("unchecked")
+    Cache<Integer, Integer>[] ref = new Cache[1];
+    ref[0] = builder.build();
+
+    int value = ref[0].get(1, key -> {
+      ref[0].asMap().clear();
+      return 1;
+    });
+    assertThat(value, is(1));
+    assertThat(ref[0].getIfPresent(1), is(nullValue()));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_waiterRetriesFailedLoad(Caffeine<Object, Object> builder) {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    LoadingCache<Integer, Integer> cache = builder.build(key -> {
+      if (loads.incrementAndGet() == 1) {
+        started.countDown();
+        Uninterruptibles.awaitUninterruptibly(release);
+        throw new IllegalStateException();
+      }
+      return -key;
+    });
+
+    CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> cache.get(1));
+    Uninterruptibles.awaitUninterruptibly(started);
+    PendingLoad<Integer> load = pending(cache).loads.get(1);
+
+    CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> cache.get(1));
+    await().until(load::getNumberOfDependents, is(greaterThan(0)));
+
+    release.countDown();
+    assertThat(second.join(), is(-1));
+    try {
+      first.join();
+      throw new AssertionError();
+    } catch (CompletionException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+    assertThat(loads.get(), is(2));
+    assertThat(cache.stats().missCount(), is(2L));
+    assertThat(cache.stats().loadSuccessCount(), is(1L));
+    assertThat(cache.stats().loadFailureCount(), is(1L));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_waitsOnPendingLoad(Caffeine<Object, Object> builder) {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    LoadingCache<Integer, Integer> cache = builder.build(key -> {
+      loads.incrementAndGet();
+      started.countDown();
+      Uninterruptibles.awaitUninterruptibly(release);
+      return -key;
+    });
+
+    CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> cache.get(1));
+    Uninterruptibles.awaitUninterruptibly(started);
+    PendingLoad<Integer> load = pending(cache).loads.get(1);
+
+    CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> cache.get(1));
+    await().until(load::getNumberOfDependents, is(greaterThan(0)));
+
+    release.countDown();
+    assertThat(first.join(), is(-1));
+    assertThat(second.join(), is(-1));
+    assertThat(loads.get(), is(1));
+    assertThat(cache.stats().hitCount(), is(1L));
+    assertThat(cache.stats().missCount(), is(1L));
+    assertThat(cache.stats().loadSuccessCount(), is(1L));
+  }
+
+  @Test(dataProvider = "builders")
+  public void get_concurrentWriteNotExtended(Caffeine<Object, Object> builder) {
+    FakeTicker ticker = new FakeTicker();
+    @SuppressWarnings("unchecked")
+    Cache<Integer, Integer>[] ref = new Cache[1];
+    ref[0] = builder.executor(Runnable::run).ticker(ticker::read)
+        .expireAfterWrite(1, TimeUnit.MINUTES).build();
+
+    int value = ref[0].get(1, key -> {
+      ref[0].put(key, 2);
+      ticker.advance(30, TimeUnit.SECONDS);
+      return 1;
+    });
+    assertThat(value, is(2));
+
+    // The concurrent write expires a minute after it was made, not after the load completed
+    ticker.advance(31, TimeUnit.SECONDS);
+    assertThat(ref[0].getIfPresent(1), is(nullValue()));
+  }
+
+  @Test(dataProvider = "builders")
+  public void serialize(Caffeine<Object, Object> builder) {
+    LoadingCache<Integer, Integer> cache = builder.build(
+        (CacheLoader<Integer, Integer> & Serializable) key -> -key);
+    LoadingCache<Integer, Integer> copy = SerializableTester.reserialize(cache);
+    assertThat(pending(copy), is(instanceOf(PendingLoads.class)));
+    assertThat(copy.get(1), is(-1));
+  }
+
+  @Test
+  public void disabled() {
+    LoadingCache<Integer, Integer> cache = Caffeine.newBuilder().build(key -> -key);
+    assertThat(pending(cache), is(nullValue()));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static PendingLoads<Integer, Integer> pending(Cache<Integer, Integer> cache) {
+    return ((LocalCache<Integer, Integer>) cache.asMap()).pendingLoads();
+  }
+}
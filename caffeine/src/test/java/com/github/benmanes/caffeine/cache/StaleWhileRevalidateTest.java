@@ -0,0 +1,331 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.BoundedLocalCache.BoundedLocalLoadingCache;
+import com.google.common.testing.FakeTicker;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class StaleWhileRevalidateTest {
+  FakeTicker ticker;
+  AtomicInteger loads;
+  AtomicBoolean fail;
+  List<Runnable> tasks;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    ticker = new FakeTicker();
+    loads = new AtomicInteger();
+    fail = new AtomicBoolean();
+    tasks = new ArrayList<>();
+  }
+
+  @Test
+  public void fresh() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    assertThat(cache.get(1), is(1));
+
+    ticker.advance(30, TimeUnit.SECONDS);
+    assertThat(cache.get(1), is(1));
+    assertThat(loads.get(), is(1));
+    assertThat(cache.stats().hitCount(), is(1L));
+    assertThat(cache.stats().staleHitCount(), is(0L));
+  }
+
+  @Test
+  public void stale_reloads() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    cache.get(1);
+
+    ticker.advance(90, TimeUnit.SECONDS);
+    assertThat(cache.get(1), is(1));
+    assertThat(cache.get(1), is(1));
+    assertThat(cache.getIfPresent(1), is(1));
+    assertThat(loads.get(), is(1));
+
+    runTasks();
+    assertThat(cache.get(1), is(2));
+    assertThat(loads.get(), is(2));
+    assertThat(cache.stats().hitCount(), is(4L));
+    assertThat(cache.stats().staleHitCount(), is(3L));
+  }
+
+  @Test
+  public void stale_reloadFails() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    cache.get(1);
+
+    fail.set(true);
+    ticker.advance(90, TimeUnit.SECONDS);
+    assertThat(cache.get(1), is(1));
+    runTasks();
+
+    assertThat(cache.get(1), is(1));
+    runTasks();
+    assertThat(cache.stats().loadFailureCount(), is(2L));
+    assertThat(cache.stats().staleHitCount(), is(2L));
+
+    fail.set(false);
+    assertThat(cache.get(1), is(1));
+    runTasks();
+    assertThat(cache.get(1), is(4));
+  }
+
+  @Test
+  public void stale_getAllPresent() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    cache.get(1);
+    ticker.advance(30, TimeUnit.SECONDS);
+    cache.get(2);
+
+    ticker.advance(45, TimeUnit.SECONDS);
+    assertThat(cache.getAllPresent(Arrays.asList(1, 2)).size(), is(2));
+    assertThat(cache.stats().staleHitCount(), is(1L));
+  }
+
+  @Test
+  public void expired() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    cache.get(1);
+
+    fail.set(true);
+    ticker.advance(90, TimeUnit.SECONDS);
+    cache.get(1);
+    runTasks();
+
+    ticker.advance(31, TimeUnit.SECONDS);
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+
+    fail.set(false);
+    assertThat(cache.get(1), is(3));
+    assertThat(cache.stats().missCount(), is(3L));
+  }
+
+  @Test
+  public void stale_reloadNeverCompletes() {
+    AtomicInteger reloads = new AtomicInteger();
+    LoadingCache<Integer, Integer> cache = builder().build(new CacheLoader<Integer, Integer>() {
+      @Override public Integer load(Integer key) {
+        return StaleWhileRevalidateTest.this.load(key);
+      }
+      @Override public CompletableFuture<Integer> asyncReload(
+          Integer key, Integer oldValue, Executor executor) {
+        reloads.incrementAndGet();
+        return new CompletableFuture<>();
+      }
+    });
+    cache.get(1);
+
+    ticker.advance(90, TimeUnit.SECONDS);
+    assertThat(cache.get(1), is(1));
+    assertThat(cache.get(1), is(1));
+    assertThat(reloads.get(), is(1));
+
+    // The entry expires at the end of its grace period while the reload is still in flight
+    ticker.advance(31, TimeUnit.SECONDS);
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+    assertThat(cache.get(1), is(2));
+
+    // The reloading of the replacement is not blocked by the hung reload
+    ticker.advance(61, TimeUnit.SECONDS);
+    assertThat(cache.get(1), is(2));
+    assertThat(reloads.get(), is(2));
+  }
+
+  @Test
+  public void async() {
+    AsyncLoadingCache<Integer, Integer> cache = builder().buildAsync(this::load);
+    CompletableFuture<Integer> future = cache.get(1);
+    runTasks();
+    assertThat(future.join(), is(1));
+
+    ticker.advance(90, TimeUnit.SECONDS);
+    assertThat(cache.get(1).join(), is(1));
+    assertThat(cache.get(1).join(), is(1));
+    assertThat(cache.synchronous().stats().staleHitCount(), is(2L));
+
+    runTasks();
+    assertThat(cache.get(1).join(), is(2));
+    assertThat(cache.synchronous().stats().staleHitCount(), is(2L));
+  }
+
+  @Test
+  public void async_pendingLoad() {
+    AsyncLoadingCache<Integer, Integer> cache = builder().buildAsync(this::load);
+    CompletableFuture<Integer> future = new CompletableFuture<>();
+    cache.put(1, future);
+
+    assertThat(cache.get(1), is(future));
+    assertThat(cache.synchronous().stats().staleHitCount(), is(0L));
+  }
+
+  @Test
+  public void serialize() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    BoundedLocalCache<Integer, Integer> local =
+        ((BoundedLocalLoadingCache<Integer, Integer>) cache).cache;
+    SerializationProxy<Integer, Integer> proxy =
+        BoundedLocalCache.makeSerializationProxy(local, /* isWeighted */ false);
+
+    Caffeine<Object, Object> builder = proxy.recreateCaffeine();
+    assertThat(builder.servesStale(), is(true));
+    assertThat(builder.refreshes(), is(true));
+    assertThat(builder.getExpiresAfterWriteNanos(), is(TimeUnit.MINUTES.toNanos(1)));
+    assertThat(builder.getStaleWhileRevalidateNanos(), is(TimeUnit.MINUTES.toNanos(1)));
+  }
+
+  @Test
+  public void policy() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    assertThat(cache.policy().refreshAfterWrite().isPresent(), is(false));
+    assertThat(cache.policy().expireAfterWrite().get().getExpiresAfter(TimeUnit.MINUTES), is(1L));
+
+    cache.get(1);
+    ticker.advance(90, TimeUnit.SECONDS);
+    assertThat(cache.policy().expireAfterWrite().get().ageOf(1, TimeUnit.SECONDS).getAsLong(),
+        is(90L));
+  }
+
+  @Test
+  public void policy_setExpiresAfter() {
+    LoadingCache<Integer, Integer> cache = newCache();
+    cache.policy().expireAfterWrite().get().setExpiresAfter(2, TimeUnit.MINUTES);
+    assertThat(cache.policy().expireAfterWrite().get().getExpiresAfter(TimeUnit.MINUTES), is(2L));
+    cache.get(1);
+
+    ticker.advance(90, TimeUnit.SECONDS);
+    assertThat(cache.get(1), is(1));
+    assertThat(cache.stats().staleHitCount(), is(0L));
+
+    // The grace period is retained after the freshness lifetime is changed
+    fail.set(true);
+    ticker.advance(60, TimeUnit.SECONDS);
+    assertThat(cache.get(1), is(1));
+    assertThat(cache.stats().staleHitCount(), is(1L));
+    runTasks();
+
+    ticker.advance(31, TimeUnit.SECONDS);
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+  }
+
+  @Test
+  public void stale_reloadNeverCompletes_invalidated() {
+    LoadingCache<Integer, Integer> cache = builder().build(new HangingReloader());
+    cache.get(1);
+
+    ticker.advance(90, TimeUnit.SECONDS);
+    cache.get(1);
+    assertThat(revalidations(cache).isEmpty(), is(false));
+
+    cache.invalidate(1);
+    cache.cleanUp();
+    assertThat(revalidations(cache).isEmpty(), is(true));
+  }
+
+  @Test
+  public void stale_reloadNeverCompletes_expired() {
+    LoadingCache<Integer, Integer> cache = builder().build(new HangingReloader());
+    cache.get(1);
+
+    ticker.advance(90, TimeUnit.SECONDS);
+    cache.get(1);
+    assertThat(revalidations(cache).isEmpty(), is(false));
+
+    ticker.advance(31, TimeUnit.SECONDS);
+    cache.cleanUp();
+    assertThat(cache.asMap().isEmpty(), is(true));
+    assertThat(revalidations(cache).isEmpty(), is(true));
+  }
+
+  @Test
+  public void stale_reloadNeverCompletes_replaced() {
+    LoadingCache<Integer, Integer> cache = builder().build(new HangingReloader());
+    cache.get(1);
+
+    ticker.advance(90, TimeUnit.SECONDS);
+    cache.get(1);
+    cache.invalidate(1);
+    cache.put(1, 3);
+
+    // The removal of the previous entry does not release the claim of a reinserted key
+    ticker.advance(90, TimeUnit.SECONDS);
+    cache.get(1);
+    cache.cleanUp();
+    assertThat(revalidations(cache).isEmpty(), is(false));
+  }
+
+  private static Map<Object, Long> revalidations(LoadingCache<Integer, Integer> cache) {
+    return ((BoundedLocalLoadingCache<Integer, Integer>) cache).cache.revalidations;
+  }
+
+  /** A loader whose reloads never complete. */
+  final class HangingReloader implements CacheLoader<Integer, Integer> {
+    @Override public Integer load(Integer key) {
+      return StaleWhileRevalidateTest.this.load(key);
+    }
+    @Override public CompletableFuture<Integer> asyncReload(
+        Integer key, Integer oldValue, Executor executor) {
+      return new CompletableFuture<>();
+    }
+  }
+
+  private Caffeine<Object, Object> builder() {
+    return Caffeine.newBuilder()
+        .expireAfterWrite(Duration.ofMinutes(1))
+        .staleWhileRevalidate(Duration.ofMinutes(1))
+        .executor(tasks::add)
+        .ticker(ticker::read)
+        .recordStats();
+  }
+
+  private LoadingCache<Integer, Integer> newCache() {
+    return builder().build(this::load);
+  }
+
+  private Integer load(Integer key) {
+    int count = loads.incrementAndGet();
+    if (fail.get()) {
+      throw new IllegalStateException();
+    }
+    return count;
+  }
+
+  private void runTasks() {
+    List<Runnable> pending = new ArrayList<>(tasks);
+    tasks.clear();
+    pending.forEach(Runnable::run);
+  }
+}
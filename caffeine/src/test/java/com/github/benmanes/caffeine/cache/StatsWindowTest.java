@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.Policy.RecentStats;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.google.common.testing.FakeTicker;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+@Test(singleThreaded = true)
+public final class StatsWindowTest {
+  StatsCounter statsCounter;
+  StatsWindow statsWindow;
+  FakeTicker ticker;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    ticker = new FakeTicker().advance(-TimeUnit.DAYS.toNanos(1));
+    UnboundedLocalCache<Integer, Integer> cache = new UnboundedLocalCache<>(
+        Caffeine.newBuilder().recordStats().ticker(ticker::read), /* async */ false);
+    statsCounter = cache.statsCounter();
+    statsWindow = cache.statsWindow;
+  }
+
+  @Test
+  public void window() {
+    assertThat(statsWindow.sample().window(), is(Duration.ofMinutes(1)));
+  }
+
+  @Test
+  public void empty() {
+    RecentStats recentStats = statsWindow.sample();
+    assertThat(recentStats.elapsed(), is(Duration.ZERO));
+    assertThat(recentStats.snapshot(), is(CacheStats.empty()));
+    assertThat(recentStats.requestsPerSecond(), is(0.0));
+    assertThat(recentStats.hitsPerSecond(), is(0.0));
+    assertThat(recentStats.loadsPerSecond(), is(0.0));
+  }
+
+  @Test
+  public void rates() {
+    ticker.advance(10, TimeUnit.SECONDS);
+    statsCounter.recordHits(30);
+    statsCounter.recordMisses(10);
+    statsCounter.recordLoadSuccess(1);
+    statsCounter.recordLoadFailure(1);
+
+    RecentStats recentStats = statsWindow.sample();
+    assertThat(recentStats.elapsed(), is(Duration.ofSeconds(10)));
+    assertThat(recentStats.snapshot().hitRate(), is(0.75));
+    assertThat(recentStats.requestsPerSecond(), is(4.0));
+    assertThat(recentStats.hitsPerSecond(), is(3.0));
+    assertThat(recentStats.loadsPerSecond(), is(0.2));
+  }
+
+  @Test
+  public void consistentSnapshot() {
+    ticker.advance(10, TimeUnit.SECONDS);
+    statsCounter.recordHits(10);
+    RecentStats recentStats = statsWindow.sample();
+
+    ticker.advance(10, TimeUnit.SECONDS);
+    statsCounter.recordHits(30);
+    assertThat(recentStats.elapsed(), is(Duration.ofSeconds(10)));
+    assertThat(recentStats.snapshot().hitCount(), is(10L));
+    assertThat(recentStats.hitsPerSecond(), is(1.0));
+  }
+
+  @Test
+  public void slides() {
+    for (int i = 0; i < 120; i++) {
+      statsCounter.recordHits(i);
+      ticker.advance(1, TimeUnit.SECONDS);
+      statsWindow.sample();
+    }
+
+    // The oldest retained sample is from 59 seconds ago, after the 61st increment
+    RecentStats recentStats = statsWindow.sample();
+    assertThat(recentStats.elapsed(), is(Duration.ofSeconds(59)));
+    assertThat(recentStats.snapshot().hitCount(), is((long) sum(61, 119)));
+  }
+
+  @Test
+  public void slides_idle() {
+    statsCounter.recordHits(10);
+    ticker.advance(5, TimeUnit.MINUTES);
+    RecentStats recentStats = statsWindow.sample();
+    assertThat(recentStats.elapsed(), is(Duration.ofMinutes(5)));
+    assertThat(recentStats.snapshot().hitCount(), is(10L));
+
+    statsCounter.recordHits(5);
+    ticker.advance(30, TimeUnit.SECONDS);
+    recentStats = statsWindow.sample();
+    assertThat(recentStats.elapsed(), is(Duration.ofSeconds(30)));
+    assertThat(recentStats.snapshot().hitCount(), is(5L));
+  }
+
+  @Test
+  public void sparse() {
+    statsCounter.recordHits(10);
+    ticker.advance(30, TimeUnit.SECONDS);
+    statsWindow.sample();
+
+    statsCounter.recordHits(5);
+    ticker.advance(45, TimeUnit.SECONDS);
+    RecentStats recentStats = statsWindow.sample();
+    assertThat(recentStats.elapsed(), is(Duration.ofSeconds(45)));
+    assertThat(recentStats.snapshot().hitCount(), is(5L));
+  }
+
+  @Test(dataProvider = "pollingPeriods")
+  public void pollsSlowly(long seconds) {
+    for (int i = 0; i < 5; i++) {
+      statsCounter.recordHits((int) seconds);
+      ticker.advance(seconds, TimeUnit.SECONDS);
+
+      RecentStats recentStats = statsWindow.sample();
+      assertThat(recentStats.elapsed(), is(Duration.ofSeconds(seconds)));
+      assertThat(recentStats.snapshot().hitCount(), is(seconds));
+      assertThat(recentStats.hitsPerSecond(), is(1.0));
+    }
+  }
+
+  @DataProvider(name = "pollingPeriods")
+  public Object[][] providesPollingPeriods() {
+    return new Object[][] { { 60L }, { 61L }, { 90L }, { 3600L } };
+  }
+
+  @Test
+  public void tick() {
+    ticker.advance(10, TimeUnit.SECONDS);
+    statsCounter.recordHits(10);
+    statsWindow.tick();
+
+    ticker.advance(10, TimeUnit.SECONDS);
+    statsCounter.recordHits(5);
+    RecentStats recentStats = statsWindow.sample();
+    assertThat(recentStats.elapsed(), is(Duration.ofSeconds(20)));
+    assertThat(recentStats.snapshot().hitCount(), is(15L));
+  }
+
+  @Test
+  public void tick_maintenance() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .executor(Runnable::run).maximumSize(10).recordStats().build();
+    BoundedLocalCache<Integer, Integer> local = (BoundedLocalCache<Integer, Integer>) cache.asMap();
+    assertThat(Arrays.stream(local.statsWindow.samples).allMatch(Objects::isNull), is(true));
+
+    cache.cleanUp();
+    assertThat(Arrays.stream(local.statsWindow.samples).anyMatch(Objects::nonNull), is(true));
+  }
+
+  private static int sum(int from, int to) {
+    int sum = 0;
+    for (int i = from; i <= to; i++) {
+      sum += i;
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class TimedAsyncLoaderTest {
+  static final long HEDGE = TimeUnit.MILLISECONDS.toNanos(100);
+  static final long TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
+  List<CompletableFuture<Integer>> loads;
+  List<ScheduledTask> timers;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    loads = new ArrayList<>();
+    timers = new ArrayList<>();
+  }
+
+  @Test
+  public void load_alreadyComplete() {
+    AsyncLoadingCache<Integer, Integer> cache = builder()
+        .buildAsync((key, executor) -> CompletableFuture.completedFuture(-key));
+    assertThat(cache.get(1).join(), is(-1));
+    assertThat(timers.isEmpty(), is(true));
+  }
+
+  @Test
+  public void timeout() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder());
+    CompletableFuture<Integer> future = cache.get(1);
+    assertThat(future.isDone(), is(false));
+
+    runTimer(TIMEOUT);
+    assertThat(failure(future), is(instanceOf(TimeoutException.class)));
+    assertThat(loads.get(0).isDone(), is(false));
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+
+    cache.get(1);
+    assertThat(loads.size(), is(2));
+  }
+
+  @Test
+  public void timeout_cancelledOnCompletion() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder());
+    CompletableFuture<Integer> future = cache.get(1);
+
+    loads.get(0).complete(-1);
+    assertThat(future.join(), is(-1));
+    assertThat(timer(TIMEOUT).future.isCancelled(), is(true));
+  }
+
+  @Test
+  public void timeout_bulk() {
+    AsyncLoadingCache<Integer, Integer> cache = builder().buildAsync(
+        new AsyncCacheLoader<Integer, Integer>() {
+          @Override public CompletableFuture<Integer> asyncLoad(Integer key, Executor executor) {
+            throw new UnsupportedOperationException();
+          }
+          @Override public CompletableFuture<Map<Integer, Integer>> asyncLoadAll(
+              Iterable<? extends Integer> keys, Executor executor) {
+            return new CompletableFuture<>();
+          }
+        });
+    CompletableFuture<Map<Integer, Integer>> future = cache.getAll(Arrays.asList(1, 2));
+
+    runTimer(TIMEOUT);
+    assertThat(failure(future), is(instanceOf(TimeoutException.class)));
+    assertThat(cache.synchronous().asMap().isEmpty(), is(true));
+  }
+
+  @Test
+  public void timeout_reload() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder());
+    cache.put(1, CompletableFuture.completedFuture(-1));
+
+    cache.synchronous().refresh(1);
+    assertThat(loads.size(), is(1));
+
+    runTimer(TIMEOUT);
+    assertThat(cache.get(1).join(), is(-1));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+  }
+
+  @Test
+  public void hedge_firstWins() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder().hedgeAsyncLoadAfter(
+        HEDGE, TimeUnit.NANOSECONDS));
+    CompletableFuture<Integer> future = cache.get(1);
+
+    runTimer(HEDGE);
+    assertThat(loads.size(), is(2));
+    assertThat(future.isDone(), is(false));
+
+    loads.get(1).complete(2);
+    loads.get(0).complete(1);
+    assertThat(future.join(), is(2));
+    assertThat(cache.get(1).join(), is(2));
+    assertThat(timer(TIMEOUT).future.isCancelled(), is(true));
+    assertThat(cache.synchronous().stats().hedgedLoadCount(), is(1L));
+    assertThat(cache.synchronous().stats().loadSuccessCount(), is(1L));
+  }
+
+  @Test
+  public void hedge_notNeeded() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder().hedgeAsyncLoadAfter(
+        HEDGE, TimeUnit.NANOSECONDS));
+    CompletableFuture<Integer> future = cache.get(1);
+
+    loads.get(0).complete(1);
+    assertThat(timer(HEDGE).future.isCancelled(), is(true));
+
+    timer(HEDGE).command.run();
+    assertThat(future.join(), is(1));
+    assertThat(loads.size(), is(1));
+    assertThat(cache.synchronous().stats().hedgedLoadCount(), is(0L));
+  }
+
+  @Test
+  public void hedge_failureAwaitsOther() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder().hedgeAsyncLoadAfter(
+        HEDGE, TimeUnit.NANOSECONDS));
+    CompletableFuture<Integer> future = cache.get(1);
+
+    runTimer(HEDGE);
+    loads.get(0).completeExceptionally(new IllegalStateException());
+    assertThat(future.isDone(), is(false));
+
+    loads.get(1).complete(2);
+    assertThat(future.join(), is(2));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(0L));
+  }
+
+  @Test
+  public void hedge_allFail() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder().hedgeAsyncLoadAfter(
+        HEDGE, TimeUnit.NANOSECONDS));
+    CompletableFuture<Integer> future = cache.get(1);
+
+    runTimer(HEDGE);
+    loads.get(0).completeExceptionally(new IllegalStateException());
+    loads.get(1).completeExceptionally(new IllegalArgumentException());
+    assertThat(failure(future), is(instanceOf(IllegalArgumentException.class)));
+    assertThat(cache.getIfPresent(1), is(nullValue()));
+    assertThat(cache.synchronous().stats().loadFailureCount(), is(1L));
+  }
+
+  @Test
+  public void hedge_timeout() {
+    AsyncLoadingCache<Integer, Integer> cache = newCache(builder().hedgeAsyncLoadAfter(
+        HEDGE, TimeUnit.NANOSECONDS));
+    CompletableFuture<Integer> future = cache.get(1);
+
+    runTimer(HEDGE);
+    runTimer(TIMEOUT);
+    assertThat(failure(future), is(instanceOf(TimeoutException.class)));
+    assertThat(cache.synchronous().stats().hedgedLoadCount(), is(1L));
+  }
+
+  private Caffeine<Object, Object> builder() {
+    return Caffeine.newBuilder()
+        .asyncLoadTimeout(TIMEOUT, TimeUnit.NANOSECONDS)
+        .executor(Runnable::run)
+        .recordStats()
+        .scheduler((executor, command, delay, unit) -> {
+          ScheduledTask task = new ScheduledTask(command, unit.toNanos(delay));
+          timers.add(task);
+          return task.future;
+        });
+  }
+
+  private AsyncLoadingCache<Integer, Integer> newCache(Caffeine<Object, Object> builder) {
+    return builder.buildAsync((key, executor) -> {
+      CompletableFuture<Integer> future = new CompletableFuture<>();
+      loads.add(future);
+      return future;
+    });
+  }
+
+  private ScheduledTask timer(long delay) {
+    Map<Long, ScheduledTask> byDelay = new HashMap<>();
+    timers.forEach(task -> byDelay.put(task.delay, task));
+    return byDelay.get(delay);
+  }
+
+  private void runTimer(long delay) {
+    ScheduledTask task = timer(delay);
+    assertThat(task.future.isCancelled(), is(false));
+    task.command.run();
+  }
+
+  private static Throwable failure(CompletableFuture<?> future) {
+    try {
+      future.join();
+      throw new AssertionError();
+    } catch (CompletionException e) {
+      return e.getCause();
+    }
+  }
+
+  static final class ScheduledTask {
+    final CompletableFuture<Void> future;
+    final Runnable command;
+    final long delay;
+
+    ScheduledTask(Runnable command, long delay) {
+      this.future = new CompletableFuture<>();
+      this.command = command;
+      this.delay = delay;
+    }
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.Policy.Versioned;
+import com.github.benmanes.caffeine.cache.Policy.Versioning;
+import com.github.benmanes.caffeine.testing.ConcurrentTestHarness;
+import com.google.common.testing.FakeTicker;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class VersioningTest {
+  List<RemovalCause> removals;
+  FakeTicker ticker;
+
+  @BeforeMethod
+  public void beforeMethod() {
+    removals = new ArrayList<>();
+    ticker = new FakeTicker();
+  }
+
+  @Test
+  public void versioning_unsupported() {
+    assertThat(Caffeine.newBuilder().build().policy().versioning(), is(Optional.empty()));
+    assertThat(Caffeine.newBuilder().maximumSize(10).buildAsync()
+        .synchronous().policy().versioning(), is(Optional.empty()));
+  }
+
+  @Test(expectedExceptions = NullPointerException.class)
+  public void getVersioned_nullKey() {
+    versioning(newCache()).getVersioned(null);
+  }
+
+  @Test
+  public void getVersioned_absent() {
+    assertThat(versioning(newCache()).getVersioned(1), is(Optional.empty()));
+  }
+
+  @Test
+  public void getVersioned_expired() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+    ticker.advance(1, TimeUnit.HOURS);
+    assertThat(versioning(cache).getVersioned(1), is(Optional.empty()));
+  }
+
+  @Test
+  public void getVersioned_present() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+
+    Versioned<Integer> versioned = versioning(cache).getVersioned(1).get();
+    assertThat(versioned.value(), is(-1));
+    assertThat(cache.stats().requestCount(), is(0L));
+  }
+
+  @Test
+  public void replaceIfVersion_present() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    Versioned<Integer> versioned = versioning.getVersioned(1).get();
+    assertThat(versioning.replaceIfVersion(1, versioned, -2), is(true));
+    assertThat(cache.getIfPresent(1), is(-2));
+    assertThat(removals, contains(RemovalCause.REPLACED));
+    assertThat(versioning.replaceIfVersion(1, versioned, -3), is(false));
+    assertThat(cache.getIfPresent(1), is(-2));
+  }
+
+  @Test
+  public void replaceIfVersion_sameValue() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    Versioned<Integer> versioned = versioning.getVersioned(1).get();
+    assertThat(versioning.replaceIfVersion(1, versioned, versioned.value()), is(true));
+    assertThat(removals.isEmpty(), is(true));
+  }
+
+  @Test
+  public void replaceIfVersion_written() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    Versioned<Integer> versioned = versioning.getVersioned(1).get();
+    cache.put(1, new Integer(-1));
+    assertThat(versioning.replaceIfVersion(1, versioned, -2), is(false));
+    assertThat(cache.getIfPresent(1), is(-1));
+  }
+
+  @Test
+  public void replaceIfVersion_removed() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    Versioned<Integer> versioned = versioning.getVersioned(1).get();
+    cache.invalidate(1);
+    cache.put(1, versioned.value());
+    assertThat(versioning.replaceIfVersion(1, versioned, -2), is(false));
+    assertThat(cache.getIfPresent(1), is(-1));
+  }
+
+  @Test
+  public void replaceIfVersion_expired() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    Versioned<Integer> versioned = versioning.getVersioned(1).get();
+    ticker.advance(1, TimeUnit.HOURS);
+    assertThat(versioning.replaceIfVersion(1, versioned, -2), is(false));
+  }
+
+  @Test
+  public void replaceIfVersion_weighted() {
+    Cache<Integer, Integer> cache = Caffeine.newBuilder()
+        .weigher((Integer key, Integer value) -> Math.abs(value))
+        .executor(Runnable::run)
+        .maximumWeight(100)
+        .build();
+    cache.put(1, -1);
+
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    assertThat(versioning.replaceIfVersion(1, versioning.getVersioned(1).get(), -5), is(true));
+    assertThat(cache.policy().eviction().get().weightedSize().getAsLong(), is(5L));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void replaceIfVersion_differentKey() {
+    Cache<Integer, Integer> cache = newCache();
+    cache.put(1, -1);
+    cache.put(2, -2);
+
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    versioning.replaceIfVersion(2, versioning.getVersioned(1).get(), -3);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void replaceIfVersion_differentCache() {
+    Cache<Integer, Integer> cache = newCache();
+    Cache<Integer, Integer> other = newCache();
+    cache.put(1, -1);
+    other.put(1, -1);
+
+    versioning(other).replaceIfVersion(1, versioning(cache).getVersioned(1).get(), -2);
+  }
+
+  @Test
+  public void replaceIfVersion_concurrent() {
+    int threads = 10;
+    int increments = 1_000;
+    Cache<Integer, Integer> cache = Caffeine.newBuilder().maximumSize(10).build();
+    Versioning<Integer, Integer> versioning = versioning(cache);
+    cache.put(1, 0);
+
+    ConcurrentTestHarness.timeTasks(threads, () -> {
+      for (int i = 0; i < increments; i++) {
+        for (;;) {
+          Versioned<Integer> versioned = versioning.getVersioned(1).get();
+          if (versioning.replaceIfVersion(1, versioned, versioned.value() + 1)) {
+            break;
+          }
+        }
+      }
+    });
+    assertThat(cache.getIfPresent(1), is(threads * increments));
+  }
+
+  private Cache<Integer, Integer> newCache() {
+    return Caffeine.newBuilder()
+        .removalListener((Integer key, Integer value, RemovalCause cause) -> removals.add(cause))
+        .expireAfterWrite(1, TimeUnit.MINUTES)
+        .executor(Runnable::run)
+        .ticker(ticker::read)
+        .maximumSize(10)
+        .recordStats()
+        .build();
+  }
+
+  private static Versioning<Integer, Integer> versioning(Cache<Integer, Integer> cache) {
+    return cache.policy().versioning().get();
+  }
+}
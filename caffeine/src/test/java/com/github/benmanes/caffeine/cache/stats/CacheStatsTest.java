@@ -98,6 +98,63 @@ public final class CacheStatsTest {
         Long.MAX_VALUE, Long.MAX_VALUE);
   }
 
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void invalid_staleHitCount() {
+    new CacheStats(0, 0, 0, 0, 0, 0, 0, -1, 0, 0);
+  }
+
+  @Test
+  public void staleHitCount() {
+    CacheStats one = new CacheStats(11, 13, 17, 19, 23, 27, 54, 5, 0, 0);
+    CacheStats two = new CacheStats(53, 47, 43, 41, 37, 31, 62, 7, 0, 0);
+    assertThat(one.staleHitCount(), is(5L));
+    assertThat(one.plus(two).staleHitCount(), is(12L));
+    assertThat(two.minus(one).staleHitCount(), is(2L));
+
+    CacheStats fresh = new CacheStats(11, 13, 17, 19, 23, 27, 54);
+    assertThat(fresh.staleHitCount(), is(0L));
+    assertThat(one, is(not(equalTo(fresh))));
+    assertThat(one, hasToString(not(fresh.toString())));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void invalid_negativeHitCount() {
+    new CacheStats(0, 0, 0, 0, 0, 0, 0, 0, -1, 0);
+  }
+
+  @Test
+  public void negativeHitCount() {
+    CacheStats one = new CacheStats(11, 13, 17, 19, 23, 27, 54, 0, 3, 0);
+    CacheStats two = new CacheStats(53, 47, 43, 41, 37, 31, 62, 0, 8, 0);
+    assertThat(one.negativeHitCount(), is(3L));
+    assertThat(one.plus(two).negativeHitCount(), is(11L));
+    assertThat(two.minus(one).negativeHitCount(), is(5L));
+
+    CacheStats loaded = new CacheStats(11, 13, 17, 19, 23, 27, 54);
+    assertThat(loaded.negativeHitCount(), is(0L));
+    assertThat(one, is(not(equalTo(loaded))));
+    assertThat(one, hasToString(not(loaded.toString())));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void invalid_hedgedLoadCount() {
+    new CacheStats(0, 0, 0, 0, 0, 0, 0, 0, 0, -1);
+  }
+
+  @Test
+  public void hedgedLoadCount() {
+    CacheStats one = new CacheStats(11, 13, 17, 19, 23, 27, 54, 0, 0, 4);
+    CacheStats two = new CacheStats(53, 47, 43, 41, 37, 31, 62, 0, 0, 9);
+    assertThat(one.hedgedLoadCount(), is(4L));
+    assertThat(one.plus(two).hedgedLoadCount(), is(13L));
+    assertThat(two.minus(one).hedgedLoadCount(), is(5L));
+
+    CacheStats unhedged = new CacheStats(11, 13, 17, 19, 23, 27, 54, 0, 0, 0);
+    assertThat(unhedged.hedgedLoadCount(), is(0L));
+    assertThat(one, is(not(equalTo(unhedged))));
+    assertThat(one, hasToString(not(unhedged.toString())));
+  }
+
   private static void checkStats(CacheStats stats, long requestCount, long hitCount,
       double hitRate, long missCount, double missRate, long loadSuccessCount,
       long loadFailureCount, double loadFailureRate, long loadCount, long totalLoadTime,
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2020 Ben Manes. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.benmanes.caffeine.cache.stats;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.hamcrest.Matcher;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.testing.ConcurrentTestHarness;
+
+/**
+ * @author ben.manes@gmail.com (Ben Manes)
+ */
+public final class HistogramStatsCounterTest {
+
+  @Test
+  public void counts() {
+    HistogramStatsCounter counter = new HistogramStatsCounter();
+    counter.recordHits(1);
+    counter.recordMisses(1);
+    counter.recordEviction(10, RemovalCause.SIZE);
+    counter.recordLoadSuccess(1);
+    counter.recordLoadFailure(2);
+    assertThat(counter.snapshot(), is(new CacheStats(1, 1, 1, 1, 3, 1, 10)));
+    assertThat(counter.loadTimes().count(), is(2L));
+    assertThat(counter.evictionWeights().count(), is(1L));
+    assertThat(counter.toString(), containsString(counter.snapshot().toString()));
+  }
+
+  @Test
+  public void empty() {
+    Histogram histogram = new HistogramStatsCounter().loadTimes();
+    assertThat(histogram, is(Histogram.empty()));
+    assertThat(histogram.count(), is(0L));
+    assertThat(histogram.max(), is(0L));
+    assertThat(histogram.percentile(99.0), is(0L));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void percentile_negative() {
+    Histogram.empty().percentile(-1.0);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void percentile_tooLarge() {
+    Histogram.empty().percentile(100.1);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void percentile_nan() {
+    Histogram.empty().percentile(Double.NaN);
+  }
+
+  @Test
+  public void percentile() {
+    HistogramStatsCounter counter = new HistogramStatsCounter();
+    for (int i = 1; i <= 1_000; i++) {
+      counter.recordLoadSuccess(i);
+    }
+    Histogram histogram = counter.loadTimes();
+    assertThat(histogram.count(), is(1_000L));
+    assertThat(histogram.percentile(0.0), is(1L));
+    assertThat(histogram.percentile(50.0), is(withinError(500)));
+    assertThat(histogram.percentile(99.0), is(withinError(990)));
+    assertThat(histogram.percentile(100.0), is(histogram.max()));
+    assertThat(histogram.max(), is(withinError(1_000)));
+  }
+
+  @Test(dataProvider = "values")
+  public void bucket(long value) {
+    int index = ConcurrentHistogram.indexOf(value);
+    long highest = ConcurrentHistogram.highestValueOf(index);
+    assertThat(highest, is(withinError(Math.max(value, 0))));
+    assertThat(ConcurrentHistogram.indexOf(highest), is(index));
+    assertThat(index, is(both(greaterThanOrEqualTo(0))
+        .and(lessThanOrEqualTo(ConcurrentHistogram.BUCKETS - 1))));
+    if (highest != Long.MAX_VALUE) {
+      assertThat(ConcurrentHistogram.indexOf(highest + 1), is(index + 1));
+    }
+  }
+
+  @DataProvider(name = "values")
+  public Object[] providesValues() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return new Object[] { -1L, 0L, 1L, 7L, 8L, 15L, 16L, 17L, 1_000L, 1_000_000_007L,
+        Integer.MAX_VALUE, random.nextLong(Long.MAX_VALUE), Long.MAX_VALUE - 1, Long.MAX_VALUE };
+  }
+
+  @Test
+  public void minus() {
+    HistogramStatsCounter counter = new HistogramStatsCounter();
+    counter.recordLoadSuccess(10);
+    Histogram before = counter.loadTimes();
+    counter.recordLoadSuccess(1_000);
+
+    Histogram difference = counter.loadTimes().minus(before);
+    assertThat(difference.count(), is(1L));
+    assertThat(difference.percentile(0.0), is(withinError(1_000)));
+    assertThat(before.minus(counter.loadTimes()), is(Histogram.empty()));
+  }
+
+  @Test
+  public void plus() {
+    HistogramStatsCounter counter = new HistogramStatsCounter();
+    counter.recordLoadSuccess(10);
+    Histogram histogram = counter.loadTimes().plus(counter.loadTimes());
+    assertThat(histogram.count(), is(2L));
+    assertThat(histogram.max(), is(10L));
+    assertThat(histogram.hashCode(), is(histogram.plus(Histogram.empty()).hashCode()));
+  }
+
+  @Test
+  public void concurrent() {
+    HistogramStatsCounter counter = new HistogramStatsCounter();
+    ConcurrentTestHarness.timeTasks(5, () -> {
+      counter.recordHits(1);
+      counter.recordLoadSuccess(100);
+      counter.recordEviction(10, RemovalCause.SIZE);
+    });
+    assertThat(counter.snapshot(), is(new CacheStats(5, 0, 5, 0, 500, 5, 50)));
+    assertThat(counter.loadTimes().count(), is(5L));
+    assertThat(counter.loadTimes().max(), is(withinError(100)));
+    assertThat(counter.evictionWeights().percentile(50.0), is(10L));
+  }
+
+  /** Returns a matcher for the largest value equivalent to the expected value. */
+  private static Matcher<Long> withinError(long expected) {
+    long error = expected >>> ConcurrentHistogram.SUB_BUCKET_BITS;
+    long upperBound = (expected + error < 0) ? Long.MAX_VALUE : (expected + error);
+    return both(greaterThanOrEqualTo(expected)).and(lessThanOrEqualTo(upperBound));
+  }
+}
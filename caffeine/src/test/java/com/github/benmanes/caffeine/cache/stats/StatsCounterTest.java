@@ -73,6 +73,29 @@ public final class StatsCounterTest {
     assertThat(counter.snapshot(), is(new CacheStats(2, 2, 2, 2, 4, 6, 22)));
   }
 
+  @Test
+  public void staleAndNegativeHits() {
+    ConcurrentStatsCounter counter = new ConcurrentStatsCounter();
+    counter.recordHits(3);
+    counter.recordStaleHits(2);
+    counter.recordNegativeHits(1);
+    assertThat(counter.snapshot(), is(new CacheStats(3, 0, 0, 0, 0, 0, 0, 2, 1, 0)));
+
+    counter.incrementBy(counter);
+    assertThat(counter.snapshot().staleHitCount(), is(4L));
+    assertThat(counter.snapshot().negativeHitCount(), is(2L));
+  }
+
+  @Test
+  public void hedgedLoads() {
+    ConcurrentStatsCounter counter = new ConcurrentStatsCounter();
+    counter.recordHedgedLoads(2);
+    assertThat(counter.snapshot(), is(new CacheStats(0, 0, 0, 0, 0, 0, 0, 0, 0, 2)));
+
+    counter.incrementBy(counter);
+    assertThat(counter.snapshot().hedgedLoadCount(), is(4L));
+  }
+
   @Test
   public void concurrent() {
     StatsCounter counter = new ConcurrentStatsCounter();
@@ -87,6 +110,23 @@ public final class StatsCounterTest {
     assertThat(counter.snapshot(), is(new CacheStats(5, 5, 5, 5, 10, 10, 50)));
   }
 
+  @Test
+  public void concurrent_contended() {
+    int threads = 2 * Runtime.getRuntime().availableProcessors();
+    StatsCounter counter = new ConcurrentStatsCounter();
+    ConcurrentTestHarness.timeTasks(threads, () -> {
+      for (int i = 0; i < 1_000; i++) {
+        counter.recordHits(1);
+        counter.recordMisses(2);
+        counter.recordLoadSuccess(3);
+        counter.recordEviction(4, RemovalCause.SIZE);
+      }
+    });
+    long count = 1_000L * threads;
+    assertThat(counter.snapshot(),
+        is(new CacheStats(count, 2 * count, count, 0, 3 * count, count, 4 * count)));
+  }
+
   @Test
   public void guarded() {
     StatsCounter counter = StatsCounter.guardedStatsCounter(new ConcurrentStatsCounter());
@@ -109,6 +149,9 @@ public final class StatsCounterTest {
     when(statsCounter.snapshot()).thenThrow(new NullPointerException());
     doThrow(NullPointerException.class).when(statsCounter).recordEviction();
     doThrow(NullPointerException.class).when(statsCounter).recordHits(anyInt());
+    doThrow(NullPointerException.class).when(statsCounter).recordStaleHits(anyInt());
+    doThrow(NullPointerException.class).when(statsCounter).recordNegativeHits(anyInt());
+    doThrow(NullPointerException.class).when(statsCounter).recordHedgedLoads(anyInt());
     doThrow(NullPointerException.class).when(statsCounter).recordMisses(anyInt());
     doThrow(NullPointerException.class).when(statsCounter).recordEviction(anyInt(), any());
     doThrow(NullPointerException.class).when(statsCounter).recordLoadSuccess(anyLong());
@@ -116,6 +159,9 @@ public final class StatsCounterTest {
 
     StatsCounter guarded = StatsCounter.guardedStatsCounter(statsCounter);
     guarded.recordHits(1);
+    guarded.recordStaleHits(1);
+    guarded.recordNegativeHits(1);
+    guarded.recordHedgedLoads(1);
     guarded.recordMisses(1);
     guarded.recordEviction();
     guarded.recordEviction(10);
@@ -125,6 +171,9 @@ public final class StatsCounterTest {
     assertThat(guarded.snapshot(), is(CacheStats.empty()));
 
     verify(statsCounter).recordHits(1);
+    verify(statsCounter).recordStaleHits(1);
+    verify(statsCounter).recordNegativeHits(1);
+    verify(statsCounter).recordHedgedLoads(1);
     verify(statsCounter).recordMisses(1);
     verify(statsCounter).recordEviction();
     verify(statsCounter).recordEviction(10);